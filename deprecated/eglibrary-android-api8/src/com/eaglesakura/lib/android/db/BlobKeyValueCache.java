@@ -0,0 +1,83 @@
+package com.eaglesakura.lib.android.db;
+
+/**
+ * {@link BlobKeyValueStore}の読み込みをキャッシュする。
+ *
+ * @author TAKESHI YAMASHITA
+ */
+public class BlobKeyValueCache extends KeyValueCache<byte[]> {
+    final BlobKeyValueStore store;
+
+    /**
+     * @param store     キャッシュ対象のKVS
+     * @param maxBytes  キャッシュする値の合計バイト数
+     * @param writeMode 書き込みの反映方法
+     */
+    public BlobKeyValueCache(BlobKeyValueStore store, long maxBytes, WriteMode writeMode) {
+        super(maxBytes, writeMode);
+        this.store = store;
+    }
+
+    /**
+     * キャッシュ対象のKVSを取得する。<BR>
+     * KVSを直接書き換えた場合、キャッシュには反映されない。
+     */
+    public BlobKeyValueStore getStore() {
+        return store;
+    }
+
+    /**
+     * 値を文字列として取得する。
+     */
+    public String getText(String key) {
+        byte[] value = get(key);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return new String(value, BlobKeyValueStore.CHARSET);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    @Override
+    protected byte[] loadValue(String key) {
+        return store.getOrNull(key);
+    }
+
+    @Override
+    protected void storeValue(String key, byte[] value) {
+        store.insertOrUpdate(key, value);
+    }
+
+    @Override
+    protected void removeValue(String key) {
+        store.remove(key);
+    }
+
+    @Override
+    protected void beginTransaction() {
+        store.beginTransaction();
+    }
+
+    @Override
+    protected void endTransaction() {
+        store.endTransaction();
+    }
+
+    @Override
+    protected int sizeOf(byte[] value) {
+        return value.length;
+    }
+
+    /**
+     * 配列は利用者が書き換えられるため、保持・取得の度に複製する。
+     */
+    @Override
+    protected byte[] copyValue(byte[] value) {
+        final byte[] result = new byte[value.length];
+        System.arraycopy(value, 0, result, 0, value.length);
+        return result;
+    }
+}
@@ -8,14 +8,24 @@ import android.content.Context;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 /**
  * SQLを利用した簡単なKVSを提供する。
- * insert時にはkey-valueと更新時刻が保存される。
+ * insert時にはkey-valueと更新時刻が保存される。<BR>
+ * <BR>
+ * 閾値を超える大きな値はチャンクテーブルへ固定長で分割して保存し、本体テーブルの値はnullとなる。<BR>
+ * 分割された値もget()等で通常通り取得できるが、read()/openInputStream()を利用するとチャンク単位で読み込める。
  *
  * @author TAKESHI YAMASHITA
  */
@@ -83,6 +93,36 @@ public class BlobKeyValueStore extends DisposableResource {
      */
     DBType type;
 
+    /**
+     * insert or replace用のSQL
+     */
+    String REPLACE_SQL;
+
+    /**
+     * 分割した値を保存するテーブル名
+     */
+    String chunkTableName;
+
+    /**
+     * チャンクテーブル作成用のSQL
+     */
+    String CREATE_CHUNK_TBL_SQL;
+
+    /**
+     * チャンクテーブル削除用のSQL
+     */
+    String DELETE_CHUNK_TBL_SQL;
+
+    /**
+     * 1チャンクのバイト数
+     */
+    static final int CHUNK_SIZE = 256 * 1024;
+
+    /**
+     * この値を超えるバイト数の値はチャンクへ分割する
+     */
+    int chunkThreshold = CHUNK_SIZE;
+
     public BlobKeyValueStore(File dbFile, Context context, String tableName, DBType type, int dbVersion) {
         this.context = context;
         this.dbFile = dbFile;
@@ -95,6 +135,13 @@ public class BlobKeyValueStore extends DisposableResource {
         DELETE_TBL_SQL = "drop table if exists " + tableName;
         CREATE_TBL_SQL = "create table if not exists " + tableName + " (" + DB_KEY + " text primary key, " + DB_VALUE
                 + " blob, " + DB_DATE + " integer )";
+        REPLACE_SQL = "insert or replace into " + tableName + " (" + DB_KEY + ", " + DB_VALUE + ", " + DB_DATE
+                + ") values (?, ?, ?)";
+        chunkTableName = tableName + "_chunk";
+        DELETE_CHUNK_TBL_SQL = "drop table if exists " + chunkTableName;
+        CREATE_CHUNK_TBL_SQL = "create table if not exists " + chunkTableName + " (" + DB_KEY + " text, "
+                + DB_CHUNK_INDEX + " integer, " + DB_VALUE + " blob, primary key(" + DB_KEY + ", " + DB_CHUNK_INDEX
+                + ") )";
         db = type.open(helper);
         createTable();
     }
@@ -125,15 +172,315 @@ public class BlobKeyValueStore extends DisposableResource {
      * 登録済みの場合、上書きを行う。
      */
     public void insertOrUpdate(String key, byte[] value) {
-        final ContentValues values = createValues(key, value);
+        Statements statements = new Statements();
         try {
-            db.insertOrThrow(tableName, null, values);
-        } catch (Exception e) {
-            remove(key);
-            db.insert(tableName, null, values);
+            replace(statements, key, value, System.currentTimeMillis());
+        } finally {
+            statements.close();
+        }
+    }
+
+    /**
+     * 複数の値をまとめて登録する。登録済みのキーは上書きされる。<BR>
+     * 全ての値は1トランザクション内で、コンパイル済みのステートメントを使い回して書き込まれる。<BR>
+     * 途中で書き込みに失敗した場合、全ての値は書き込まれない。<BR>
+     * 更新時刻は全ての値で共通となる。
+     *
+     * @return 書き込んだ値の数
+     */
+    public int putAll(Map<String, byte[]> values) {
+        final long date = System.currentTimeMillis();
+        int result = 0;
+        Statements statements = new Statements();
+        db.beginTransaction();
+        try {
+            for (Map.Entry<String, byte[]> it : values.entrySet()) {
+                replace(statements, it.getKey(), it.getValue(), date);
+                ++result;
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            statements.close();
+        }
+        return result;
+    }
+
+    /**
+     * insert or replaceで値を書き込む。<BR>
+     * 閾値を超える値はチャンクへ分割される。
+     */
+    void replace(Statements statements, String key, byte[] value, long date) {
+        if (value == null || value.length <= chunkThreshold) {
+            statements.deleteChunks(key);
+            statements.replaceRow(key, value, date);
+            return;
+        }
+
+        db.beginTransaction();
+        try {
+            statements.deleteChunks(key);
+            statements.replaceRow(key, null, date);
+            for (int offset = 0, index = 0; offset < value.length; offset += CHUNK_SIZE, ++index) {
+                final int length = Math.min(CHUNK_SIZE, value.length - offset);
+                final byte[] chunk;
+                if (offset == 0 && length == value.length) {
+                    chunk = value;
+                } else {
+                    chunk = new byte[length];
+                    System.arraycopy(value, offset, chunk, 0, length);
+                }
+                statements.insertChunk(key, index, chunk);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * 書き込み用のコンパイル済みステートメント。<BR>
+     * 1回の書き込み・トランザクションの間だけ使い回し、スレッド間では共有しない。<BR>
+     * 各ステートメントは初回の利用時にコンパイルされる。
+     */
+    class Statements {
+        SQLiteStatement replace = null;
+
+        SQLiteStatement chunkInsert = null;
+
+        SQLiteStatement chunkDelete = null;
+
+        /**
+         * 本体テーブルへ1行を書き込む。
+         */
+        void replaceRow(String key, byte[] value, long date) {
+            if (replace == null) {
+                replace = db.compileStatement(REPLACE_SQL);
+            }
+            replace.bindString(1, key);
+            if (value != null) {
+                replace.bindBlob(2, value);
+            } else {
+                replace.bindNull(2);
+            }
+            replace.bindLong(3, date);
+            replace.executeInsert();
+        }
+
+        void insertChunk(String key, int index, byte[] chunk) {
+            if (chunkInsert == null) {
+                chunkInsert = db.compileStatement("insert into " + chunkTableName + " (" + DB_KEY + ", "
+                        + DB_CHUNK_INDEX + ", " + DB_VALUE + ") values (?, ?, ?)");
+            }
+            chunkInsert.bindString(1, key);
+            chunkInsert.bindLong(2, index);
+            chunkInsert.bindBlob(3, chunk);
+            chunkInsert.executeInsert();
+        }
+
+        void deleteChunks(String key) {
+            if (chunkDelete == null) {
+                chunkDelete = db.compileStatement("delete from " + chunkTableName + " where " + KEY_SELECTION);
+            }
+            chunkDelete.bindString(1, key);
+            chunkDelete.execute();
+        }
+
+        void close() {
+            if (replace != null) {
+                replace.close();
+                replace = null;
+            }
+            if (chunkInsert != null) {
+                chunkInsert.close();
+                chunkInsert = null;
+            }
+            if (chunkDelete != null) {
+                chunkDelete.close();
+                chunkDelete = null;
+            }
+        }
+    }
+
+    /**
+     * ストリームの内容を値として書き込む。登録済みの場合、上書きを行う。<BR>
+     * ストリームはチャンク単位で読み込まれるため、値全体をメモリに展開しない。<BR>
+     * 書き込みは1トランザクションで行われ、読み込みに失敗した場合は何も書き込まれない。<BR>
+     * ストリームは閉じない。
+     *
+     * @return 書き込んだバイト数
+     */
+    public long insertOrUpdate(String key, InputStream is) throws IOException {
+        final long date = System.currentTimeMillis();
+        byte[] chunk = new byte[CHUNK_SIZE];
+        int length = readChunk(is, chunk);
+
+        Statements statements = new Statements();
+        db.beginTransaction();
+        try {
+            statements.deleteChunks(key);
+            long result = 0;
+            if (length < CHUNK_SIZE && length <= chunkThreshold) {
+                // 1チャンクに収まった
+                final byte[] value = new byte[length];
+                System.arraycopy(chunk, 0, value, 0, length);
+                statements.replaceRow(key, value, date);
+                result = length;
+            } else {
+                statements.replaceRow(key, null, date);
+                int index = 0;
+                while (length > 0) {
+                    if (length == CHUNK_SIZE) {
+                        statements.insertChunk(key, index, chunk);
+                    } else {
+                        final byte[] last = new byte[length];
+                        System.arraycopy(chunk, 0, last, 0, length);
+                        statements.insertChunk(key, index, last);
+                    }
+                    result += length;
+                    ++index;
+                    length = readChunk(is, chunk);
+                }
+            }
+            db.setTransactionSuccessful();
+            return result;
+        } finally {
+            db.endTransaction();
+            statements.close();
+        }
+    }
+
+    /**
+     * バッファが埋まるかストリームの終端まで読み込む。
+     */
+    private static int readChunk(InputStream is, byte[] buffer) throws IOException {
+        int result = 0;
+        while (result < buffer.length) {
+            final int n = is.read(buffer, result, buffer.length - result);
+            if (n < 0) {
+                break;
+            }
+            result += n;
+        }
+        return result;
+    }
+
+    /**
+     * 値をストリームへ書き出す。<BR>
+     * 分割された値はチャンク単位で読み込まれる。
+     *
+     * @return 書き出したバイト数。キーが存在しない場合は-1
+     */
+    public long read(String key, OutputStream os) throws IOException {
+        Cursor cursor = db.query(tableName, new String[]{
+                DB_VALUE
+        }, KEY_SELECTION, new String[]{
+                key
+        }, null, null, null);
+
+        byte[] value;
+        try {
+            if (!cursor.moveToFirst()) {
+                return -1;
+            }
+            value = cursor.getBlob(0);
+        } finally {
+            cursor.close();
+        }
+
+        if (value != null) {
+            os.write(value);
+            return value.length;
+        }
+
+        cursor = queryChunks(key);
+        try {
+            long result = 0;
+            while (cursor.moveToNext()) {
+                final byte[] chunk = cursor.getBlob(0);
+                os.write(chunk);
+                result += chunk.length;
+            }
+            return result;
+        } finally {
+            cursor.close();
         }
     }
 
+    /**
+     * 値を読み込むストリームを開く。<BR>
+     * 分割された値は、読み込みが進むごとに1チャンクずつDBから読み込まれる。
+     *
+     * @return キーが存在しない場合はnull
+     */
+    public InputStream openInputStream(String key) {
+        Cursor cursor = null;
+        try {
+            cursor = db.query(tableName, new String[]{
+                    DB_VALUE
+            }, KEY_SELECTION, new String[]{
+                    key
+            }, null, null, null);
+            if (!cursor.moveToFirst()) {
+                return null;
+            }
+            final byte[] value = cursor.getBlob(0);
+            if (value != null) {
+                return new ByteArrayInputStream(value);
+            }
+            return new ChunkInputStream(key);
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+    }
+
+    /**
+     * キーに関連するチャンクを順番に取得する。
+     */
+    Cursor queryChunks(String key) {
+        return db.query(chunkTableName, new String[]{
+                DB_VALUE
+        }, KEY_SELECTION, new String[]{
+                key
+        }, null, null, DB_CHUNK_INDEX);
+    }
+
+    /**
+     * 分割された値を結合して取得する。
+     *
+     * @return チャンクが存在しない場合はnull
+     */
+    byte[] readChunks(String key) {
+        Cursor cursor = queryChunks(key);
+        try {
+            if (!cursor.moveToFirst()) {
+                return null;
+            }
+            ByteArrayOutputStream result = new ByteArrayOutputStream(CHUNK_SIZE * cursor.getCount());
+            do {
+                final byte[] chunk = cursor.getBlob(0);
+                result.write(chunk, 0, chunk.length);
+            } while (cursor.moveToNext());
+            return result.toByteArray();
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * チャンクへ分割する閾値を設定する。<BR>
+     * 既に保存済みの値には影響しない。
+     */
+    public void setChunkThreshold(int chunkThreshold) {
+        this.chunkThreshold = chunkThreshold;
+    }
+
+    public int getChunkThreshold() {
+        return chunkThreshold;
+    }
+
     /**
      * DBに値を新規登録する。
      * 失敗した場合は何も行わない。
@@ -152,7 +499,12 @@ public class BlobKeyValueStore extends DisposableResource {
      */
     public void remove(String key) {
         try {
-            db.delete(tableName, DB_KEY + "='" + key + "'", null);
+            db.delete(tableName, KEY_SELECTION, new String[]{
+                    key
+            });
+            db.delete(chunkTableName, KEY_SELECTION, new String[]{
+                    key
+            });
         } catch (Exception e) {
 
         }
@@ -193,8 +545,9 @@ public class BlobKeyValueStore extends DisposableResource {
     public Data get(String key) {
         Cursor cursor = null;
         try {
-            String selection = DB_KEY + "='" + key + "'";
-            cursor = db.query(tableName, cursorDatas, selection, null, null, null, null);
+            cursor = db.query(tableName, cursorDatas, KEY_SELECTION, new String[]{
+                    key
+            }, null, null, null);
             cursor.moveToFirst();
             return new Data(cursor);
         } catch (Exception e) {
@@ -207,8 +560,12 @@ public class BlobKeyValueStore extends DisposableResource {
     }
 
     /**
-     * 内部の管理データを全て返す。
+     * 内部の管理データを全て返す。<BR>
+     * 分割された値も含めて全ての値をメモリへ読み込む。
+     *
+     * @deprecated 全ての値をメモリへ読み込むため、{@link #keys()}で走査し、必要な値だけを{@link #get(String)}すること。
      */
+    @Deprecated
     public List<Data> list() {
         Cursor cursor = null;
         List<Data> result = new ArrayList<BlobKeyValueStore.Data>();
@@ -230,19 +587,37 @@ public class BlobKeyValueStore extends DisposableResource {
         return result;
     }
 
+    /**
+     * キー・日付・値のバイト数を走査するカーソルを開く。<BR>
+     * 値本体は読み込まないため、テーブルの大きさに関わらず一定のメモリで走査できる。<BR>
+     * 利用後は必ずdispose()すること。
+     */
+    public KeyCursor keys() {
+        final String length = "ifnull(length(" + tableName + "." + DB_VALUE + "), (select sum(length(" + DB_VALUE
+                + ")) from " + chunkTableName + " where " + chunkTableName + "." + DB_KEY + "=" + tableName + "."
+                + DB_KEY + "))";
+        return new KeyCursor(db.query(tableName, new String[]{
+                DB_KEY, DB_DATE, length
+        }, null, null, null, null, null));
+    }
+
     /**
      * 値を取得する
      */
     public byte[] getOrNull(String key) {
         Cursor cursor = null;
         try {
-            String selection = DB_KEY + "='" + key + "'";
             cursor = db.query(tableName, new String[]{
                     DB_VALUE
-            }, selection, null, null, null, null);
+            }, KEY_SELECTION, new String[]{
+                    key
+            }, null, null, null);
 
-            cursor.moveToFirst();
-            return cursor.getBlob(0);
+            if (!cursor.moveToFirst()) {
+                return null;
+            }
+            final byte[] result = cursor.getBlob(0);
+            return result != null ? result : readChunks(key);
         } catch (Exception e) {
             return null;
         } finally {
@@ -258,15 +633,13 @@ public class BlobKeyValueStore extends DisposableResource {
     public boolean exists(String key) {
         Cursor cursor = null;
         try {
-            String selection = DB_KEY + "='" + key + "'";
             cursor = db.query(tableName, new String[]{
                     DB_KEY
-            }, selection, null, null, null, null);
+            }, KEY_SELECTION, new String[]{
+                    key
+            }, null, null, null);
 
-            if (cursor.moveToFirst()) {
-                return false;
-            }
-            return cursor.getString(0) != null;
+            return cursor.moveToFirst();
         } catch (Exception e) {
             return false;
         } finally {
@@ -281,6 +654,7 @@ public class BlobKeyValueStore extends DisposableResource {
      */
     public void dropTable() {
         db.execSQL(DELETE_TBL_SQL);
+        db.execSQL(DELETE_CHUNK_TBL_SQL);
         createTable();
     }
 
@@ -289,38 +663,41 @@ public class BlobKeyValueStore extends DisposableResource {
      */
     public void createTable() {
         db.execSQL(CREATE_TBL_SQL);
+        db.execSQL(CREATE_CHUNK_TBL_SQL);
     }
 
     /**
      * 値を挿入する。
      */
-    private void _insert(String key, byte[] insertValue, long insertDate, InsertFilter filter) throws Exception {
-        // 存在しないから、挿入して終了
-        final ContentValues values = createValues(key, insertValue);
-        values.put(DB_DATE, insertDate);
-
+    private void _insert(Statements statements, String key, byte[] insertValue, long insertDate,
+                         InsertFilter filter) throws Exception {
         // 古い値が存在する？
         if (!this.exists(key)) {
-            db.insert(tableName, null, values);
+            // 存在しないから、挿入して終了
+            replace(statements, key, insertValue, insertDate);
             return;
         }
 
         // 存在するなら、値を取得する
         Cursor cursor = db.query(tableName, new String[]{
                 DB_VALUE, DB_DATE,
-        }, DB_KEY + "='" + key + "'", null, null, null, null);
+        }, KEY_SELECTION, new String[]{
+                key
+        }, null, null, null);
 
         try {
             cursor.moveToFirst();
 
-            final byte[] currentValue = cursor.getBlob(0);
+            byte[] currentValue = cursor.getBlob(0);
+            if (currentValue == null) {
+                currentValue = readChunks(key);
+            }
             final long currentDate = cursor.getLong(1);
 
             // どちらを優先するかはフィルタに任せる
             if (filter.isOverwrite(key, currentValue, currentDate, insertValue, insertDate)) {
                 // 上書きを行う
-                remove(key);
-                db.insert(tableName, null, values);
+                replace(statements, key, insertValue, insertDate);
             } else {
                 // 上書きを行わない。
             }
@@ -332,41 +709,122 @@ public class BlobKeyValueStore extends DisposableResource {
 
     /**
      * insertDBをこのオブジェクトが管理するDBに結合する。
-     * データが競合した場合、どちらを優先するかはfilterによって確定される。
+     * データが競合した場合、どちらを優先するかはfilterによって確定される。<BR>
+     * filterにFILTER_*を指定した場合、insertDBをATTACHして1回のSQLで結合する。<BR>
+     * それ以外のfilter、もしくはATTACHできない場合は一定件数ごとのトランザクションで1件ずつ結合する。
      */
     public void insertTo(final BlobKeyValueStore insertDB, InsertFilter filter) {
+        if (filter instanceof SqlInsertFilter) {
+            try {
+                mergeAttached(insertDB, (SqlInsertFilter) filter);
+                return;
+            } catch (Exception e) {
+                LogUtil.log(e);
+            }
+        }
+
         Cursor cursor = insertDB.db.query(tableName, new String[]{
                 DB_KEY, DB_VALUE, DB_DATE,
         }, null, null, null, null, null);
+        Statements statements = new Statements();
         try {
-            cursor.moveToFirst();
-            do {
-                String key = cursor.getString(0);
-                byte[] value = cursor.getBlob(1);
-                long date = cursor.getLong(2);
-                try {
-                    _insert(key, value, date, filter);
-                } catch (Exception e) {
-                    LogUtil.log(e);
+            int count = 0;
+            beginTransaction();
+            try {
+                while (cursor.moveToNext()) {
+                    String key = cursor.getString(0);
+                    byte[] value = cursor.getBlob(1);
+                    long date = cursor.getLong(2);
+                    if (value == null) {
+                        value = insertDB.readChunks(key);
+                    }
+                    try {
+                        _insert(statements, key, value, date, filter);
+                    } catch (Exception e) {
+                        LogUtil.log(e);
+                    }
+
+                    if (++count % MERGE_BATCH == 0) {
+                        endTransaction();
+                        beginTransaction();
+                    }
                 }
-            } while (cursor.moveToNext());
+            } finally {
+                endTransaction();
+            }
         } finally {
             cursor.close();
+            statements.close();
         }
     }
 
-    public void print() {
-        String selection = null;
-        Cursor cursor = db.query(tableName, new String[]{
-                DB_KEY, DB_VALUE
-        }, selection, null, null, null, null);
+    /**
+     * insertDBのファイルをATTACHし、SQLのみで結合する。
+     */
+    private void mergeAttached(BlobKeyValueStore insertDB, SqlInsertFilter filter) {
+        final String src = MERGE_SCHEMA + "." + tableName;
+        final String srcChunk = MERGE_SCHEMA + "." + chunkTableName;
+        final String keys = "temp." + MERGE_KEYS;
 
-        if (cursor.moveToFirst()) {
-            do {
-                String key = cursor.getString(0);
-                byte[] value = cursor.getBlob(1);
-                LogUtil.log(key + " :: " + value.length + "bytes");
-            } while (cursor.moveToNext());
+        // ATTACHはトランザクション外でのみ行える
+        db.execSQL("attach database ? as " + MERGE_SCHEMA, new Object[]{
+                insertDB.dbFile.getAbsolutePath()
+        });
+        try {
+            db.beginTransaction();
+            try {
+                // 上書き対象のキーを確定させる
+                db.execSQL("drop table if exists " + keys);
+                db.execSQL("create temp table " + MERGE_KEYS + " as select " + DB_KEY + " from " + src + " s where "
+                        + filter.predicate("main." + tableName));
+
+                final String inKeys = DB_KEY + " in (select " + DB_KEY + " from " + keys + ")";
+                db.execSQL("delete from main." + chunkTableName + " where " + inKeys);
+                if (hasTable(MERGE_SCHEMA, chunkTableName)) {
+                    db.execSQL("insert into main." + chunkTableName + " (" + DB_KEY + ", " + DB_CHUNK_INDEX + ", "
+                            + DB_VALUE + ") select " + DB_KEY + ", " + DB_CHUNK_INDEX + ", " + DB_VALUE + " from "
+                            + srcChunk + " where " + inKeys);
+                }
+                db.execSQL("insert or replace into main." + tableName + " (" + DB_KEY + ", " + DB_VALUE + ", "
+                        + DB_DATE + ") select " + DB_KEY + ", " + DB_VALUE + ", " + DB_DATE + " from " + src
+                        + " where " + inKeys);
+                db.execSQL("drop table " + keys);
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+        } finally {
+            db.execSQL("detach database " + MERGE_SCHEMA);
+        }
+    }
+
+    /**
+     * schemaにテーブルが存在すればtrue
+     */
+    private boolean hasTable(String schema, String table) {
+        Cursor cursor = db.rawQuery("select count(*) from " + schema + ".sqlite_master where type='table' and name=?",
+                new String[]{
+                        table
+                });
+        try {
+            return cursor.moveToFirst() && cursor.getInt(0) > 0;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * キーと値のバイト数をログへ出力する。<BR>
+     * 分割された値はチャンクの合計バイト数を出力する。
+     */
+    public void print() {
+        KeyCursor cursor = keys();
+        try {
+            while (cursor.moveToNext()) {
+                LogUtil.log(cursor.getKey() + " :: " + cursor.getLength() + "bytes");
+            }
+        } finally {
+            cursor.dispose();
         }
     }
 
@@ -392,12 +850,15 @@ public class BlobKeyValueStore extends DisposableResource {
         @Override
         public void onCreate(SQLiteDatabase db) {
             db.execSQL(CREATE_TBL_SQL);
+            db.execSQL(CREATE_CHUNK_TBL_SQL);
         }
 
         @Override
         public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
             db.execSQL(DELETE_TBL_SQL);
+            db.execSQL(DELETE_CHUNK_TBL_SQL);
             db.execSQL(CREATE_TBL_SQL);
+            db.execSQL(CREATE_CHUNK_TBL_SQL);
         }
     }
 
@@ -415,6 +876,110 @@ public class BlobKeyValueStore extends DisposableResource {
                                    long insertDate);
     }
 
+    /**
+     * 条件をSQLで表現できるフィルタ
+     */
+    static class SqlInsertFilter implements InsertFilter {
+        /**
+         * 現在の値をm、挿入する値をsとした上書き条件。現在の値が存在しない行も含む。
+         */
+        final String condition;
+
+        final InsertFilter filter;
+
+        SqlInsertFilter(String condition, InsertFilter filter) {
+            this.condition = condition;
+            this.filter = filter;
+        }
+
+        /**
+         * 挿入する行を選ぶ条件を作成する。挿入する行の別名はsとする。
+         *
+         * @param current 現在のテーブル
+         */
+        String predicate(String current) {
+            return "not exists (select 1 from " + current + " m where m." + DB_KEY + "=s." + DB_KEY + " and not ("
+                    + condition + "))";
+        }
+
+        @Override
+        public boolean isOverwrite(String key, byte[] currentValue, long currentDate, byte[] insertValue,
+                                   long insertDate) {
+            return filter.isOverwrite(key, currentValue, currentDate, insertValue, insertDate);
+        }
+    }
+
+    /**
+     * 新しいデータを優先するフィルタ
+     */
+    public static final InsertFilter FILTER_NEWDATA = new SqlInsertFilter("s." + DB_DATE + ">m." + DB_DATE,
+            new InsertFilter() {
+                @Override
+                public boolean isOverwrite(String key, byte[] currentValue, long currentDate, byte[] insertValue,
+                                           long insertDate) {
+                    return insertDate > currentDate;
+                }
+            });
+
+    /**
+     * 古いデータを優先するフィルタ
+     */
+    public static final InsertFilter FILTER_OLDDATA = new SqlInsertFilter("s." + DB_DATE + "<m." + DB_DATE,
+            new InsertFilter() {
+                @Override
+                public boolean isOverwrite(String key, byte[] currentValue, long currentDate, byte[] insertValue,
+                                           long insertDate) {
+                    return insertDate < currentDate;
+                }
+            });
+
+    /**
+     * 常に上書きを行うフィルタ
+     */
+    public static final InsertFilter FILTER_ALWAYS_OVERWRITE = new SqlInsertFilter("1", new InsertFilter() {
+        @Override
+        public boolean isOverwrite(String key, byte[] currentValue, long currentDate, byte[] insertValue,
+                                   long insertDate) {
+            return true;
+        }
+    });
+
+    /**
+     * 常に上書きを行わないフィルタ
+     */
+    public static final InsertFilter FILTER_AYWAYS_NOT_OVERWRITE = new SqlInsertFilter("0", new InsertFilter() {
+        @Override
+        public boolean isOverwrite(String key, byte[] currentValue, long currentDate, byte[] insertValue,
+                                   long insertDate) {
+            return false;
+        }
+    });
+
+    /**
+     * 1件ずつ結合する場合に、1トランザクションで処理する件数
+     */
+    static final int MERGE_BATCH = 256;
+
+    /**
+     * 結合時にATTACHするDBの名前
+     */
+    static final String MERGE_SCHEMA = "merge_src";
+
+    /**
+     * 結合時に上書き対象のキーを保持する一時テーブル名
+     */
+    static final String MERGE_KEYS = "merge_keys";
+
+    /**
+     * チャンクの順番として入力する値
+     */
+    static final String DB_CHUNK_INDEX = "_chunk";
+
+    /**
+     * キーを指定して検索する条件
+     */
+    static final String KEY_SELECTION = DB_KEY + "=?";
+
     private static final String[] cursorDatas = {
             DB_KEY, DB_VALUE, DB_DATE
     };
@@ -433,6 +998,9 @@ public class BlobKeyValueStore extends DisposableResource {
             key = cursor.getString(0);
             value = cursor.getBlob(1);
             date = cursor.getLong(2);
+            if (value == null) {
+                value = readChunks(key);
+            }
         }
 
         /**
@@ -467,4 +1035,135 @@ public class BlobKeyValueStore extends DisposableResource {
             }
         }
     }
+
+    /**
+     * キー・日付・値のバイト数を走査する。
+     *
+     * @author TAKESHI YAMASHITA
+     */
+    public static class KeyCursor extends DisposableResource {
+        Cursor cursor;
+
+        KeyCursor(Cursor cursor) {
+            this.cursor = cursor;
+        }
+
+        /**
+         * 次の行へ移動する。最初の行へ移動する場合も呼び出す。
+         *
+         * @return 行が存在しなければfalse
+         */
+        public boolean moveToNext() {
+            return cursor.moveToNext();
+        }
+
+        /**
+         * 行数を取得する。
+         */
+        public int getCount() {
+            return cursor.getCount();
+        }
+
+        public String getKey() {
+            return cursor.getString(0);
+        }
+
+        public long getDate() {
+            return cursor.getLong(1);
+        }
+
+        /**
+         * 値のバイト数を取得する。
+         */
+        public long getLength() {
+            return cursor.getLong(2);
+        }
+
+        @Override
+        public void dispose() {
+            if (cursor != null) {
+                cursor.close();
+                cursor = null;
+            }
+        }
+    }
+
+    /**
+     * 分割された値を1チャンクずつ読み込む。
+     */
+    class ChunkInputStream extends InputStream {
+        final String key;
+
+        /**
+         * 次に読み込むチャンク番号
+         */
+        int nextIndex = 0;
+
+        byte[] chunk = null;
+
+        int position = 0;
+
+        ChunkInputStream(String key) {
+            this.key = key;
+        }
+
+        /**
+         * 読み込み済みのチャンクを使い切っていたら次のチャンクを読み込む。
+         *
+         * @return 終端に達していたらfalse
+         */
+        boolean prepare() {
+            while (chunk == null || position >= chunk.length) {
+                Cursor cursor = db.query(chunkTableName, new String[]{
+                        DB_VALUE
+                }, DB_KEY + "=? and " + DB_CHUNK_INDEX + "=?", new String[]{
+                        key, String.valueOf(nextIndex)
+                }, null, null, null);
+                try {
+                    if (!cursor.moveToFirst()) {
+                        chunk = null;
+                        return false;
+                    }
+                    chunk = cursor.getBlob(0);
+                    position = 0;
+                    ++nextIndex;
+                } finally {
+                    cursor.close();
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!prepare()) {
+                return -1;
+            }
+            return chunk[position++] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            if (!prepare()) {
+                return -1;
+            }
+            final int result = Math.min(length, chunk.length - position);
+            System.arraycopy(chunk, position, buffer, offset, result);
+            position += result;
+            return result;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return chunk != null ? chunk.length - position : 0;
+        }
+
+        @Override
+        public void close() throws IOException {
+            chunk = null;
+        }
+    }
 }
@@ -0,0 +1,139 @@
+package com.eaglesakura.lib.android.db;
+
+import com.eaglesakura.lib.android.game.graphics.canvas.BitmapImage;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * デコード済みの画像をピクセルのバイト数を上限に保持する。<BR>
+ * キャッシュは自身のBitmapImageを1つ保持し、利用者には画像を共有したコピーを渡す。<BR>
+ * 画像は参照カウントで管理されるため、キャッシュから破棄された画像も利用者が手放すまでrecycleされない。
+ *
+ * @author TAKESHI YAMASHITA
+ */
+class DecodedImageCache {
+    /**
+     * 参照順に並んだ画像。先頭が最も古い。
+     */
+    final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(32, 0.75f, true);
+
+    /**
+     * 保持できるピクセルの最大バイト数
+     */
+    long maxBytes;
+
+    /**
+     * 保持しているピクセルのバイト数
+     */
+    long currentBytes = 0;
+
+    long hitCount = 0;
+
+    long missCount = 0;
+
+    long evictionCount = 0;
+
+    DecodedImageCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * 画像を共有したコピーを取得する。
+     *
+     * @return キャッシュされていない場合はnull
+     */
+    synchronized Entry acquire(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            ++missCount;
+            return null;
+        }
+        ++hitCount;
+        return new Entry(new BitmapImage(entry.image), entry.date, entry.bytes);
+    }
+
+    /**
+     * 画像をキャッシュへ登録し、利用者へ渡す画像を返す。<BR>
+     * imageの管理はキャッシュへ移るため、呼び出し元は戻り値のみを利用すること。
+     *
+     * @param date 画像の保存日時
+     * @return 利用者へ渡す画像
+     */
+    synchronized BitmapImage put(String key, BitmapImage image, long date) {
+        final int bytes = image.getPixelBytes();
+        if (bytes > maxBytes) {
+            // 上限を超える画像はキャッシュしない
+            remove(key);
+            return image;
+        }
+
+        final Entry old = entries.put(key, new Entry(image, date, bytes));
+        if (old != null) {
+            release(old);
+        }
+        currentBytes += bytes;
+        trimToSize(maxBytes);
+        return new BitmapImage(image);
+    }
+
+    /**
+     * 画像をキャッシュから取り除く。
+     */
+    synchronized void remove(String key) {
+        final Entry old = entries.remove(key);
+        if (old != null) {
+            release(old);
+        }
+    }
+
+    /**
+     * 全ての画像をキャッシュから取り除く。
+     */
+    synchronized void clear() {
+        trimToSize(0);
+    }
+
+    synchronized void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+        trimToSize(maxBytes);
+    }
+
+    /**
+     * 保持量がsize以下になるまで古い画像を破棄する。
+     */
+    void trimToSize(long size) {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (currentBytes > size && iterator.hasNext()) {
+            final Entry entry = iterator.next();
+            iterator.remove();
+            release(entry);
+            ++evictionCount;
+        }
+    }
+
+    private void release(Entry entry) {
+        currentBytes -= entry.bytes;
+        entry.image.dispose();
+    }
+
+    /**
+     * キャッシュされた画像
+     */
+    static class Entry {
+        final BitmapImage image;
+
+        /**
+         * 画像の保存日時
+         */
+        final long date;
+
+        final int bytes;
+
+        Entry(BitmapImage image, long date, int bytes) {
+            this.image = image;
+            this.date = date;
+            this.bytes = bytes;
+        }
+    }
+}
@@ -6,13 +6,32 @@ import com.eaglesakura.lib.android.game.resource.GarbageCollector;
 import com.eaglesakura.lib.android.game.util.LogUtil;
 
 import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
 
 import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
- * On Memoryで済む程度の小さな画像キャッシュを提供する。
+ * On Memoryで済む程度の小さな画像キャッシュを提供する。<BR>
+ * <BR>
+ * 合計バイト数の上限と保存期間の上限を指定した場合、バックグラウンドで古い画像を削除する。<BR>
+ * 期間は保存時の日付、容量超過時の削除順は最終アクセス日時を基準とする。<BR>
+ * 最終アクセス日時はget()の度には書き込まず、まとめて反映する。<BR>
+ * <BR>
+ * getAsync()・prefetch()を利用した場合、{@link Loader}はワーカースレッドから並列に呼び出される。
  *
  * @author TAKESHI YAMASHITA
  */
@@ -32,60 +51,628 @@ public class ImageCacheDatabase extends DisposableResource {
      */
     GarbageCollector garbageCollector = new GarbageCollector();
 
+    /**
+     * 最終アクセス日時として入力する値
+     */
+    static final String DB_ACCESS = "_access";
+
+    /**
+     * 値のバイト数として入力する値
+     */
+    static final String DB_SIZE = "_size";
+
+    /**
+     * 1トランザクションで削除する最大件数
+     */
+    static final int EVICTION_BATCH = 64;
+
+    /**
+     * 未反映のアクセス日時がこの件数を超えたら反映を行う
+     */
+    static final int ACCESS_FLUSH_COUNT = 128;
+
+    /**
+     * 最終アクセス日時・サイズを保存するテーブル名
+     */
+    String accessTableName;
+
+    /**
+     * 合計バイト数の上限。0以下の場合は制限しない。
+     */
+    long maxBytes = 0;
+
+    /**
+     * 保存期間の上限(ms)。0以下の場合は制限しない。
+     */
+    long maxAge = 0;
+
+    /**
+     * 保存している合計バイト数の推定値
+     */
+    long totalBytes = 0;
+
+    /**
+     * DBへ未反映のアクセス日時
+     */
+    final Map<String, Long> pendingAccess = new HashMap<String, Long>();
+
+    SQLiteStatement accessReplaceStatement = null;
+
+    SQLiteStatement accessUpdateStatement = null;
+
+    SQLiteStatement accessDeleteStatement = null;
+
+    /**
+     * 削除処理を行うスレッド
+     */
+    ExecutorService evictionExecutor;
+
+    /**
+     * 削除処理が予約済みならtrue
+     */
+    final AtomicBoolean evictionScheduled = new AtomicBoolean(false);
+
+    /**
+     * 削除処理の統計
+     */
+    final EvictionStatistics statistics = new EvictionStatistics();
+
+    /**
+     * デコード済みの画像。初期状態ではヒープ上限の1/16まで保持する。
+     */
+    final DecodedImageCache memoryCache = new DecodedImageCache(Runtime.getRuntime().maxMemory() / 16);
+
+    /**
+     * 非同期読み込みの優先度：高
+     */
+    public static final int PRIORITY_HIGH = 10;
+
+    /**
+     * 非同期読み込みの優先度：通常
+     */
+    public static final int PRIORITY_NORMAL = 0;
+
+    /**
+     * 非同期読み込みの優先度：先読み
+     */
+    public static final int PRIORITY_PREFETCH = -10;
+
+    /**
+     * DB・loaderから読み込むスレッド数
+     */
+    static final int IO_THREADS = 4;
+
+    /**
+     * 非同期読み込み。初回の利用時に生成する。
+     */
+    ImageLoadPipeline pipeline = null;
+
     public ImageCacheDatabase(File dbFile, Context context, String tableName, int dbVersion) {
         this.file = dbFile;
         this.context = context.getApplicationContext();
         store = new BlobKeyValueStore(dbFile, context, tableName, DBType.ReadWrite, dbVersion);
+
+        accessTableName = tableName + "_access";
+        createAccessTable();
+
+        evictionExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "ImageCacheEviction");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            }
+        });
+
+        // 管理テーブルに登録されていない画像を登録し、合計サイズを求める
+        evictionExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    registerUntracked();
+                } catch (Exception e) {
+                    LogUtil.log(e);
+                }
+            }
+        });
+    }
+
+    void createAccessTable() {
+        final SQLiteDatabase db = store.db;
+        db.execSQL("create table if not exists " + accessTableName + " (" + BlobKeyValueStore.DB_KEY
+                + " text primary key, " + DB_ACCESS + " integer, " + DB_SIZE + " integer )");
+        db.execSQL("create index if not exists " + accessTableName + "_index on " + accessTableName + " ("
+                + DB_ACCESS + ")");
+    }
+
+    /**
+     * 管理テーブルに存在しない画像を登録する。
+     */
+    void registerUntracked() {
+        final String table = store.tableName;
+        final String chunkTable = store.chunkTableName;
+        final String key = BlobKeyValueStore.DB_KEY;
+        final String value = BlobKeyValueStore.DB_VALUE;
+        synchronized (store) {
+            store.db.execSQL("insert or ignore into " + accessTableName + " (" + key + ", " + DB_ACCESS + ", "
+                    + DB_SIZE + ") select " + key + ", " + BlobKeyValueStore.DB_DATE + ", ifnull(length(" + value
+                    + "), (select sum(length(" + chunkTable + "." + value + ")) from " + chunkTable + " where "
+                    + chunkTable + "." + key + "=" + table + "." + key + ")) from " + table + " where " + key
+                    + " not in (select " + key + " from " + accessTableName + ")");
+            totalBytes = queryTotalBytes();
+        }
     }
 
     /**
+     * 画像を取得する。<BR>
+     * デコード済みの画像、DB、loaderの順に探し、見つかった画像はデコード済みの画像としてキャッシュする。<BR>
+     * 戻り値はキャッシュと画像を共有しているため、描画内容を書き換えないこと。不要になったらdispose()する。
      *
-     * @param key
-     * @param loader
-     * @return
+     * @return 読み込みに失敗した場合はnull
      */
     public BitmapImage get(String key, Loader loader) {
         try {
-            //            getGarbageCollector().gc();
-            BlobKeyValueStore.Data data = store.get(key);
-            if (data == null) {
-                byte[] blob = loader.load(this, key);
-                BitmapImage bitmapImage = new BitmapImage().loadFromStream(new ByteArrayInputStream(blob));
-                //                LogUtil.log("blob insert :: " + (blob.length / 1024) + " kb");
-                store.insertOrUpdate(key, blob);
+            final DecodedImageCache.Entry cached = memoryCache.acquire(key);
+            if (cached != null) {
+                if (!isExpired(cached.date) && loader.isExist(this, cached.image, cached.date)) {
+                    touch(key);
+                    return cached.image;
+                }
 
-                return bitmapImage;
+                // 画像を破棄して再度読み込む。
+                cached.image.dispose();
+                remove(key);
             } else {
-                //                LogUtil.log("blob cache :: " + (data.getValue().length / 1024) + " kb");
-                BitmapImage image = new BitmapImage().loadFromStream(new ByteArrayInputStream(data.getValue()));
-
-                if (loader.isExist(this, image, data.date)) {
-                    // 利用を許可されたので、画像化して返す。
-                    return image;
-                } else {
-
-                    // 画像をDBから削除して再度読み込みを試す。
-                    image.dispose();
-                    store.remove(key);
-                    return get(key, loader);
+                BlobKeyValueStore.Data data;
+                synchronized (store) {
+                    data = store.get(key);
+                }
+
+                if (data != null) {
+                    if (!isExpired(data.date)) {
+                        //                LogUtil.log("blob cache :: " + (data.getValue().length / 1024) + " kb");
+                        BitmapImage image = decode(data.getValue());
+                        if (loader.isExist(this, image, data.date)) {
+                            // 利用を許可されたので、画像化して返す。
+                            touch(key);
+                            return memoryCache.put(key, image, data.date);
+                        }
+                        image.dispose();
+                    }
+
+                    // 画像をDBから削除して再度読み込む。
+                    remove(key);
                 }
             }
 
+            final long date = System.currentTimeMillis();
+            byte[] blob = loader.load(this, key);
+            BitmapImage bitmapImage = decode(blob);
+            //                LogUtil.log("blob insert :: " + (blob.length / 1024) + " kb");
+            put(key, blob);
+            return memoryCache.put(key, bitmapImage, date);
         } catch (Exception e) {
             LogUtil.log(e);
         }
         return null;
     }
 
+    /**
+     * 画像を非同期に読み込む。
+     */
+    public Future<BitmapImage> getAsync(String key, Loader loader) {
+        return getAsync(key, loader, PRIORITY_NORMAL);
+    }
+
+    /**
+     * 画像を非同期に読み込む。<BR>
+     * 同じキーを読み込み中の場合、読み込みは1回にまとめられ、それぞれのFutureが画像を共有したコピーを受け取る。<BR>
+     * 受け取った画像は不要になったらdispose()すること。Future.cancel()で要求を取り消せる。
+     *
+     * @param priority 優先度。大きいほど先に処理される。
+     */
+    public Future<BitmapImage> getAsync(String key, Loader loader, int priority) {
+        return getPipeline().request(key, loader, priority);
+    }
+
+    /**
+     * 近いうちに利用する画像を先読みし、デコード済みの画像としてキャッシュさせる。<BR>
+     * 先読みは通常の要求よりも後に処理される。
+     */
+    public void prefetch(List<String> keys, Loader loader) {
+        final ImageLoadPipeline pipeline = getPipeline();
+        for (String key : keys) {
+            pipeline.prefetch(key, loader, PRIORITY_PREFETCH);
+        }
+    }
+
+    /**
+     * 処理待ちの非同期読み込みを全てキャンセルする。
+     */
+    public void cancelAll() {
+        synchronized (this) {
+            if (pipeline == null) {
+                return;
+            }
+        }
+        pipeline.cancelAll();
+    }
+
+    synchronized ImageLoadPipeline getPipeline() {
+        if (pipeline == null) {
+            final int cpu = Runtime.getRuntime().availableProcessors();
+            pipeline = new ImageLoadPipeline(this, IO_THREADS, Math.max(1, cpu - 1));
+        }
+        return pipeline;
+    }
+
+    /**
+     * 画像をデコードする。<BR>
+     * デコードした画像はこのオブジェクトのGCに登録される。
+     */
+    BitmapImage decode(byte[] blob) throws IOException {
+        return new BitmapImage(garbageCollector).loadFromStream(new ByteArrayInputStream(blob));
+    }
+
+    /**
+     * デコード済みの画像を保持するバイト数を設定する。
+     *
+     * @param bytes 0の場合はキャッシュを行わない
+     */
+    public void setMemoryCacheBytes(long bytes) {
+        memoryCache.setMaxBytes(bytes);
+    }
+
+    /**
+     * デコード済みの画像を全て手放す。<BR>
+     * 利用中の画像は、利用者がdispose()するまで解放されない。
+     */
+    public void clearMemoryCache() {
+        memoryCache.clear();
+    }
+
+    /**
+     * デコード済みの画像が見つかった回数
+     */
+    public long getMemoryCacheHitCount() {
+        synchronized (memoryCache) {
+            return memoryCache.hitCount;
+        }
+    }
+
+    /**
+     * デコード済みの画像が見つからなかった回数
+     */
+    public long getMemoryCacheMissCount() {
+        synchronized (memoryCache) {
+            return memoryCache.missCount;
+        }
+    }
+
+    /**
+     * デコード済みの画像を容量超過で手放した回数
+     */
+    public long getMemoryCacheEvictionCount() {
+        synchronized (memoryCache) {
+            return memoryCache.evictionCount;
+        }
+    }
+
+    /**
+     * 画像を保存する。
+     */
+    void put(String key, byte[] blob) {
+        final long now = System.currentTimeMillis();
+        synchronized (store) {
+            long oldBytes = 0;
+            store.beginTransaction();
+            try {
+                // 上書きされる画像の分は差し引く
+                oldBytes = querySize(key);
+                store.insertOrUpdate(key, blob);
+                if (accessReplaceStatement == null) {
+                    accessReplaceStatement = store.db.compileStatement("insert or replace into " + accessTableName
+                            + " (" + BlobKeyValueStore.DB_KEY + ", " + DB_ACCESS + ", " + DB_SIZE
+                            + ") values (?, ?, ?)");
+                }
+                accessReplaceStatement.bindString(1, key);
+                accessReplaceStatement.bindLong(2, now);
+                accessReplaceStatement.bindLong(3, blob.length);
+                accessReplaceStatement.executeInsert();
+            } finally {
+                store.endTransaction();
+            }
+            totalBytes += blob.length - oldBytes;
+        }
+        synchronized (pendingAccess) {
+            pendingAccess.remove(key);
+        }
+
+        if (maxBytes > 0 && totalBytes > maxBytes) {
+            requestEviction();
+        }
+    }
+
+    /**
+     * アクセス日時を記録する。
+     */
+    void touch(String key) {
+        int pending;
+        synchronized (pendingAccess) {
+            pendingAccess.put(key, System.currentTimeMillis());
+            pending = pendingAccess.size();
+        }
+        if (pending >= ACCESS_FLUSH_COUNT) {
+            requestEviction();
+        }
+    }
+
+    /**
+     * 保存期間を過ぎていればtrue
+     */
+    boolean isExpired(long date) {
+        return maxAge > 0 && (System.currentTimeMillis() - date) > maxAge;
+    }
+
     public void remove(String key) {
+        memoryCache.remove(key);
+        synchronized (store) {
+            store.beginTransaction();
+            try {
+                removeImpl(key);
+            } finally {
+                store.endTransaction();
+            }
+        }
+        synchronized (pendingAccess) {
+            pendingAccess.remove(key);
+        }
+    }
+
+    private void removeImpl(String key) {
         store.remove(key);
+        if (accessDeleteStatement == null) {
+            accessDeleteStatement = store.db.compileStatement("delete from " + accessTableName + " where "
+                    + BlobKeyValueStore.KEY_SELECTION);
+        }
+        accessDeleteStatement.bindString(1, key);
+        accessDeleteStatement.execute();
     }
 
     /**
      * テーブルの内容を消去する。
      */
     public void clear() {
-        store.dropTable();
+        memoryCache.clear();
+        synchronized (store) {
+            closeStatements();
+            store.dropTable();
+            store.db.execSQL("drop table if exists " + accessTableName);
+            createAccessTable();
+            totalBytes = 0;
+        }
+        synchronized (pendingAccess) {
+            pendingAccess.clear();
+        }
+    }
+
+    /**
+     * キャッシュの合計バイト数の上限を設定する。<BR>
+     * 上限を超えた場合、最終アクセス日時の古い画像から削除される。
+     *
+     * @param maxBytes 0以下の場合は制限しない
+     */
+    public void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+        if (maxBytes > 0 && totalBytes > maxBytes) {
+            requestEviction();
+        }
+    }
+
+    /**
+     * キャッシュの保存期間を設定する。<BR>
+     * 保存期間を過ぎた画像はget()時に再読み込みされ、削除処理時にまとめて削除される。
+     *
+     * @param maxAge 保存期間(ms)。0以下の場合は制限しない
+     */
+    public void setMaxAge(long maxAge) {
+        this.maxAge = maxAge;
+    }
+
+    /**
+     * 保存している合計バイト数の推定値を取得する。
+     */
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * バックグラウンドで削除処理を行う。<BR>
+     * 既に予約済みの場合は何もしない。
+     */
+    public void requestEviction() {
+        if (!evictionScheduled.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            evictionExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    evictionScheduled.set(false);
+                    try {
+                        evict();
+                    } catch (Exception e) {
+                        LogUtil.log(e);
+                    }
+                }
+            });
+        } catch (Exception e) {
+            // dispose済み
+            evictionScheduled.set(false);
+        }
+    }
+
+    /**
+     * 呼び出したスレッドで削除処理を行う。<BR>
+     * アクセス日時を反映した後、保存期間を過ぎた画像、容量を超えた分の画像の順で削除する。<BR>
+     * 削除は{@link #EVICTION_BATCH}件ずつのトランザクションで行い、トランザクションの間は他スレッドの読み書きを妨げない。
+     */
+    public void evict() {
+        final long start = System.currentTimeMillis();
+        flushAccess();
+
+        long expired = 0;
+        long evicted = 0;
+        final long[] evictedBytes = {
+                0
+        };
+
+        if (maxAge > 0) {
+            final String table = store.tableName;
+            final String key = BlobKeyValueStore.DB_KEY;
+            final String sql = "select " + table + "." + key + ", " + accessTableName + "." + DB_SIZE + " from "
+                    + table + " left join " + accessTableName + " on " + table + "." + key + "=" + accessTableName
+                    + "." + key + " where " + table + "." + BlobKeyValueStore.DB_DATE + "<? limit " + EVICTION_BATCH;
+            final String[] args = {
+                    String.valueOf(start - maxAge)
+            };
+            int removed;
+            while ((removed = removeBatch(sql, args, Long.MAX_VALUE, evictedBytes)) > 0) {
+                expired += removed;
+            }
+        }
+
+        if (maxBytes > 0) {
+            synchronized (store) {
+                totalBytes = queryTotalBytes();
+            }
+            final String sql = "select " + BlobKeyValueStore.DB_KEY + ", " + DB_SIZE + " from " + accessTableName
+                    + " order by " + DB_ACCESS + " limit " + EVICTION_BATCH;
+            while (totalBytes > maxBytes) {
+                final int removed = removeBatch(sql, null, totalBytes - maxBytes, evictedBytes);
+                if (removed == 0) {
+                    break;
+                }
+                evicted += removed;
+            }
+        }
+
+        synchronized (statistics) {
+            ++statistics.runCount;
+            statistics.expiredCount += expired;
+            statistics.evictedCount += evicted;
+            statistics.evictedBytes += evictedBytes[0];
+            statistics.lastRunTime = start;
+            statistics.lastRunDuration = System.currentTimeMillis() - start;
+        }
+    }
+
+    /**
+     * sqlで列挙したキー・サイズの画像を1トランザクションで削除する。<BR>
+     * 削除したバイト数がneedBytesに達した時点で、残りの画像は削除しない。
+     *
+     * @param needBytes 削除が必要なバイト数
+     * @param removedBytes 削除したバイト数を加算する
+     * @return 削除した件数
+     */
+    private int removeBatch(String sql, String[] args, long needBytes, long[] removedBytes) {
+        synchronized (store) {
+            final List<String> keys = new ArrayList<String>(EVICTION_BATCH);
+            long bytes = 0;
+            Cursor cursor = store.db.rawQuery(sql, args);
+            try {
+                while (bytes < needBytes && cursor.moveToNext()) {
+                    keys.add(cursor.getString(0));
+                    bytes += cursor.getLong(1);
+                }
+            } finally {
+                cursor.close();
+            }
+
+            if (keys.isEmpty()) {
+                return 0;
+            }
+
+            store.beginTransaction();
+            try {
+                for (String key : keys) {
+                    removeImpl(key);
+                }
+            } finally {
+                store.endTransaction();
+            }
+            totalBytes -= bytes;
+            removedBytes[0] += bytes;
+            return keys.size();
+        }
+    }
+
+    /**
+     * 未反映のアクセス日時を1トランザクションでDBへ反映する。
+     */
+    void flushAccess() {
+        Map<String, Long> access;
+        synchronized (pendingAccess) {
+            if (pendingAccess.isEmpty()) {
+                return;
+            }
+            access = new HashMap<String, Long>(pendingAccess);
+            pendingAccess.clear();
+        }
+
+        synchronized (store) {
+            if (accessUpdateStatement == null) {
+                accessUpdateStatement = store.db.compileStatement("update " + accessTableName + " set " + DB_ACCESS
+                        + "=? where " + BlobKeyValueStore.KEY_SELECTION);
+            }
+            store.beginTransaction();
+            try {
+                for (Map.Entry<String, Long> it : access.entrySet()) {
+                    accessUpdateStatement.bindLong(1, it.getValue());
+                    accessUpdateStatement.bindString(2, it.getKey());
+                    accessUpdateStatement.execute();
+                }
+            } finally {
+                store.endTransaction();
+            }
+        }
+    }
+
+    /**
+     * 記録されている画像のバイト数を取得する。
+     *
+     * @return 記録されていない場合は0
+     */
+    long querySize(String key) {
+        Cursor cursor = store.db.rawQuery("select " + DB_SIZE + " from " + accessTableName + " where "
+                + BlobKeyValueStore.KEY_SELECTION, new String[]{
+                key
+        });
+        try {
+            return cursor.moveToFirst() ? cursor.getLong(0) : 0;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    long queryTotalBytes() {
+        Cursor cursor = store.db.rawQuery("select sum(" + DB_SIZE + ") from " + accessTableName, null);
+        try {
+            return cursor.moveToFirst() ? cursor.getLong(0) : 0;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * 削除処理の統計を取得する。
+     */
+    public EvictionStatistics getEvictionStatistics() {
+        synchronized (statistics) {
+            return new EvictionStatistics(statistics);
+        }
     }
 
     public interface Loader {
@@ -111,12 +698,124 @@ public class ImageCacheDatabase extends DisposableResource {
         garbageCollector.gc();
     }
 
+    void closeStatements() {
+        if (accessReplaceStatement != null) {
+            accessReplaceStatement.close();
+            accessReplaceStatement = null;
+        }
+        if (accessUpdateStatement != null) {
+            accessUpdateStatement.close();
+            accessUpdateStatement = null;
+        }
+        if (accessDeleteStatement != null) {
+            accessDeleteStatement.close();
+            accessDeleteStatement = null;
+        }
+    }
+
     @Override
     public void dispose() {
+        synchronized (this) {
+            if (pipeline != null) {
+                pipeline.dispose();
+                pipeline = null;
+            }
+        }
+        memoryCache.clear();
         garbageCollector.gc();
+        if (evictionExecutor != null) {
+            evictionExecutor.shutdown();
+            try {
+                evictionExecutor.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                LogUtil.log(e);
+            }
+            evictionExecutor = null;
+        }
         if (store != null) {
-            store.dispose();
+            try {
+                flushAccess();
+            } catch (Exception e) {
+                LogUtil.log(e);
+            }
+            synchronized (store) {
+                closeStatements();
+                store.dispose();
+            }
             store = null;
         }
     }
+
+    /**
+     * 削除処理の統計
+     *
+     * @author TAKESHI YAMASHITA
+     */
+    public static class EvictionStatistics {
+        int runCount;
+
+        long expiredCount;
+
+        long evictedCount;
+
+        long evictedBytes;
+
+        long lastRunTime;
+
+        long lastRunDuration;
+
+        EvictionStatistics() {
+        }
+
+        EvictionStatistics(EvictionStatistics origin) {
+            runCount = origin.runCount;
+            expiredCount = origin.expiredCount;
+            evictedCount = origin.evictedCount;
+            evictedBytes = origin.evictedBytes;
+            lastRunTime = origin.lastRunTime;
+            lastRunDuration = origin.lastRunDuration;
+        }
+
+        /**
+         * 削除処理を行った回数
+         */
+        public int getRunCount() {
+            return runCount;
+        }
+
+        /**
+         * 保存期間を過ぎたため削除した件数
+         */
+        public long getExpiredCount() {
+            return expiredCount;
+        }
+
+        /**
+         * 容量超過のため削除した件数
+         */
+        public long getEvictedCount() {
+            return evictedCount;
+        }
+
+        /**
+         * 削除した合計バイト数
+         */
+        public long getEvictedBytes() {
+            return evictedBytes;
+        }
+
+        /**
+         * 最後に削除処理を開始した時刻
+         */
+        public long getLastRunTime() {
+            return lastRunTime;
+        }
+
+        /**
+         * 最後の削除処理にかかった時間(ms)
+         */
+        public long getLastRunDuration() {
+            return lastRunDuration;
+        }
+    }
 }
@@ -0,0 +1,489 @@
+package com.eaglesakura.lib.android.db;
+
+import com.eaglesakura.lib.android.game.graphics.canvas.BitmapImage;
+import com.eaglesakura.lib.android.game.util.LogUtil;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link ImageCacheDatabase}の画像を非同期に読み込む。<BR>
+ * DB・loaderからの読み込みはI/Oスレッド、デコードはCPUスレッドで行い、それぞれ優先度の高い要求から処理する。<BR>
+ * 読み込み中のキーに対する要求は1つにまとめられ、読み込みは1回しか行われない。
+ *
+ * @author TAKESHI YAMASHITA
+ */
+class ImageLoadPipeline {
+    final ImageCacheDatabase database;
+
+    /**
+     * DB・loaderからの読み込みを行う
+     */
+    final ThreadPoolExecutor ioExecutor;
+
+    /**
+     * デコードを行う
+     */
+    final ThreadPoolExecutor decodeExecutor;
+
+    /**
+     * 処理中の要求
+     */
+    final Map<String, Request> requests = new HashMap<String, Request>();
+
+    /**
+     * 要求の発行順。同じ優先度の要求は発行順に処理する。
+     */
+    final AtomicLong sequence = new AtomicLong();
+
+    ImageLoadPipeline(ImageCacheDatabase database, int ioThreads, int decodeThreads) {
+        this.database = database;
+        ioExecutor = newExecutor(ioThreads, "ImageCacheIO");
+        decodeExecutor = newExecutor(decodeThreads, "ImageCacheDecode");
+    }
+
+    private static ThreadPoolExecutor newExecutor(int threads, final String name) {
+        final AtomicInteger count = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new PriorityBlockingQueue<Runnable>(), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, name + "-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * 画像の読み込みを要求する。
+     */
+    ImageFuture request(String key, ImageCacheDatabase.Loader loader, int priority) {
+        final ImageFuture result;
+        synchronized (requests) {
+            Request request = requests.get(key);
+            if (request == null) {
+                request = new Request(key, loader, priority);
+                requests.put(key, request);
+                result = new ImageFuture(request);
+                request.futures.add(result);
+                request.submit(request.new LoadTask());
+                return result;
+            }
+
+            // 読み込み中の要求に相乗りする
+            result = new ImageFuture(request);
+            request.futures.add(result);
+            if (priority > request.priority) {
+                raisePriority(request, priority);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 結果を受け取らずに画像を読み込み、デコード済みの画像をキャッシュさせる。<BR>
+     * 読み込み中のキーに対しては何もしない。
+     */
+    void prefetch(String key, ImageCacheDatabase.Loader loader, int priority) {
+        synchronized (requests) {
+            if (!requests.containsKey(key)) {
+                Request request = new Request(key, loader, priority);
+                requests.put(key, request);
+                request.submit(request.new LoadTask());
+            }
+        }
+    }
+
+    /**
+     * 待機中の要求の優先度を上げる。
+     */
+    private void raisePriority(Request request, int priority) {
+        request.priority = priority;
+        // キュー内のタスクの優先度は変更せず、取り出せた場合のみ新しい優先度で入れ直す
+        final Request.Task task = request.queuedTask;
+        if (task != null && task.getExecutor().remove(task)) {
+            request.submit(task.renew());
+        }
+    }
+
+    /**
+     * futureをキャンセルする。<BR>
+     * 要求を待っているfutureが無くなった場合、要求そのものを取り消す。
+     */
+    boolean cancel(ImageFuture future) {
+        final Request request = future.request;
+        synchronized (requests) {
+            if (future.isDone() || !request.futures.remove(future)) {
+                return false;
+            }
+            future.finish(null, null, true);
+
+            if (request.futures.isEmpty()) {
+                request.cancelled = true;
+                requests.remove(request.key);
+                request.unqueue();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 全ての要求をキャンセルする。
+     */
+    void cancelAll() {
+        synchronized (requests) {
+            for (Request request : requests.values()) {
+                for (ImageFuture future : request.futures) {
+                    future.finish(null, null, true);
+                }
+                request.futures.clear();
+                request.cancelled = true;
+                request.unqueue();
+            }
+            requests.clear();
+        }
+    }
+
+    /**
+     * スレッドを停止する。待機中の要求はキャンセルされる。
+     */
+    void dispose() {
+        cancelAll();
+        ioExecutor.shutdownNow();
+        decodeExecutor.shutdownNow();
+        try {
+            ioExecutor.awaitTermination(10, TimeUnit.SECONDS);
+            decodeExecutor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            LogUtil.log(e);
+        }
+    }
+
+    /**
+     * I/Oスレッドで実行する。<BR>
+     * デコード済みの画像があれば即座に完了し、無ければDBもしくはloaderから画像を読み込んでデコードへ回す。
+     */
+    void load(Request request) {
+        if (request.cancelled) {
+            return;
+        }
+        try {
+            if (!request.reload) {
+                final DecodedImageCache.Entry cached = database.memoryCache.acquire(request.key);
+                if (cached != null) {
+                    if (!database.isExpired(cached.date)
+                            && request.loader.isExist(database, cached.image, cached.date)) {
+                        database.touch(request.key);
+                        complete(request, cached.image, null);
+                        return;
+                    }
+                    cached.image.dispose();
+                    database.remove(request.key);
+                }
+
+                BlobKeyValueStore.Data data;
+                synchronized (database.store) {
+                    data = database.store.get(request.key);
+                }
+                if (data != null) {
+                    if (!database.isExpired(data.date)) {
+                        request.blob = data.getValue();
+                        request.date = data.date;
+                        request.fromDatabase = true;
+                        request.submit(request.new DecodeTask());
+                        return;
+                    }
+                    database.remove(request.key);
+                }
+            }
+
+            if (request.cancelled) {
+                return;
+            }
+            request.date = System.currentTimeMillis();
+            request.blob = request.loader.load(database, request.key);
+            request.fromDatabase = false;
+            database.put(request.key, request.blob);
+            request.submit(request.new DecodeTask());
+        } catch (Exception e) {
+            complete(request, null, e);
+        }
+    }
+
+    /**
+     * CPUスレッドで実行する。<BR>
+     * 画像をデコードし、待機している全てのfutureへ渡す。
+     */
+    void decode(Request request) {
+        if (request.cancelled) {
+            return;
+        }
+        try {
+            BitmapImage image = database.decode(request.blob);
+            if (request.fromDatabase) {
+                if (!request.loader.isExist(database, image, request.date)) {
+                    // 利用できない画像なので、loaderから読み直す
+                    image.dispose();
+                    database.remove(request.key);
+                    request.reload = true;
+                    request.blob = null;
+                    request.submit(request.new LoadTask());
+                    return;
+                }
+                database.touch(request.key);
+            }
+            request.blob = null;
+            complete(request, database.memoryCache.put(request.key, image, request.date), null);
+        } catch (Exception e) {
+            complete(request, null, e);
+        }
+    }
+
+    /**
+     * 要求を完了させる。<BR>
+     * 各futureには画像を共有したコピーを渡し、imageは破棄する。
+     */
+    void complete(Request request, BitmapImage image, Exception error) {
+        List<ImageFuture> futures;
+        synchronized (requests) {
+            if (requests.get(request.key) == request) {
+                requests.remove(request.key);
+            }
+            futures = new ArrayList<ImageFuture>(request.futures);
+            request.futures.clear();
+        }
+
+        for (ImageFuture future : futures) {
+            future.finish(image != null ? new BitmapImage(image) : null, error, false);
+        }
+        if (image != null) {
+            image.dispose();
+        }
+    }
+
+    /**
+     * 1キー分の読み込み要求
+     */
+    class Request {
+        final String key;
+
+        final ImageCacheDatabase.Loader loader;
+
+        final long order = sequence.incrementAndGet();
+
+        /**
+         * 優先度。大きいほど先に処理される。
+         */
+        volatile int priority;
+
+        /**
+         * 結果を待っているfuture。先読みのみの要求では空となる。
+         */
+        final List<ImageFuture> futures = new ArrayList<ImageFuture>(1);
+
+        volatile boolean cancelled = false;
+
+        /**
+         * キャッシュを使わずloaderから読み込む場合はtrue
+         */
+        boolean reload = false;
+
+        /**
+         * デコード待ちの画像
+         */
+        byte[] blob;
+
+        long date;
+
+        boolean fromDatabase;
+
+        /**
+         * 最後にキューへ投入したタスク
+         */
+        volatile Task queuedTask;
+
+        Request(String key, ImageCacheDatabase.Loader loader, int priority) {
+            this.key = key;
+            this.loader = loader;
+            this.priority = priority;
+        }
+
+        /**
+         * タスクをキューへ投入する。
+         */
+        void submit(Task task) {
+            queuedTask = task;
+            task.getExecutor().execute(task);
+        }
+
+        /**
+         * キューで待機中のタスクを取り除く。
+         */
+        void unqueue() {
+            final Task task = queuedTask;
+            if (task != null) {
+                task.getExecutor().remove(task);
+            }
+        }
+
+        /**
+         * 優先度順に並べるためのタスク。<BR>
+         * キュー内での並び順が崩れないよう、優先度は生成時の値を保持する。
+         */
+        abstract class Task implements Runnable, Comparable<Task> {
+            final int taskPriority = priority;
+
+            Request getRequest() {
+                return Request.this;
+            }
+
+            /**
+             * 実行するスレッドプール
+             */
+            abstract ThreadPoolExecutor getExecutor();
+
+            /**
+             * 現在の優先度で同じ処理を行うタスクを生成する。
+             */
+            abstract Task renew();
+
+            @Override
+            public int compareTo(Task another) {
+                if (taskPriority != another.taskPriority) {
+                    return taskPriority > another.taskPriority ? -1 : 1;
+                }
+                final long otherOrder = another.getRequest().order;
+                return order < otherOrder ? -1 : (order == otherOrder ? 0 : 1);
+            }
+        }
+
+        /**
+         * DB・loaderから読み込む
+         */
+        class LoadTask extends Task {
+            @Override
+            public void run() {
+                load(Request.this);
+            }
+
+            @Override
+            ThreadPoolExecutor getExecutor() {
+                return ioExecutor;
+            }
+
+            @Override
+            Task renew() {
+                return new LoadTask();
+            }
+        }
+
+        /**
+         * 画像をデコードする
+         */
+        class DecodeTask extends Task {
+            @Override
+            public void run() {
+                decode(Request.this);
+            }
+
+            @Override
+            ThreadPoolExecutor getExecutor() {
+                return decodeExecutor;
+            }
+
+            @Override
+            Task renew() {
+                return new DecodeTask();
+            }
+        }
+    }
+
+    /**
+     * 読み込み結果を受け取る。<BR>
+     * 受け取った画像は利用者が所有するため、不要になったらdispose()すること。
+     */
+    class ImageFuture implements Future<BitmapImage> {
+        final Request request;
+
+        final CountDownLatch latch = new CountDownLatch(1);
+
+        BitmapImage image;
+
+        Exception error;
+
+        boolean cancelled = false;
+
+        ImageFuture(Request request) {
+            this.request = request;
+        }
+
+        void finish(BitmapImage image, Exception error, boolean cancelled) {
+            synchronized (this) {
+                if (latch.getCount() == 0) {
+                    if (image != null) {
+                        image.dispose();
+                    }
+                    return;
+                }
+                this.image = image;
+                this.error = error;
+                this.cancelled = cancelled;
+            }
+            latch.countDown();
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            return ImageLoadPipeline.this.cancel(this);
+        }
+
+        @Override
+        public synchronized boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public boolean isDone() {
+            return latch.getCount() == 0;
+        }
+
+        @Override
+        public BitmapImage get() throws InterruptedException, ExecutionException {
+            latch.await();
+            return result();
+        }
+
+        @Override
+        public BitmapImage get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException,
+                TimeoutException {
+            if (!latch.await(timeout, unit)) {
+                throw new TimeoutException();
+            }
+            return result();
+        }
+
+        private synchronized BitmapImage result() throws ExecutionException {
+            if (cancelled) {
+                throw new CancellationException();
+            }
+            if (error != null) {
+                throw new ExecutionException(error);
+            }
+            return image;
+        }
+    }
+}
@@ -0,0 +1,384 @@
+package com.eaglesakura.lib.android.db;
+
+import com.eaglesakura.lib.android.game.resource.DisposableResource;
+import com.eaglesakura.lib.android.game.util.LogUtil;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * KVSの前段に置くオンメモリのLRUキャッシュ。<BR>
+ * キャッシュの上限は保持している値の合計バイト数で指定し、上限を超えた場合は最も古く参照された値から破棄する。<BR>
+ * <BR>
+ * 書き込みは{@link WriteMode}によって、即座にKVSへ反映するか、flush()・破棄時まで遅延するかを選択できる。<BR>
+ * キャッシュはKVSを所有しないため、dispose()はKVSを解放しない。KVSはキャッシュをdispose()した後に解放すること。<BR>
+ * 全てのメソッドはスレッドセーフとなる。
+ *
+ * @author TAKESHI YAMASHITA
+ */
+public abstract class KeyValueCache<V> extends DisposableResource {
+
+    /**
+     * 書き込みの反映方法
+     */
+    public enum WriteMode {
+        /**
+         * put()時に即座にKVSへ書き込む
+         */
+        WriteThrough,
+
+        /**
+         * put()時はキャッシュのみを更新し、flush()・キャッシュからの破棄時にKVSへ書き込む
+         */
+        WriteBack,
+    }
+
+    /**
+     * 1エントリあたりの管理コストとして加算するバイト数
+     */
+    static final int ENTRY_OVERHEAD = 32;
+
+    /**
+     * 参照順に並んだエントリ。先頭が最も古い。
+     */
+    final LinkedHashMap<String, Entry<V>> entries = new LinkedHashMap<String, Entry<V>>(64, 0.75f, true);
+
+    /**
+     * 保持できる最大バイト数
+     */
+    long maxBytes;
+
+    /**
+     * 現在保持しているバイト数
+     */
+    long currentBytes = 0;
+
+    /**
+     * 書き込みモード
+     */
+    final WriteMode writeMode;
+
+    /**
+     * KVSへ未反映のエントリ数
+     */
+    int dirtyCount = 0;
+
+    long hitCount = 0;
+
+    long missCount = 0;
+
+    long evictionCount = 0;
+
+    /**
+     * @param maxBytes  キャッシュする値の合計バイト数
+     * @param writeMode 書き込みの反映方法
+     */
+    protected KeyValueCache(long maxBytes, WriteMode writeMode) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("maxBytes :: " + maxBytes);
+        }
+        this.maxBytes = maxBytes;
+        this.writeMode = writeMode;
+    }
+
+    /**
+     * KVSから値を読み込む。
+     *
+     * @return 値が存在しない場合はnull
+     */
+    protected abstract V loadValue(String key);
+
+    /**
+     * KVSへ値を書き込む。
+     */
+    protected abstract void storeValue(String key, V value);
+
+    /**
+     * KVSから値を削除する。
+     */
+    protected abstract void removeValue(String key);
+
+    /**
+     * KVSへまとめて書き込む前に呼ばれる。
+     */
+    protected abstract void beginTransaction();
+
+    /**
+     * KVSへまとめて書き込んだ後に呼ばれる。
+     */
+    protected abstract void endTransaction();
+
+    /**
+     * 値のおおよそのメモリ使用量を取得する。
+     */
+    protected abstract int sizeOf(V value);
+
+    /**
+     * キャッシュへ保持する値、利用者へ返す値を複製する。<BR>
+     * 配列等の変更可能な値を扱う場合はオーバーライドし、利用者の変更がキャッシュへ及ばないようにする。
+     */
+    protected V copyValue(V value) {
+        return value;
+    }
+
+    /**
+     * 値を取得する。<BR>
+     * キャッシュに無い場合はKVSから読み込み、キャッシュへ登録する。
+     *
+     * @return 値が存在しない場合はnull
+     */
+    public synchronized V get(String key) {
+        Entry<V> entry = entries.get(key);
+        if (entry != null) {
+            ++hitCount;
+            return copyValue(entry.value);
+        }
+
+        ++missCount;
+        V value = loadValue(key);
+        if (value != null) {
+            putEntry(key, value, false);
+            value = copyValue(value);
+        }
+        return value;
+    }
+
+    /**
+     * 値を取得する。
+     *
+     * @return 値が存在しない場合は_def
+     */
+    public V get(String key, V _def) {
+        V result = get(key);
+        return result != null ? result : _def;
+    }
+
+    /**
+     * 値を書き込む。<BR>
+     * 値は複製して保持されるため、呼び出し後にvalueを変更してもキャッシュには影響しない。
+     */
+    public synchronized void put(String key, V value) {
+        if (value == null) {
+            throw new NullPointerException("value is null :: " + key);
+        }
+        value = copyValue(value);
+
+        if (writeMode == WriteMode.WriteThrough) {
+            storeValue(key, value);
+            putEntry(key, value, false);
+        } else {
+            putEntry(key, value, true);
+        }
+    }
+
+    /**
+     * 値を削除する。<BR>
+     * キャッシュ・KVSの両方から削除される。
+     */
+    public synchronized void remove(String key) {
+        removeEntry(key);
+        removeValue(key);
+    }
+
+    /**
+     * 未反映の値を全てKVSへ書き込む。<BR>
+     * 書き込みは1トランザクションで行われる。
+     */
+    public synchronized void flush() {
+        if (dirtyCount == 0) {
+            return;
+        }
+
+        beginTransaction();
+        try {
+            for (Map.Entry<String, Entry<V>> it : entries.entrySet()) {
+                final Entry<V> entry = it.getValue();
+                if (entry.dirty) {
+                    storeValue(it.getKey(), entry.value);
+                    entry.dirty = false;
+                }
+            }
+            dirtyCount = 0;
+        } finally {
+            endTransaction();
+        }
+    }
+
+    /**
+     * キャッシュを空にする。<BR>
+     * 未反映の値はKVSへ書き込まれる。
+     */
+    public synchronized void clear() {
+        flush();
+        entries.clear();
+        currentBytes = 0;
+    }
+
+    /**
+     * キャッシュの最大バイト数を変更する。<BR>
+     * 現在の保持量が上回る場合は即座に破棄を行う。
+     */
+    public synchronized void setMaxBytes(long maxBytes) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("maxBytes :: " + maxBytes);
+        }
+        this.maxBytes = maxBytes;
+        trimToSize(maxBytes);
+    }
+
+    public synchronized long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * 現在保持しているバイト数を取得する。
+     */
+    public synchronized long getCurrentBytes() {
+        return currentBytes;
+    }
+
+    /**
+     * キャッシュしているエントリ数を取得する。
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * キャッシュにヒットした回数
+     */
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * キャッシュにヒットせず、KVSを参照した回数
+     */
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * 容量超過によってキャッシュから破棄した回数
+     */
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * 統計情報をリセットする。
+     */
+    public synchronized void resetStatistics() {
+        hitCount = 0;
+        missCount = 0;
+        evictionCount = 0;
+    }
+
+    public WriteMode getWriteMode() {
+        return writeMode;
+    }
+
+    /**
+     * 未反映の値を書き込み、キャッシュを破棄する。
+     */
+    @Override
+    public void dispose() {
+        try {
+            clear();
+        } catch (Exception e) {
+            LogUtil.log(e);
+        }
+    }
+
+    void putEntry(String key, V value, boolean dirty) {
+        final int size = sizeOf(value) + key.length() * 2 + ENTRY_OVERHEAD;
+        final Entry<V> old = entries.put(key, new Entry<V>(key, value, size, dirty));
+        if (old != null) {
+            currentBytes -= old.size;
+            if (old.dirty) {
+                --dirtyCount;
+            }
+        }
+        currentBytes += size;
+        if (dirty) {
+            ++dirtyCount;
+        }
+
+        if (size > maxBytes) {
+            // 上限を超える値はキャッシュしない
+            if (dirty) {
+                storeValue(key, value);
+            }
+            removeEntry(key);
+            return;
+        }
+        trimToSize(maxBytes);
+    }
+
+    void removeEntry(String key) {
+        final Entry<V> old = entries.remove(key);
+        if (old != null) {
+            currentBytes -= old.size;
+            if (old.dirty) {
+                --dirtyCount;
+            }
+        }
+    }
+
+    /**
+     * 保持量がsize以下になるまで古いエントリを破棄する。<BR>
+     * 未反映のエントリは破棄前にKVSへ書き込む。
+     */
+    void trimToSize(long size) {
+        if (currentBytes <= size) {
+            return;
+        }
+
+        boolean transaction = false;
+        try {
+            Iterator<Entry<V>> iterator = entries.values().iterator();
+            while (currentBytes > size && iterator.hasNext()) {
+                final Entry<V> entry = iterator.next();
+                if (entry.dirty) {
+                    if (!transaction) {
+                        beginTransaction();
+                        transaction = true;
+                    }
+                    storeValue(entry.key, entry.value);
+                    --dirtyCount;
+                }
+                currentBytes -= entry.size;
+                ++evictionCount;
+                iterator.remove();
+            }
+        } finally {
+            if (transaction) {
+                endTransaction();
+            }
+        }
+    }
+
+    /**
+     * キャッシュ内の1エントリ
+     */
+    static class Entry<V> {
+        final String key;
+
+        final V value;
+
+        final int size;
+
+        /**
+         * KVSへ未反映ならtrue
+         */
+        boolean dirty;
+
+        Entry(String key, V value, int size, boolean dirty) {
+            this.key = key;
+            this.value = value;
+            this.size = size;
+            this.dirty = dirty;
+        }
+    }
+}
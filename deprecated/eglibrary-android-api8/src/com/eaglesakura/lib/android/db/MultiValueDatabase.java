@@ -12,8 +12,8 @@ import android.os.Bundle;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -46,6 +46,23 @@ public class MultiValueDatabase extends DisposableResource {
 
         helper = newHelper();
         db = type.open(helper);
+        if (type != DBType.Read) {
+            createIndices();
+        }
+    }
+
+    /**
+     * ValueListに登録されたインデックスを作成する。<BR>
+     * 作成済みのインデックスは何もしない。
+     */
+    void createIndices() {
+        for (String sql : valueList.sqlCreateIndexCommands()) {
+            try {
+                db.execSQL(sql);
+            } catch (Exception e) {
+                LogUtil.log(e);
+            }
+        }
     }
 
     protected Helper newHelper() {
@@ -66,8 +83,10 @@ public class MultiValueDatabase extends DisposableResource {
     public Data getOrNull(Object key) {
         Cursor cursor = null;
         try {
-            final String selection = valueList.primary.createSelection(key, SelectionType.Equal);
-            cursor = db.query(valueList.tableName, valueList.fullColmnList(), selection, null, null, null, null);
+            final String selection = valueList.primary.createBoundSelection(SelectionType.Equal);
+            cursor = db.query(valueList.tableName, valueList.fullColmnList(), selection, new String[]{
+                    Column.toArgument(key)
+            }, null, null, null);
             if (cursor.moveToFirst()) {
                 Data data = new Data(cursor, valueList);
                 return data;
@@ -173,13 +192,20 @@ public class MultiValueDatabase extends DisposableResource {
      * selectionを直接指定して取得する
      */
     public List<Data> list(String rawSelection, String[] colmns) {
+        return list(rawSelection, null, colmns, null, null);
+    }
+
+    /**
+     * selectionと引数を指定して取得する
+     */
+    List<Data> list(String selection, String[] selectionArgs, String[] colmns, String orderBy, String limit) {
         if (colmns == null) {
             colmns = valueList.fullColmnList();
         }
-        List<Data> result = new LinkedList<MultiValueDatabase.Data>();
+        List<Data> result = new ArrayList<MultiValueDatabase.Data>();
         Cursor cursor = null;
         try {
-            cursor = db.query(valueList.tableName, colmns, rawSelection, null, null, null, null);
+            cursor = db.query(valueList.tableName, colmns, selection, selectionArgs, null, null, orderBy, limit);
             if (cursor.moveToFirst()) {
                 do {
                     MultiValueDatabase.Data data = new Data(cursor, valueList);
@@ -201,9 +227,23 @@ public class MultiValueDatabase extends DisposableResource {
      * colmnsに指定したカラムのみを取得する
      */
     public List<Data> list(String keyName, Object value, SelectionType selectType, String[] colmns) {
-        final String selection = valueList.getColmun(keyName).createSelection(value, selectType);
+        return query().where(keyName, selectType, value).columns(colmns).list();
+    }
+
+    /**
+     * 条件を組み立てて検索する。
+     */
+    public Query query() {
+        return new Query();
+    }
 
-        return list(selection, colmns);
+    /**
+     * 全ての行を順番にcallbackへ渡す。
+     *
+     * @return callbackへ渡した行数
+     */
+    public int forEach(RowCallback callback) {
+        return query().forEach(callback);
     }
 
     /**
@@ -269,8 +309,10 @@ public class MultiValueDatabase extends DisposableResource {
             } catch (Exception e) {
                 try {
                     Column c = valueList.primary;
-                    db.update(valueList.tableName, contentValues,
-                            c.createSelection(values.get(c.name), SelectionType.Equal), null);
+                    db.update(valueList.tableName, contentValues, c.createBoundSelection(SelectionType.Equal),
+                            new String[]{
+                                    Column.toArgument(values.get(c.name))
+                            });
                 } catch (Exception ee) {
                     LogUtil.log(ee);
                     return false;
@@ -309,8 +351,10 @@ public class MultiValueDatabase extends DisposableResource {
      */
     public void remove(String key) {
         try {
-            String selection = valueList.primary.createSelection(key, SelectionType.Equal);
-            db.delete(valueList.tableName, selection, null);
+            String selection = valueList.primary.createBoundSelection(SelectionType.Equal);
+            db.delete(valueList.tableName, selection, new String[]{
+                    key
+            });
         } catch (Exception e) {
             LogUtil.log(e);
         }
@@ -326,6 +370,338 @@ public class MultiValueDatabase extends DisposableResource {
         } catch (Exception e) {
             LogUtil.log(e);
         }
+        createIndices();
+    }
+
+    /**
+     * 検索条件を組み立てる。<BR>
+     * 値はSQL文へ埋め込まずに引数として渡すため、同じ形の検索はSQLのコンパイル結果が再利用される。
+     *
+     * @author TAKESHI YAMASHITA
+     */
+    public class Query {
+        StringBuilder selection = null;
+
+        List<String> args = new ArrayList<String>();
+
+        StringBuilder orderBy = null;
+
+        String[] columns = null;
+
+        int limit = -1;
+
+        int offset = 0;
+
+        Query() {
+        }
+
+        /**
+         * column selectType valueの条件を追加する。<BR>
+         * 複数の条件はandで結合される。
+         */
+        public Query where(String column, SelectionType selectType, Object value) {
+            Column c = valueList.getColmun(column);
+            if (c == null) {
+                throw new IllegalArgumentException("column not found :: " + column);
+            }
+            return where(c.createBoundSelection(selectType), Column.toArgument(value));
+        }
+
+        /**
+         * 任意の条件を追加する。<BR>
+         * 条件内の?はargsで置き換えられる。複数の条件はandで結合される。
+         */
+        public Query where(String rawSelection, String... args) {
+            if (selection == null) {
+                selection = new StringBuilder();
+            } else {
+                selection.append(" and ");
+            }
+            selection.append('(').append(rawSelection).append(')');
+            for (String arg : args) {
+                this.args.add(arg);
+            }
+            return this;
+        }
+
+        /**
+         * 並び順を追加する。
+         *
+         * @param ascending 昇順の場合はtrue
+         */
+        public Query orderBy(String column, boolean ascending) {
+            if (orderBy == null) {
+                orderBy = new StringBuilder();
+            } else {
+                orderBy.append(", ");
+            }
+            orderBy.append(column).append(ascending ? " asc" : " desc");
+            return this;
+        }
+
+        /**
+         * 取得する最大件数を指定する。
+         */
+        public Query limit(int limit) {
+            this.limit = limit;
+            return this;
+        }
+
+        /**
+         * 先頭から読み飛ばす件数を指定する。
+         */
+        public Query offset(int offset) {
+            this.offset = offset;
+            return this;
+        }
+
+        /**
+         * 取得するカラムを指定する。nullの場合は全カラムを取得する。
+         */
+        public Query columns(String... columns) {
+            this.columns = columns;
+            return this;
+        }
+
+        String selection() {
+            return selection != null ? selection.toString() : null;
+        }
+
+        String[] selectionArgs() {
+            return args.isEmpty() ? null : args.toArray(new String[args.size()]);
+        }
+
+        String orderBy() {
+            return orderBy != null ? orderBy.toString() : null;
+        }
+
+        /**
+         * SQLiteQueryBuilderは"件数"か"開始位置,件数"の形式しか受け付けないため、その形式で作成する。<BR>
+         * 件数の指定が無い場合は上限を指定しない。
+         */
+        String limit() {
+            if (offset <= 0) {
+                return limit < 0 ? null : String.valueOf(limit);
+            }
+            return offset + "," + (limit < 0 ? Long.MAX_VALUE : limit);
+        }
+
+        /**
+         * 条件に一致する値を列挙する。
+         */
+        public List<Data> list() {
+            return MultiValueDatabase.this.list(selection(), selectionArgs(), columns, orderBy(), limit());
+        }
+
+        /**
+         * 条件に一致する行を順番にcallbackへ渡す。<BR>
+         * 行はコピーせず、同一の{@link RowCursor}を移動させながら渡す。
+         *
+         * @return callbackへ渡した行数
+         */
+        public int forEach(RowCallback callback) {
+            RowCursor cursor = open();
+            try {
+                int result = 0;
+                while (cursor.moveToNext()) {
+                    ++result;
+                    if (!callback.onRow(cursor)) {
+                        break;
+                    }
+                }
+                return result;
+            } finally {
+                cursor.dispose();
+            }
+        }
+
+        /**
+         * 条件に一致する行を走査するカーソルを開く。<BR>
+         * 利用後は必ずdispose()すること。
+         */
+        public RowCursor open() {
+            final String[] projection = columns != null ? columns : valueList.fullColmnList();
+            return new RowCursor(db.query(valueList.tableName, projection, selection(), selectionArgs(), null, null,
+                    orderBy(), limit()), valueList);
+        }
+
+        /**
+         * 条件に一致する最初の値を取得する。
+         *
+         * @return 一致する値が無ければnull
+         */
+        public Data first() {
+            final int oldLimit = limit;
+            limit = 1;
+            try {
+                List<Data> result = list();
+                return result.isEmpty() ? null : result.get(0);
+            } finally {
+                limit = oldLimit;
+            }
+        }
+
+        /**
+         * 条件に一致する件数を取得する。<BR>
+         * limit・offsetは無視される。
+         */
+        public int count() {
+            Cursor cursor = null;
+            try {
+                String sql = "select count(*) from " + valueList.tableName;
+                if (selection != null) {
+                    sql += " where " + selection;
+                }
+                cursor = db.rawQuery(sql, selectionArgs());
+                return cursor.moveToFirst() ? cursor.getInt(0) : 0;
+            } catch (Exception e) {
+                LogUtil.log(e);
+                return 0;
+            } finally {
+                if (cursor != null) {
+                    cursor.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * 1行ずつ受け取る
+     */
+    public interface RowCallback {
+        /**
+         * 行を受け取る。<BR>
+         * rowはメソッドを抜けた後に次の行へ移動するため、保持する場合はtoData()でコピーすること。
+         *
+         * @return 走査を続ける場合はtrue
+         */
+        boolean onRow(RowCursor row);
+    }
+
+    /**
+     * Cursorから直接値を読み込む行ビュー。<BR>
+     * カラム位置は開いた時点で一度だけ解決し、値はBundleを介さずに読み込む。
+     *
+     * @author TAKESHI YAMASHITA
+     */
+    public static class RowCursor extends DisposableResource {
+        Cursor cursor;
+
+        final ValueList valueList;
+
+        /**
+         * カラム名とカーソル上の位置
+         */
+        final Map<String, Integer> indices;
+
+        RowCursor(Cursor cursor, ValueList valueList) {
+            this.cursor = cursor;
+            this.valueList = valueList;
+
+            final int num = cursor.getColumnCount();
+            indices = new HashMap<String, Integer>(num * 2);
+            for (int i = 0; i < num; ++i) {
+                indices.put(cursor.getColumnName(i), i);
+            }
+        }
+
+        /**
+         * 次の行へ移動する。最初の行へ移動する場合も呼び出す。
+         *
+         * @return 行が存在しなければfalse
+         */
+        public boolean moveToNext() {
+            return cursor.moveToNext();
+        }
+
+        /**
+         * 行数を取得する。
+         */
+        public int getCount() {
+            return cursor.getCount();
+        }
+
+        /**
+         * カラムの位置を取得する。<BR>
+         * 繰り返し読み込む場合、位置を保持して位置指定のメソッドを使うとカラム名の検索を省ける。
+         *
+         * @return 取得していないカラムの場合は-1
+         */
+        public int getColumnIndex(String key) {
+            Integer result = indices.get(key);
+            return result != null ? result : -1;
+        }
+
+        /**
+         * 値が取得できない場合はtrue
+         */
+        public boolean isNull(int index) {
+            return index < 0 || cursor.isNull(index);
+        }
+
+        public long getLong(int index, long def) {
+            return isNull(index) ? def : cursor.getLong(index);
+        }
+
+        public String getText(int index, String def) {
+            return isNull(index) ? def : cursor.getString(index);
+        }
+
+        public double getReal(int index, double def) {
+            return isNull(index) ? def : cursor.getDouble(index);
+        }
+
+        public byte[] getBlob(int index, byte[] def) {
+            return isNull(index) ? def : cursor.getBlob(index);
+        }
+
+        public long getLong(String key, long def) {
+            return getLong(getColumnIndex(key), def);
+        }
+
+        public int getInteger(String key, int def) {
+            return (int) getLong(key, def);
+        }
+
+        public boolean getBoolean(String key, boolean def) {
+            return getLong(key, def ? 1 : 0) != 0;
+        }
+
+        /**
+         * テキストを取得する
+         */
+        public String getText(String key, String def) {
+            return getText(getColumnIndex(key), def);
+        }
+
+        /**
+         * 実数値を取得する
+         */
+        public double getReal(String key, double def) {
+            return getReal(getColumnIndex(key), def);
+        }
+
+        /**
+         * blob値を取得する。
+         */
+        public byte[] getBlob(String key, byte[] def) {
+            return getBlob(getColumnIndex(key), def);
+        }
+
+        /**
+         * 現在の行をコピーする。
+         */
+        public Data toData() {
+            return new Data(cursor, valueList);
+        }
+
+        @Override
+        public void dispose() {
+            if (cursor != null) {
+                cursor.close();
+                cursor = null;
+            }
+        }
     }
 
     /**
@@ -452,6 +828,23 @@ public class MultiValueDatabase extends DisposableResource {
             return name + " " + type.getSqlValueType();
         }
 
+        /**
+         * 値を?で受け取るSelect文用のキーワードを作成する
+         */
+        public String createBoundSelection(SelectionType select) {
+            return name + select.getSelection() + "?";
+        }
+
+        /**
+         * selectionの引数へ変換する。
+         */
+        static String toArgument(Object value) {
+            if (value instanceof Boolean) {
+                return ((Boolean) value) ? "1" : "0";
+            }
+            return value.toString();
+        }
+
         /**
          * Select文用のキーワードを作成する
          */
@@ -472,6 +865,42 @@ public class MultiValueDatabase extends DisposableResource {
         }
     }
 
+    /**
+     * テーブルのインデックス
+     *
+     * @author TAKESHI YAMASHITA
+     */
+    public static class Index {
+        boolean unique;
+
+        String[] columns;
+
+        public Index(boolean unique, String... columns) {
+            if (columns.length == 0) {
+                throw new IllegalArgumentException("columns is empty");
+            }
+            this.unique = unique;
+            this.columns = columns;
+        }
+
+        /**
+         * create命令を作成する
+         */
+        public String sql(String tableName) {
+            StringBuffer name = new StringBuffer(tableName).append("_idx");
+            StringBuffer list = new StringBuffer();
+            for (int i = 0; i < columns.length; ++i) {
+                name.append('_').append(columns[i]);
+                if (i > 0) {
+                    list.append(", ");
+                }
+                list.append(columns[i]);
+            }
+            return "create " + (unique ? "unique " : "") + "index if not exists " + name + " on " + tableName + " ("
+                    + list + ")";
+        }
+    }
+
     /**
      * 値のリストを作成する
      *
@@ -489,6 +918,8 @@ public class MultiValueDatabase extends DisposableResource {
 
         List<Column> columns = new ArrayList<MultiValueDatabase.Column>();
 
+        List<Index> indices = new ArrayList<MultiValueDatabase.Index>();
+
         /**
          * プライマリを指定して生成する。
          */
@@ -510,6 +941,21 @@ public class MultiValueDatabase extends DisposableResource {
             columns.add(c);
         }
 
+        /**
+         * カラムに対するインデックスを追加する。<BR>
+         * 検索条件・並び順に頻繁に使うカラムを指定する。
+         */
+        public void addIndex(String... columns) {
+            indices.add(new Index(false, columns));
+        }
+
+        /**
+         * 値が重複しないインデックスを追加する。
+         */
+        public void addUniqueIndex(String... columns) {
+            indices.add(new Index(true, columns));
+        }
+
         /*
          * データベースバージョンを指定する。
          */
@@ -549,6 +995,17 @@ public class MultiValueDatabase extends DisposableResource {
             return buffer.toString();
         }
 
+        /**
+         * インデックスのcreate命令を作成する。
+         */
+        public List<String> sqlCreateIndexCommands() {
+            List<String> result = new ArrayList<String>(indices.size());
+            for (Index index : indices) {
+                result.add(index.sql(tableName));
+            }
+            return result;
+        }
+
         /**
          * Drop命令を返す。
          */
@@ -633,6 +1090,7 @@ public class MultiValueDatabase extends DisposableResource {
         public void clear() {
             primary = null;
             columns.clear();
+            indices.clear();
         }
     }
 
@@ -644,6 +1102,9 @@ public class MultiValueDatabase extends DisposableResource {
         @Override
         public void onCreate(SQLiteDatabase db) {
             db.execSQL(valueList.sqlCreateCommand());
+            for (String sql : valueList.sqlCreateIndexCommands()) {
+                db.execSQL(sql);
+            }
         }
 
         @Override
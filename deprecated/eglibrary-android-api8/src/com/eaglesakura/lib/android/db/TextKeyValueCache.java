@@ -0,0 +1,81 @@
+package com.eaglesakura.lib.android.db;
+
+/**
+ * {@link TextKeyValueStore}の読み込みをキャッシュする。
+ *
+ * @author TAKESHI YAMASHITA
+ */
+public class TextKeyValueCache extends KeyValueCache<String> {
+    final TextKeyValueStore store;
+
+    /**
+     * @param store     キャッシュ対象のKVS
+     * @param maxBytes  キャッシュする値の合計バイト数
+     * @param writeMode 書き込みの反映方法
+     */
+    public TextKeyValueCache(TextKeyValueStore store, long maxBytes, WriteMode writeMode) {
+        super(maxBytes, writeMode);
+        this.store = store;
+    }
+
+    /**
+     * キャッシュ対象のKVSを取得する。<BR>
+     * KVSを直接書き換えた場合、キャッシュには反映されない。
+     */
+    public TextKeyValueStore getStore() {
+        return store;
+    }
+
+    /**
+     * 文字列をlong変換して取得する
+     */
+    public long getLong(String key, long def) {
+        String value = get(key);
+        return value != null ? Long.parseLong(value) : def;
+    }
+
+    /**
+     * 文字列をint変換して取得する
+     */
+    public int getInteger(String key, int def) {
+        return (int) getLong(key, def);
+    }
+
+    /**
+     * 文字列をfloat変換して取得する
+     */
+    public float getFloat(String key, float def) {
+        String value = get(key);
+        return value != null ? Float.parseFloat(value) : def;
+    }
+
+    @Override
+    protected String loadValue(String key) {
+        return store.getOrNull(key);
+    }
+
+    @Override
+    protected void storeValue(String key, String value) {
+        store.insertOrUpdate(key, value);
+    }
+
+    @Override
+    protected void removeValue(String key) {
+        store.remove(key);
+    }
+
+    @Override
+    protected void beginTransaction() {
+        store.beginTransaction();
+    }
+
+    @Override
+    protected void endTransaction() {
+        store.endTransaction();
+    }
+
+    @Override
+    protected int sizeOf(String value) {
+        return value.length() * 2;
+    }
+}
@@ -8,6 +8,7 @@ import android.content.Context;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
 import android.util.Base64;
 
 import java.io.File;
@@ -17,7 +18,11 @@ import java.util.List;
 
 /**
  * SQLを利用した簡単なKVSを提供する。
- * insert時にはkey-valueと更新時刻が保存される。
+ * insert時にはkey-valueと更新時刻が保存される。<BR>
+ * <BR>
+ * byte配列の保存方法は{@link BinaryStorage}で指定する。
+ * {@link BinaryStorage#Blob}の場合、byte配列はBase64に変換せずblobカラムへ保存する。<BR>
+ * blobカラムの無い既存のテーブルは開いた時点でカラムが追加され、Base64で保存済みの値は{@link #migrateToBlob(BinaryKeyFilter)}で変換できる。
  *
  * @author TAKESHI YAMASHITA
  */
@@ -63,6 +68,11 @@ public class TextKeyValueStore extends DisposableResource {
      */
     static final String DB_DATE = "_date";
 
+    /**
+     * byte配列として入力する値
+     */
+    static final String DB_BLOB = "_blob";
+
     /**
      * テーブル削除用のSQL
      */
@@ -80,7 +90,42 @@ public class TextKeyValueStore extends DisposableResource {
      */
     DBType type;
 
+    /**
+     * byte配列の保存方法
+     */
+    BinaryStorage binaryStorage;
+
+    /**
+     * テーブルにblobカラムが存在すればtrue
+     */
+    boolean hasBlobColumn = false;
+
+    /**
+     * byte配列の保存方法
+     */
+    public enum BinaryStorage {
+        /**
+         * Base64へ変換して文字列として保存する
+         */
+        Text,
+
+        /**
+         * blobカラムへそのまま保存する
+         */
+        Blob,
+    }
+
     public TextKeyValueStore(File dbFile, Context context, String tableName, DBType type, int dbVersion) {
+        this(dbFile, context, tableName, type, dbVersion, BinaryStorage.Text);
+    }
+
+    /**
+     * byte配列の保存方法を指定して開く。<BR>
+     * {@link BinaryStorage#Blob}を指定した場合、blobカラムの無い既存テーブルにはカラムを追加する。
+     */
+    public TextKeyValueStore(File dbFile, Context context, String tableName, DBType type, int dbVersion,
+                             BinaryStorage binaryStorage) {
+        this.binaryStorage = binaryStorage;
         this.context = context;
         this.dbFile = dbFile;
         this.tableName = tableName;
@@ -90,10 +135,41 @@ public class TextKeyValueStore extends DisposableResource {
         this.type = type;
 
         DELETE_TBL_SQL = "drop table if exists " + tableName;
+        // blobカラムはBlobモードの場合のみ作成し、従来のテーブル形式を変えない
         CREATE_TBL_SQL = "create table if not exists " + tableName + " (" + DB_KEY + " text primary key, " + DB_VALUE
-                + " text, " + DB_DATE + " integer )";
+                + " text, " + DB_DATE + " integer"
+                + (binaryStorage == BinaryStorage.Blob ? ", " + DB_BLOB + " blob )" : " )");
         db = type.open(helper);
         createTable();
+        if (binaryStorage == BinaryStorage.Blob && !hasBlobColumn && type != DBType.Read) {
+            db.execSQL("alter table " + tableName + " add column " + DB_BLOB + " blob");
+            hasBlobColumn = true;
+        }
+    }
+
+    /**
+     * テーブルにblobカラムが存在するかを確認する。
+     */
+    boolean checkBlobColumn() {
+        Cursor cursor = db.rawQuery("pragma table_info(" + tableName + ")", null);
+        try {
+            final int nameIndex = cursor.getColumnIndex("name");
+            while (cursor.moveToNext()) {
+                if (DB_BLOB.equals(cursor.getString(nameIndex))) {
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * 検索時に取得するカラム
+     */
+    String[] cursorDatas() {
+        return hasBlobColumn ? cursorDatasWithBlob : cursorDatas;
     }
 
     /**
@@ -107,10 +183,28 @@ public class TextKeyValueStore extends DisposableResource {
         if (value == null) {
             value = "";
         }
-        ContentValues result = new ContentValues(3);
+        ContentValues result = new ContentValues(4);
         result.put(DB_KEY, key);
         result.put(DB_VALUE, value);
         result.put(DB_DATE, System.currentTimeMillis());
+        if (hasBlobColumn) {
+            result.putNull(DB_BLOB);
+        }
+        return result;
+    }
+
+    /**
+     * byte配列を保存するためのValuesを作成する。
+     */
+    protected ContentValues createValues(String key, byte[] buffer) {
+        if (binaryStorage != BinaryStorage.Blob || !hasBlobColumn) {
+            return createValues(key, toString(buffer));
+        }
+        ContentValues result = new ContentValues(4);
+        result.put(DB_KEY, key);
+        result.putNull(DB_VALUE);
+        result.put(DB_DATE, System.currentTimeMillis());
+        result.put(DB_BLOB, buffer);
         return result;
     }
 
@@ -131,7 +225,10 @@ public class TextKeyValueStore extends DisposableResource {
      * 登録済みの場合、上書きを行う。
      */
     public void insertOrUpdate(String key, String value) {
-        final ContentValues values = createValues(key, value);
+        insertOrUpdate(key, createValues(key, value));
+    }
+
+    private void insertOrUpdate(String key, ContentValues values) {
         try {
             db.insertOrThrow(tableName, null, values);
         } catch (Exception e) {
@@ -149,23 +246,33 @@ public class TextKeyValueStore extends DisposableResource {
         db.update(tableName, values, DB_KEY + "='" + key + "'", null);
     }
 
-    private String toString(byte[] buffer) {
+    static String toString(byte[] buffer) {
         return Base64.encodeToString(buffer, Base64.DEFAULT);
     }
 
     /**
      * byte配列を書き込む。
-     * ただし、Base64エンコードされるため見た目上のデータは大きくなる。
+     * {@link BinaryStorage#Text}の場合、Base64エンコードされるため見た目上のデータは大きくなる。
      */
     public void insert(String key, byte[] buffer) {
-        insert(key, toString(buffer));
+        insert(createValues(key, buffer));
     }
 
     /**
      * byte配列を挿入もしくは更新する。
      */
     public void insertOrUpdate(String key, byte[] buffer) {
-        insertOrUpdate(key, toString(buffer));
+        insertOrUpdate(key, createValues(key, buffer));
+    }
+
+    /**
+     * byte配列として値を取得する。
+     *
+     * @return 値が存在しない場合はnull
+     */
+    public byte[] getBytesOrNull(String key) {
+        Data data = get(key);
+        return data != null ? data.getBytes() : null;
     }
 
     /**
@@ -173,7 +280,10 @@ public class TextKeyValueStore extends DisposableResource {
      * 失敗した場合は何も行わない。
      */
     public void insert(String key, String value) {
-        final ContentValues values = createValues(key, value);
+        insert(createValues(key, value));
+    }
+
+    private void insert(ContentValues values) {
         try {
             db.insert(tableName, null, values);
         } catch (Exception e) {
@@ -212,7 +322,7 @@ public class TextKeyValueStore extends DisposableResource {
         Cursor cursor = null;
         try {
             String selection = DB_KEY + "='" + key + "'";
-            cursor = db.query(tableName, cursorDatas, selection, null, null, null, null);
+            cursor = db.query(tableName, cursorDatas(), selection, null, null, null, null);
 
             if (cursor.moveToFirst()) {
                 return new Data(cursor);
@@ -235,7 +345,7 @@ public class TextKeyValueStore extends DisposableResource {
         Cursor cursor = null;
         List<Data> result = new ArrayList<TextKeyValueStore.Data>();
         try {
-            cursor = db.query(tableName, cursorDatas, null, null, null, null, null);
+            cursor = db.query(tableName, cursorDatas(), null, null, null, null, null);
 
             if (cursor.moveToFirst()) {
                 do {
@@ -260,7 +370,7 @@ public class TextKeyValueStore extends DisposableResource {
         List<Data> result = new ArrayList<TextKeyValueStore.Data>();
         try {
             String selection = DB_VALUE + "='" + value + "'";
-            cursor = db.query(tableName, cursorDatas, selection, null, null, null, null);
+            cursor = db.query(tableName, cursorDatas(), selection, null, null, null, null);
 
             if (cursor.moveToFirst()) {
                 do {
@@ -286,7 +396,7 @@ public class TextKeyValueStore extends DisposableResource {
         try {
             String selection = DB_DATE + ">=" + date;
             String order = DB_DATE + " desc";
-            cursor = db.query(tableName, cursorDatas, selection, null, null, null, order, "" + max);
+            cursor = db.query(tableName, cursorDatas(), selection, null, null, null, order, "" + max);
 
             if (cursor.moveToFirst()) {
                 do {
@@ -356,11 +466,17 @@ public class TextKeyValueStore extends DisposableResource {
         Cursor cursor = null;
         try {
             String selection = DB_KEY + "='" + key + "'";
-            cursor = db.query(tableName, new String[]{
+            cursor = db.query(tableName, hasBlobColumn ? new String[]{
+                    DB_VALUE, DB_BLOB
+            } : new String[]{
                     DB_VALUE
             }, selection, null, null, null, null);
 
             cursor.moveToFirst();
+            if (hasBlobColumn && cursor.isNull(0) && !cursor.isNull(1)) {
+                // blobで保存された値は従来通りBase64で返す
+                return toString(cursor.getBlob(1));
+            }
             return cursor.getString(0);
         } catch (Exception e) {
             return null;
@@ -391,15 +507,91 @@ public class TextKeyValueStore extends DisposableResource {
      */
     public void createTable() {
         db.execSQL(CREATE_TBL_SQL);
+        hasBlobColumn = checkBlobColumn();
+    }
+
+    /**
+     * Base64で保存済みの値をblobカラムへ移行する。<BR>
+     * 文字列とBase64を区別することはできないため、移行対象はfilterで指定する。<BR>
+     * 移行は1トランザクションで行われる。{@link BinaryStorage#Blob}で開いている必要がある。
+     *
+     * @return 移行した値の数
+     */
+    public int migrateToBlob(BinaryKeyFilter filter) {
+        if (!hasBlobColumn) {
+            throw new IllegalStateException("blob column not found :: " + tableName);
+        }
+
+        List<String> keys = new ArrayList<String>();
+        Cursor cursor = db.query(tableName, new String[]{
+                DB_KEY
+        }, DB_VALUE + " is not null and " + DB_BLOB + " is null", null, null, null, null);
+        try {
+            while (cursor.moveToNext()) {
+                final String key = cursor.getString(0);
+                if (filter.isBinary(key)) {
+                    keys.add(key);
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+
+        if (keys.isEmpty()) {
+            return 0;
+        }
+
+        int result = 0;
+        SQLiteStatement statement = db.compileStatement("update " + tableName + " set " + DB_BLOB + "=?, " + DB_VALUE
+                + "=null where " + DB_KEY + "=?");
+        db.beginTransaction();
+        try {
+            for (String key : keys) {
+                final String text = getOrNull(key);
+                if (text == null) {
+                    continue;
+                }
+                try {
+                    statement.bindBlob(1, Base64.decode(text, Base64.DEFAULT));
+                } catch (IllegalArgumentException e) {
+                    // Base64ではなかった
+                    LogUtil.log(e);
+                    continue;
+                }
+                statement.bindString(2, key);
+                statement.execute();
+                ++result;
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            statement.close();
+        }
+        return result;
+    }
+
+    /**
+     * Base64で保存済みの値をblobへ移行する際に呼び出される。
+     */
+    public interface BinaryKeyFilter {
+        /**
+         * keyの値がbyte配列をBase64で保存したものならtrueを返す。
+         */
+        boolean isBinary(String key);
     }
 
     /**
      * 値を挿入する。
      */
-    private void _insert(String key, String insertValue, long insertDate, InsertFilter filter) throws Exception {
+    private void _insert(String key, String insertValue, byte[] insertBlob, long insertDate, InsertFilter filter)
+            throws Exception {
         // 存在しないから、挿入して終了
-        final ContentValues values = createValues(key, insertValue);
+        final ContentValues values = insertBlob != null ? createValues(key, insertBlob) : createValues(key,
+                insertValue);
         values.put(DB_DATE, insertDate);
+        if (insertValue == null && insertBlob != null) {
+            insertValue = toString(insertBlob);
+        }
 
         // 古い値が存在する？
         if (!this.exists(key)) {
@@ -408,14 +600,19 @@ public class TextKeyValueStore extends DisposableResource {
         }
 
         // 存在するなら、値を取得する
-        Cursor cursor = db.query(tableName, new String[]{
+        Cursor cursor = db.query(tableName, hasBlobColumn ? new String[]{
+                DB_VALUE, DB_DATE, DB_BLOB,
+        } : new String[]{
                 DB_VALUE, DB_DATE,
         }, DB_KEY + "='" + key + "'", null, null, null, null);
 
         try {
             cursor.moveToFirst();
 
-            final String currentValue = cursor.getString(0);
+            String currentValue = cursor.getString(0);
+            if (currentValue == null && hasBlobColumn && !cursor.isNull(2)) {
+                currentValue = toString(cursor.getBlob(2));
+            }
             final long currentDate = cursor.getLong(1);
 
             // どちらを優先するかはフィルタに任せる
@@ -440,9 +637,7 @@ public class TextKeyValueStore extends DisposableResource {
      */
     public void insertTo(final TextKeyValueStore insertDB, InsertFilter filter) {
         beginTransaction();
-        Cursor cursor = insertDB.db.query(tableName, new String[]{
-                DB_KEY, DB_VALUE, DB_DATE,
-        }, null, null, null, null, null);
+        Cursor cursor = insertDB.db.query(tableName, insertDB.cursorDatas(), null, null, null, null, null);
 
         try {
             if (cursor.moveToFirst()) {
@@ -450,8 +645,9 @@ public class TextKeyValueStore extends DisposableResource {
                     String key = cursor.getString(0);
                     String value = cursor.getString(1);
                     long date = cursor.getLong(2);
+                    byte[] blob = (insertDB.hasBlobColumn && !cursor.isNull(3)) ? cursor.getBlob(3) : null;
                     try {
-                        _insert(key, value, date, filter);
+                        _insert(key, value, blob, date, filter);
                     } catch (Exception e) {
                         LogUtil.log(e);
                     }
@@ -576,21 +772,37 @@ public class TextKeyValueStore extends DisposableResource {
             DB_KEY, DB_VALUE, DB_DATE
     };
 
+    static final String[] cursorDatasWithBlob = {
+            DB_KEY, DB_VALUE, DB_DATE, DB_BLOB
+    };
+
     public static class Data {
         String text;
         long date;
         String key;
 
+        /**
+         * blobカラムに保存された値
+         */
+        byte[] blob;
+
         protected Data(Cursor cursor) {
             this.key = cursor.getString(0);
             this.text = cursor.getString(1);
             this.date = cursor.getLong(2);
+            if (cursor.getColumnCount() > 3 && !cursor.isNull(3)) {
+                this.blob = cursor.getBlob(3);
+            }
         }
 
         /**
-         * データのテキストをそのまま取得する
+         * データのテキストをそのまま取得する。<BR>
+         * blobで保存された値はBase64で返す。
          */
         public String getText() {
+            if (text == null && blob != null) {
+                text = TextKeyValueStore.toString(blob);
+            }
             return text;
         }
 
@@ -613,6 +825,9 @@ public class TextKeyValueStore extends DisposableResource {
          * ただし、insert()時にbyte[]で挿入したデータだけが対象。
          */
         public byte[] getBytes() {
+            if (blob != null) {
+                return blob;
+            }
             return Base64.decode(text, Base64.DEFAULT);
         }
     }
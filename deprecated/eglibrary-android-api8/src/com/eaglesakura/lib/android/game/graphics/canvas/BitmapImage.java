@@ -50,11 +50,16 @@ public class BitmapImage extends ImageBase {
         onLoad(image);
     }
 
+    /**
+     * originと画像を共有する。<BR>
+     * 共有した画像は参照カウントで管理され、全てのBitmapImageがdispose()・GCされた時点で解放される。
+     */
     public BitmapImage(BitmapImage origin) {
         this(origin.getGarbageCollector());
         bitmapResource = origin.bitmapResource;
         sharedResource = origin.sharedResource;
         sharedResource.addRef();
+        register();
     }
 
     /**
@@ -203,6 +208,14 @@ public class BitmapImage extends ImageBase {
         return bitmapResource.rawBitmap;
     }
 
+    /**
+     * ピクセルデータのおおよそのバイト数を取得する。
+     */
+    public int getPixelBytes() {
+        final Bitmap bitmap = getBitmap();
+        return bitmap.getRowBytes() * bitmap.getHeight();
+    }
+
     @Override
     public List<IRawResource> getRawResources() {
         List<IRawResource> result = new ArrayList<IRawResource>();
@@ -34,6 +34,11 @@ public abstract class DisposableGLResource extends GCResourceBase {
                         id
                 }, 0);
             }
+
+            @Override
+            public void release(VRAM vram, int id) {
+                vram.deleteTexture(id);
+            }
         },
 
         /**
@@ -46,6 +51,11 @@ public abstract class DisposableGLResource extends GCResourceBase {
                         id
                 }, 0);
             }
+
+            @Override
+            public void release(VRAM vram, int id) {
+                vram.deleteVertexBufferObject(id);
+            }
         },
 
         /**
@@ -59,6 +69,11 @@ public abstract class DisposableGLResource extends GCResourceBase {
                         id
                 }, 0);
             }
+
+            @Override
+            public void release(VRAM vram, int id) {
+                vram.deleteFrameBufferObject(id);
+            }
         },
 
         /**
@@ -72,12 +87,23 @@ public abstract class DisposableGLResource extends GCResourceBase {
                         id
                 }, 0);
             }
+
+            @Override
+            public void release(VRAM vram, int id) {
+                vram.deleteRenderBuffer(id);
+            }
         };
 
         /**
          * リソースの削除を行わせる。
          */
         public abstract void delete(GL11 gl, int id);
+
+        /**
+         * VRAMの削除待ちへ登録する。
+         * 削除はVRAMのflushDeletions()時にまとめて行われる。
+         */
+        public abstract void release(VRAM vram, int id);
     }
 
     /**
@@ -89,16 +115,33 @@ public abstract class DisposableGLResource extends GCResourceBase {
         private Type type;
         private int id;
         private GL11 gl;
+        private VRAM vram;
 
+        /**
+         * 即座にglDelete*()を行う資源を作成する。
+         * VRAMのgen*()で生成した名前は削除がまとめられるため、{@link #GLResource(VRAM, Type, int)}を利用すること。
+         */
         public GLResource(GL11 gl, Type type, int id) {
             this.type = type;
             this.id = id;
             this.gl = gl;
         }
 
+        /**
+         * VRAMを通して削除する資源を作成する。
+         */
+        public GLResource(VRAM vram, Type type, int id) {
+            this(vram.getGL(), type, id);
+            this.vram = vram;
+        }
+
         @Override
         public void dispose() {
-            type.delete(gl, id);
+            if (vram != null) {
+                type.release(vram, id);
+            } else {
+                type.delete(gl, id);
+            }
         }
     }
 
@@ -77,17 +77,15 @@ public class QuadDepthPolygon extends DisposableGLResource {
     public List<IRawResource> getRawResources() {
         List<IRawResource> result = new ArrayList<IRawResource>();
         if (vbo != VRAM.NULL) {
-            result.add(new GLResource(getGL(), Type.VertexBufferObject, vbo));
+            result.add(new GLResource(vram, Type.VertexBufferObject, vbo));
         }
         return result;
     }
 
     @Override
     public void onDispose() {
-        if (vbo != VRAM.NULL) {
-            vram.deleteVertexBufferObject(vbo);
-            vbo = VRAM.NULL;
-        }
+        // 名前の削除はregister()したGLResourceが行うため、ここでは参照を外すだけとする
+        vbo = VRAM.NULL;
     }
 
     /**
@@ -194,13 +194,13 @@ public class RenderTargetTexture extends TextureImageBase {
     public List<IRawResource> getRawResources() {
         List<IRawResource> result = super.getRawResources();
         if (frameBuffer != VRAM.NULL) {
-            result.add(new GLResource(getGL(), Type.FrameBuffer, frameBuffer));
+            result.add(new GLResource(vram, Type.FrameBuffer, frameBuffer));
         }
         if (colorBuffer != VRAM.NULL) {
-            result.add(new GLResource(getGL(), Type.RenderBuffer, colorBuffer));
+            result.add(new GLResource(vram, Type.RenderBuffer, colorBuffer));
         }
         if (depthBuffer != VRAM.NULL) {
-            result.add(new GLResource(getGL(), Type.RenderBuffer, depthBuffer));
+            result.add(new GLResource(vram, Type.RenderBuffer, depthBuffer));
         }
         return result;
     }
@@ -210,19 +210,10 @@ public class RenderTargetTexture extends TextureImageBase {
      */
     @Override
     public void onDispose() {
-        if (frameBuffer != VRAM.NULL) {
-            vram.deleteFrameBufferObject(frameBuffer);
-            frameBuffer = VRAM.NULL;
-        }
-
-        if (colorBuffer != VRAM.NULL) {
-            vram.deleteRenderBuffer(colorBuffer);
-            colorBuffer = VRAM.NULL;
-        }
-        if (depthBuffer != VRAM.NULL) {
-            vram.deleteRenderBuffer(depthBuffer);
-            depthBuffer = VRAM.NULL;
-        }
+        // 名前の削除はregister()したGLResourceが行うため、ここでは参照を外すだけとする
+        frameBuffer = VRAM.NULL;
+        colorBuffer = VRAM.NULL;
+        depthBuffer = VRAM.NULL;
         super.onDispose();
     }
 
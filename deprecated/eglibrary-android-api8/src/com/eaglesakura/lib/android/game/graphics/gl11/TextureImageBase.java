@@ -70,17 +70,15 @@ public abstract class TextureImageBase extends ImageBase {
     public List<IRawResource> getRawResources() {
         List<IRawResource> result = new LinkedList<IRawResource>();
         if (textureId != VRAM.NULL) {
-            result.add(new GLResource(getGL(), Type.Texture, textureId));
+            result.add(new GLResource(vram, Type.Texture, textureId));
         }
         return result;
     }
 
     @Override
     public void onDispose() {
-        if (textureId != VRAM.NULL) {
-            vram.deleteTexture(textureId);
-            textureId = VRAM.NULL;
-        }
+        // 名前の削除はregister()したGLResourceが行うため、ここでは参照を外すだけとする
+        textureId = VRAM.NULL;
     }
 
     /**
@@ -0,0 +1,107 @@
+package com.eaglesakura.lib.android.game.graphics.gl11.hw;
+
+import com.eaglesakura.lib.list.IntUniqueList;
+
+/**
+ * OpenGL ESのオブジェクト名（テクスチャ番号等）をまとめて確保・削除する。<BR>
+ * 名前は{@link #BLOCK_SIZE}個ずつ1回のglGen*()で確保し、削除された名前は{@link #flush()}時に1回のglDelete*()でまとめて削除する。<BR>
+ * 同じ名前が複数回削除された場合も、glDelete*()へ渡すのは1回のみとなる。<BR>
+ * GLのワーキングスレッドから呼び出す必要がある。
+ *
+ * @author TAKESHI YAMASHITA
+ */
+abstract class GLNamePool {
+    /**
+     * 1回のglGen*()で確保する名前の数
+     */
+    static final int BLOCK_SIZE = 32;
+
+    /**
+     * 削除待ちがこの数に達した場合、flush()を待たずに削除する
+     */
+    static final int FLUSH_THRESHOLD = 256;
+
+    /**
+     * 確保済みで未使用の名前
+     */
+    final int[] names = new int[BLOCK_SIZE];
+
+    /**
+     * 次に渡すnamesの位置
+     */
+    int next = BLOCK_SIZE;
+
+    /**
+     * 削除待ちの名前
+     */
+    final IntUniqueList released = new IntUniqueList();
+
+    /**
+     * glGen*()を呼び出す。
+     */
+    protected abstract void gen(int n, int[] names);
+
+    /**
+     * glDelete*()を呼び出す。
+     */
+    protected abstract void delete(int n, int[] names);
+
+    /**
+     * 名前を1つ取得する。<BR>
+     * 確保済みの名前が無い場合、新たにブロック単位で確保する。
+     */
+    synchronized int alloc() {
+        if (next == BLOCK_SIZE) {
+            gen(BLOCK_SIZE, names);
+            for (int name : names) {
+                if (name == VRAM.NULL) {
+                    throw new IllegalStateException("buffer not create");
+                }
+            }
+            next = 0;
+        }
+        return names[next++];
+    }
+
+    /**
+     * 名前を削除待ちにする。<BR>
+     * 削除待ちが{@link #FLUSH_THRESHOLD}に達した場合はその場で削除されるため、1つの名前は1箇所からのみ、1回だけ削除待ちにすること。
+     */
+    synchronized void release(int name) {
+        if (name == VRAM.NULL) {
+            return;
+        }
+        released.add(name);
+        if (released.size() >= FLUSH_THRESHOLD) {
+            flush();
+        }
+    }
+
+    /**
+     * 削除待ちの名前をまとめて削除する。
+     *
+     * @return 削除した名前の数
+     */
+    synchronized int flush() {
+        if (released.isEmpty()) {
+            return 0;
+        }
+        final int[] buffer = released.toArray();
+        delete(buffer.length, buffer);
+        released.clear();
+        return buffer.length;
+    }
+
+    /**
+     * 削除待ちの名前と未使用の名前を全て削除する。
+     */
+    synchronized void dispose() {
+        flush();
+        if (next < BLOCK_SIZE) {
+            final int[] buffer = new int[BLOCK_SIZE - next];
+            System.arraycopy(names, next, buffer, 0, buffer.length);
+            delete(buffer.length, buffer);
+            next = BLOCK_SIZE;
+        }
+    }
+}
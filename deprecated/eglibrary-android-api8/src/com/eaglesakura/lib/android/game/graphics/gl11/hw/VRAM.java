@@ -18,6 +18,7 @@ import javax.microedition.khronos.opengles.GL11ExtensionPack;
  * EGLContextに関連付けられたVRAM領域を取得する
  * VRAMはgc機構を備えており、適当なタイミングでgc()を行うことができる。
  * ただし、GLのワーキングスレッドに属している必要がある。
+ * テクスチャ等のオブジェクト名はブロック単位で確保され、削除は{@link #flushDeletions()}時にまとめて行われる。
  */
 public class VRAM extends DisposableResource {
     EGLManager egl;
@@ -30,10 +31,96 @@ public class VRAM extends DisposableResource {
      */
     private GarbageCollector garbageCollector = new GarbageCollector(null);
 
+    /**
+     * テクスチャ名
+     */
+    GLNamePool texturePool;
+
+    /**
+     * VBO名
+     */
+    GLNamePool bufferPool;
+
+    /**
+     * フレームバッファ名
+     */
+    GLNamePool frameBufferPool;
+
+    /**
+     * レンダリングバッファ名
+     */
+    GLNamePool renderBufferPool;
+
     VRAM(EGLManager egl) {
+        this(egl, (GL11) egl.getGL());
+    }
+
+    /**
+     * GLオブジェクトを指定して生成する。
+     *
+     * @param gl11 GL11ExtensionPackを実装している必要がある
+     */
+    VRAM(EGLManager egl, GL11 gl11) {
         this.egl = egl;
-        this.gl11 = (GL11) egl.getGL();
+        this.gl11 = gl11;
         this.gl11EP = (GL11ExtensionPack) gl11;
+
+        texturePool = new GLNamePool() {
+            @Override
+            protected void gen(int n, int[] names) {
+                gl11.glGetError();
+                gl11.glGenTextures(n, names, 0);
+                if (gl11.glGetError() == GL11.GL_OUT_OF_MEMORY) {
+                    throw new OutOfMemoryError("glGenTexture Error");
+                }
+            }
+
+            @Override
+            protected void delete(int n, int[] names) {
+                gl11.glGetError();
+                gl11.glDeleteTextures(n, names, 0);
+            }
+        };
+        bufferPool = new GLNamePool() {
+            @Override
+            protected void gen(int n, int[] names) {
+                gl11.glGetError();
+                gl11.glGenBuffers(n, names, 0);
+                if (gl11.glGetError() == GL11.GL_OUT_OF_MEMORY) {
+                    throw new OutOfMemoryError("glGenBuffers Error");
+                }
+            }
+
+            @Override
+            protected void delete(int n, int[] names) {
+                gl11.glGetError();
+                gl11.glDeleteBuffers(n, names, 0);
+            }
+        };
+        frameBufferPool = new GLNamePool() {
+            @Override
+            protected void gen(int n, int[] names) {
+                gl11EP.glGenFramebuffersOES(n, names, 0);
+            }
+
+            @Override
+            protected void delete(int n, int[] names) {
+                gl11.glGetError();
+                gl11EP.glDeleteFramebuffersOES(n, names, 0);
+            }
+        };
+        renderBufferPool = new GLNamePool() {
+            @Override
+            protected void gen(int n, int[] names) {
+                gl11EP.glGenRenderbuffersOES(n, names, 0);
+            }
+
+            @Override
+            protected void delete(int n, int[] names) {
+                gl11.glGetError();
+                gl11EP.glDeleteRenderbuffersOES(n, names, 0);
+            }
+        };
     }
 
     /**
@@ -45,86 +132,52 @@ public class VRAM extends DisposableResource {
      * フレームバッファを生成する。
      */
     public int genFrameBufferObject() {
-        int[] buffer = new int[1];
-        gl11EP.glGenFramebuffersOES(1, buffer, 0);
-        if (buffer[0] == NULL) {
-            throw new IllegalStateException("buffer not create");
-        }
-        return buffer[0];
+        return frameBufferPool.alloc();
     }
 
     /**
      * フレームバッファを削除する。
-     * 別スレッドから投げられた場合、GLスレッドにpostされる。
+     * 実際の削除は{@link #flushDeletions()}時に行われる。
      */
     public void deleteFrameBufferObject(final int buffer) {
-        gl11.glGetError();
-        gl11EP.glDeleteFramebuffersOES(1, new int[]{
-                buffer
-        }, 0);
+        frameBufferPool.release(buffer);
     }
 
     /**
      * レンダリング用バッファを生成する。
      */
     public int genRenderBuffer() {
-        int[] buffer = new int[1];
-        gl11EP.glGenRenderbuffersOES(1, buffer, 0);
-        if (buffer[0] == 0) {
-            throw new IllegalStateException("buffer not create");
-        }
-        return buffer[0];
+        return renderBufferPool.alloc();
     }
 
     /**
      * レンダリングバッファを削除する
-     * 別スレッドから投げられた場合、GLスレッドにpostされる。
+     * 実際の削除は{@link #flushDeletions()}時に行われる。
      */
     public void deleteRenderBuffer(final int buffer) {
-        gl11.glGetError();
-        gl11EP.glDeleteRenderbuffersOES(1, new int[]{
-                buffer
-        }, 0);
+        renderBufferPool.release(buffer);
     }
 
     /**
      * VBOのバッファをひとつ作成する。
      */
     public int genVertexBufferObject() {
-        int[] buf = new int[1];
-        gl11.glGetError();
-        gl11.glGenBuffers(1, buf, 0);
-        if (gl11.glGetError() == GL11.GL_OUT_OF_MEMORY) {
-            throw new OutOfMemoryError("glGenTexture Error");
-        }
-
-        return buf[0];
+        return bufferPool.alloc();
     }
 
     /**
      * VBOのバッファをひとつ削除する。
-     * 別スレッドから投げられた場合、GLスレッドにpostされる。
+     * 実際の削除は{@link #flushDeletions()}時に行われる。
      */
     public void deleteVertexBufferObject(final int vbo) {
-        gl11.glGetError();
-        gl11.glDeleteBuffers(1, new int[]{
-                vbo
-        }, 0);
+        bufferPool.release(vbo);
     }
 
     /**
      * テクスチャバッファをひとつ作成する。
      */
     public int genTexture() {
-        gl11.glGetError();
-        int[] buf = new int[1];
-        gl11.glGetError();
-        gl11.glGenTextures(1, buf, 0);
-        if (gl11.glGetError() == GL11.GL_OUT_OF_MEMORY) {
-            throw new OutOfMemoryError("glGenTexture Error");
-        }
-
-        return buf[0];
+        return texturePool.alloc();
     }
 
     /**
@@ -136,12 +189,21 @@ public class VRAM extends DisposableResource {
 
     /**
      * テクスチャバッファを削除する。
+     * 実際の削除は{@link #flushDeletions()}時に行われる。
      */
     public void deleteTexture(final int tex) {
-        gl11.glGetError();
-        gl11.glDeleteTextures(1, new int[]{
-                tex
-        }, 0);
+        texturePool.release(tex);
+    }
+
+    /**
+     * 削除待ちのオブジェクトを種類毎に1回のglDelete*()でまとめて削除する。
+     * 1フレームに1回呼び出すことを想定しており、GameLoopManagerBaseは毎フレームの処理後に呼び出す。
+     * ゲームループを利用しない場合、gc()・dispose()もしくはこのメソッドを呼び出すまで削除は行われない。
+     *
+     * @return 削除したオブジェクト数
+     */
+    public int flushDeletions() {
+        return texturePool.flush() + bufferPool.flush() + frameBufferPool.flush() + renderBufferPool.flush();
     }
 
     /**
@@ -156,15 +218,29 @@ public class VRAM extends DisposableResource {
      */
     public int gc() {
         int gcItems = garbageCollector.gc();
+        flushDeletions();
         LogUtil.log(String.format("gc OpenGL GC Resources :: %d", gcItems));
         LogUtil.log(String.format("Markers :: %d", garbageCollector.getGcTargetCount()));
         return gcItems;
     }
 
+    /**
+     * 解放対象のメモリを最大maxResources個解放する。
+     * 毎フレーム呼び出すことを想定しているため、ログは出力しない。
+     * GLオブジェクトの削除は{@link #flushDeletions()}まで遅延される。
+     */
+    public int gc(int maxResources) {
+        return garbageCollector.gc(maxResources);
+    }
+
     @Override
     public void dispose() {
         // 強制的な解放を行わせる
         int gcItems = garbageCollector.delete();
+        texturePool.dispose();
+        bufferPool.dispose();
+        frameBufferPool.dispose();
+        renderBufferPool.dispose();
         LogUtil.log(String.format("Delete OpenGL GC Resources :: %d", gcItems));
         LogUtil.log(String.format("Markers :: %d", garbageCollector.getGcTargetCount()));
     }
@@ -170,6 +170,9 @@ public abstract class GameLoopManagerBase {
 
                 //! ゲーム処理を呼び出す
                 onGameFrame();
+
+                //! 削除されたGLオブジェクトをまとめて廃棄する
+                flushGLDeletions();
             }
             debugTimerEnd("onGameFrame :: %d ms");
             final long end = System.currentTimeMillis();
@@ -186,6 +189,15 @@ public abstract class GameLoopManagerBase {
         }
     };
 
+    /**
+     * VRAMで削除待ちとなっているGLオブジェクトを廃棄する。
+     */
+    void flushGLDeletions() {
+        if (egl != null && egl.isInitialized() && egl.getVRAM() != null) {
+            egl.getVRAM().flushDeletions();
+        }
+    }
+
     /**
      * 直近1フレームのフレームレートを取得する。
      */
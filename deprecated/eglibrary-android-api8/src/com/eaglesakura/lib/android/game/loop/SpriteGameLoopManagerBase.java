@@ -95,7 +95,26 @@ public abstract class SpriteGameLoopManagerBase extends GameLoopManagerBase {
         this.gcIntervalMs = gcIntervalMs;
     }
 
+    /**
+     * 1フレームで解放するOpenGL ESリソース数の上限。
+     */
+    private int gcFrameBudget = 16;
+
+    /**
+     * 1フレームで解放するOpenGL ESリソース数の上限を指定する。
+     * 回収済みのリソースは毎フレーム上限数ずつ解放される。
+     * 0以下を設定することで、フレーム毎の解放を行わなくする。
+     */
+    public void setGcFrameBudget(int gcFrameBudget) {
+        this.gcFrameBudget = gcFrameBudget;
+    }
+
     protected void updateGC() {
+        if (gcFrameBudget > 0) {
+            // 削除されたGLオブジェクトはフレーム終了時にまとめて廃棄される
+            egl.getVRAM().gc(gcFrameBudget);
+        }
+
         // 一定時間以上経過していたらGC
         if (gcIntervalMs > 0 && gcTimer.end() > gcIntervalMs) {
             gcTimer.start();
@@ -16,6 +16,11 @@ public abstract class GCResourceBase extends DisposableResource {
      */
     private GarbageCollector garbageCollector;
 
+    /**
+     * GC管理クラスへ登録された監視対象
+     */
+    GarbageCollector.GCTarget gcTarget;
+
     /**
      *
      * @param garbageCollector
@@ -5,33 +5,55 @@ import com.eaglesakura.lib.android.game.util.ContextUtil;
 
 import android.os.Handler;
 
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
 import java.lang.ref.WeakReference;
-import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
 
 /**
- * GCターゲットとして扱えないリソース（GL系、Bitmap系）を一元管理する。
+ * GCターゲットとして扱えないリソース（GL系、Bitmap系）を一元管理する。<BR>
+ * 監視対象はReferenceQueueへ登録され、VMに回収されたものだけがキューから取り出されて解放される。<BR>
+ * 登録・削除は監視対象の数に関わらず一定時間で行われる。
  *
  * @author TAKESHI YAMASHITA
  */
 public class GarbageCollector {
-    protected static class GCTarget {
+    protected static class GCTarget extends WeakReference<GCResourceBase> {
         /**
          * 解放対象のリソース
          */
-        IRawResource rawResource = null;
+        final List<IRawResource> rawResources;
 
-        /**
-         * 監視対象のクラス
-         */
-        WeakReference<GCResourceBase> parent;
+        GCTarget(GCResourceBase parent, List<IRawResource> rawResources, ReferenceQueue<GCResourceBase> queue) {
+            super(parent, queue);
+            this.rawResources = rawResources;
+        }
     }
 
     /**
-     * 監視対象のりソース一覧
+     * 監視対象のりソース一覧。<BR>
+     * GCTargetはequals()をオーバーライドしないため、インスタンスの同一性で管理される。
+     */
+    protected Set<GCTarget> marks = new HashSet<GCTarget>();
+
+    /**
+     * VMに回収された監視対象が登録される
+     */
+    protected ReferenceQueue<GCResourceBase> queue = new ReferenceQueue<GCResourceBase>();
+
+    /**
+     * 回収済みで、まだ解放していないリソース
+     */
+    protected List<IRawResource> pending = new LinkedList<IRawResource>();
+
+    /**
+     * 監視しているリソース数
      */
-    protected List<GCTarget> marks = new LinkedList<GarbageCollector.GCTarget>();
+    int rawResourceCount = 0;
 
     /**
      * 解放対象のハンドラ。
@@ -57,18 +79,19 @@ public class GarbageCollector {
      * gc対象に追加を行う。
      */
     public void add(GCResourceBase resource) {
-        // 関連するリソースを削除する
-        remove(resource);
-
         synchronized (marks) {
+            // 関連するリソースを削除する
+            removeTarget(resource);
+
             // 再度登録する
             List<IRawResource> resources = resource.getRawResources();
-            for (IRawResource r : resources) {
-                GCTarget gctarget = new GCTarget();
-                gctarget.parent = new WeakReference<GCResourceBase>(resource);
-                gctarget.rawResource = r;
-                marks.add(gctarget);
+            if (resources == null || resources.isEmpty()) {
+                return;
             }
+            GCTarget target = new GCTarget(resource, new ArrayList<IRawResource>(resources), queue);
+            marks.add(target);
+            rawResourceCount += resources.size();
+            resource.gcTarget = target;
         }
     }
 
@@ -77,18 +100,23 @@ public class GarbageCollector {
      */
     public void remove(GCResourceBase resource) {
         synchronized (marks) {
-            Iterator<GCTarget> iterator = marks.iterator();
-
-            while (iterator.hasNext()) {
-                final GCTarget next = iterator.next();
-                final GCResourceBase disposableGLResource = next.parent.get();
+            removeTarget(resource);
+        }
+    }
 
-                if (disposableGLResource == resource) {
-                    // 削除対象を見つけたから、単純にリストから排除する
-                    iterator.remove();
-                }
-            }
+    /**
+     * リソースに関連付けられた監視対象を外す。
+     *
+     * @return 外した監視対象。登録されていない場合はnull
+     */
+    private GCTarget removeTarget(GCResourceBase resource) {
+        final GCTarget target = resource.gcTarget;
+        if (target == null || !marks.remove(target)) {
+            return null;
         }
+        resource.gcTarget = null;
+        rawResourceCount -= target.rawResources.size();
+        return target;
     }
 
     /**
@@ -106,24 +134,22 @@ public class GarbageCollector {
         }
 
         synchronized (marks) {
-            Iterator<GCTarget> iterator = marks.iterator();
-            while (iterator.hasNext()) {
-                GCTarget gcTarget = iterator.next();
-                GCResourceBase check = gcTarget.parent.get();
-                if (check == null || check == resource) {
-                    _remove(gcTarget, true);
-                    iterator.remove();
+            GCTarget target = removeTarget(resource);
+            if (target != null) {
+                for (IRawResource raw : target.rawResources) {
+                    raw.dispose();
                 }
             }
         }
     }
 
     /**
-     * ガベージコレクション対象のクラス数を取得する。
+     * ガベージコレクション対象のクラス数を取得する。<BR>
+     * 回収済みで解放待ちのリソースも含む。
      */
     public int getGcTargetCount() {
         synchronized (marks) {
-            return marks.size();
+            return rawResourceCount + pending.size();
         }
     }
 
@@ -132,58 +158,62 @@ public class GarbageCollector {
      */
     public boolean isEmpty() {
         synchronized (marks) {
-            return marks.isEmpty();
+            return marks.isEmpty() && pending.isEmpty();
         }
     }
 
     /**
-     * 死んでいる参照を削除する。
-     *
-     * @param target  解放対象
-     * @param forcing 参照有無にかかわらず強制削除する場合はtrue
+     * 回収済みの監視対象をキューから取り出し、解放待ちへ移す。
      */
-    private void _remove(GCTarget target, boolean forcing) {
-        if (!forcing && target.parent.get() != null) {
-            return;
+    private void drainQueue() {
+        Reference<? extends GCResourceBase> ref;
+        while ((ref = queue.poll()) != null) {
+            final GCTarget target = (GCTarget) ref;
+            // 既にremove()・dispose()されている場合は何もしない
+            if (marks.remove(target)) {
+                rawResourceCount -= target.rawResources.size();
+                pending.addAll(target.rawResources);
+            }
         }
-
-        IRawResource resource = target.rawResource;
-        resource.dispose();
     }
 
     /**
-     * 不要なメモリを取り除く
+     * 不要なメモリを取り除く。<BR>
+     * VMに回収された監視対象のリソースを全て解放する。{@link System#gc()}は呼び出さない。
      *
      * @return 開放した資源の数
      */
     public int gc() {
+        return gc(Integer.MAX_VALUE);
+    }
+
+    /**
+     * 不要なメモリを取り除く。<BR>
+     * 1回で解放するリソース数に上限を設けるため、毎フレーム呼び出して少しずつ解放することができる。<BR>
+     * 上限を超えた分は次回の呼び出しで解放される。
+     *
+     * @param maxResources 解放するリソース数の上限
+     * @return 開放した資源の数
+     */
+    public int gc(final int maxResources) {
         if (handler != null && !ContextUtil.isHandlerThread(handler)) {
             handler.post(new Runnable() {
                 @Override
                 public void run() {
-                    gc();
+                    gc(maxResources);
                 }
             });
             return 0;
         }
 
         synchronized (marks) {
-            int result = 0;
-            Iterator<GCTarget> iterator = marks.iterator();
-            while (iterator.hasNext()) {
-                GCTarget gctarget = iterator.next();
-                // 参照が死んでるため、解放を行う。
-                if (gctarget.parent.get() == null) {
-                    _remove(gctarget, false);
-                    ++result;
-                    iterator.remove();
-                }
-            }
+            drainQueue();
 
-            if (result > 0) {
-                System.gc();
+            int result = 0;
+            while (result < maxResources && !pending.isEmpty()) {
+                pending.remove(0).dispose();
+                ++result;
             }
-
             return result;
         }
     }
@@ -194,20 +224,28 @@ public class GarbageCollector {
     public int delete() {
 
         synchronized (marks) {
-            int result = 0;
-            Iterator<GCTarget> iterator = marks.iterator();
-            while (iterator.hasNext()) {
-                GCTarget gctarget = iterator.next();
+            drainQueue();
 
+            int result = 0;
+            for (GCTarget target : marks) {
+                final GCResourceBase parent = target.get();
+                if (parent != null) {
+                    parent.gcTarget = null;
+                }
                 // 強制的に解放を行う。
-                _remove(gctarget, true);
-                ++result;
-                iterator.remove();
+                for (IRawResource raw : target.rawResources) {
+                    raw.dispose();
+                    ++result;
+                }
             }
+            marks.clear();
+            rawResourceCount = 0;
 
-            if (result > 0) {
-                System.gc();
+            for (IRawResource raw : pending) {
+                raw.dispose();
+                ++result;
             }
+            pending.clear();
             return result;
         }
     }
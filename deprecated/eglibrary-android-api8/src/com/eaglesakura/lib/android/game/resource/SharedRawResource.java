@@ -1,7 +1,8 @@
 package com.eaglesakura.lib.android.game.resource;
 
 /**
- * 複数箇所から参照を取れるように、リソースを共有する。
+ * 複数箇所から参照を取れるように、リソースを共有する。<BR>
+ * 参照カウントの操作は複数スレッドから行える。
  *
  * @author TAKESHI YAMASHITA
  */
@@ -18,7 +19,7 @@ public class SharedRawResource implements IRawResource {
     /**
      * 参照カウントを追加する
      */
-    public void addRef() {
+    public synchronized void addRef() {
         ++ref;
     }
 
@@ -26,7 +27,7 @@ public class SharedRawResource implements IRawResource {
      * 参照カウントが0になったら解放する。
      */
     @Override
-    public void dispose() {
+    public synchronized void dispose() {
         if (resource == null) {
             return;
         }
@@ -40,7 +41,7 @@ public class SharedRawResource implements IRawResource {
     /**
      * 管理対象のリソースを取得する。
      */
-    public IRawResource getResource() {
+    public synchronized IRawResource getResource() {
         return resource;
     }
 }
@@ -0,0 +1,256 @@
+package com.eaglesakura.lib.android.game.util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * ファイルのハッシュ計算を行う。<BR>
+ * 複数のハッシュを1回の読み込みで計算できるほか、チャンク単位で並列にハッシュを計算するツリーハッシュに対応する。
+ *
+ * @author TAKESHI YAMASHITA
+ */
+public class FileHash {
+    /**
+     * MD5を計算する
+     */
+    public static final int HASH_MD5 = 0x1 << 0;
+
+    /**
+     * SHA-1を計算する
+     */
+    public static final int HASH_SHA1 = 0x1 << 1;
+
+    /**
+     * xxHash64を計算する
+     */
+    public static final int HASH_XXHASH64 = 0x1 << 2;
+
+    /**
+     * 読み込みに使用するバッファサイズ
+     */
+    static final int READ_BUFFER_SIZE = 128 * 1024;
+
+    /**
+     * ツリーハッシュのデフォルトチャンクサイズ
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 4 * 1024 * 1024;
+
+    private String md5 = null;
+
+    private String sha1 = null;
+
+    private long xxhash64 = 0;
+
+    private FileHash() {
+    }
+
+    /**
+     * MD5を取得する。計算していない場合はnullを返す。
+     */
+    public String getMD5() {
+        return md5;
+    }
+
+    /**
+     * SHA-1を取得する。計算していない場合はnullを返す。
+     */
+    public String getSHA1() {
+        return sha1;
+    }
+
+    /**
+     * xxHash64を取得する。
+     */
+    public long getXXHash64() {
+        return xxhash64;
+    }
+
+    /**
+     * xxHash64を16進数文字列で取得する。
+     */
+    public String getXXHash64String() {
+        return toHexString(xxhash64);
+    }
+
+    /**
+     * ファイルを1回だけ読み込み、flagsで指定した全てのハッシュを計算する。
+     *
+     * @param file  対象ファイル
+     * @param flags {@link #HASH_MD5} | {@link #HASH_SHA1} | {@link #HASH_XXHASH64}
+     */
+    public static FileHash calc(File file, int flags) throws IOException {
+        final MessageDigest md5 = GameUtil.isFlagOn(flags, HASH_MD5) ? newDigest("MD5") : null;
+        final MessageDigest sha1 = GameUtil.isFlagOn(flags, HASH_SHA1) ? newDigest("SHA-1") : null;
+        final XXHash64 xxhash = GameUtil.isFlagOn(flags, HASH_XXHASH64) ? new XXHash64() : null;
+
+        FileInputStream is = new FileInputStream(file);
+        try {
+            final FileChannel channel = is.getChannel();
+            final ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+            final byte[] array = buffer.array();
+            int readed = 0;
+            while ((readed = channel.read(buffer)) >= 0) {
+                if (readed == 0) {
+                    continue;
+                }
+                if (md5 != null) {
+                    md5.update(array, 0, readed);
+                }
+                if (sha1 != null) {
+                    sha1.update(array, 0, readed);
+                }
+                if (xxhash != null) {
+                    xxhash.update(array, 0, readed);
+                }
+                buffer.clear();
+            }
+        } finally {
+            is.close();
+        }
+
+        FileHash result = new FileHash();
+        if (md5 != null) {
+            result.md5 = toHexString(md5.digest());
+        }
+        if (sha1 != null) {
+            result.sha1 = toHexString(sha1.digest());
+        }
+        if (xxhash != null) {
+            result.xxhash64 = xxhash.getValue();
+        }
+        return result;
+    }
+
+    /**
+     * チャンク単位で並列にハッシュを計算し、ツリーハッシュを求める。<BR>
+     * 各チャンクのハッシュを順に連結し、さらにハッシュを計算した値を返す。<BR>
+     * 戻り値は通常のファイルハッシュとは一致しないため、同じチャンクサイズ同士で比較すること。
+     *
+     * @param file      対象ファイル
+     * @param algorithm "MD5" / "SHA-1" 等のMessageDigestアルゴリズム名
+     * @param chunkSize チャンクのバイト数
+     * @param executor  計算を行うスレッドプール
+     */
+    public static String calcTreeHash(final File file, final String algorithm, final int chunkSize, ExecutorService executor)
+            throws IOException {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize error :: " + chunkSize);
+        }
+        newDigest(algorithm);
+
+        FileInputStream is = new FileInputStream(file);
+        try {
+            final FileChannel channel = is.getChannel();
+            final long length = channel.size();
+            final List<Future<byte[]>> chunks = new ArrayList<Future<byte[]>>();
+
+            long position = 0;
+            do {
+                final long chunkHeader = position;
+                final int chunkLength = (int) Math.min(chunkSize, length - position);
+                chunks.add(executor.submit(new Callable<byte[]>() {
+                    @Override
+                    public byte[] call() throws Exception {
+                        return digestChunk(channel, algorithm, chunkHeader, chunkLength);
+                    }
+                }));
+                position += chunkLength;
+            } while (position < length);
+
+            final MessageDigest root = newDigest(algorithm);
+            for (Future<byte[]> chunk : chunks) {
+                root.update(chunk.get());
+            }
+            return toHexString(root.digest());
+        } catch (InterruptedException e) {
+            throw new IOException("tree hash interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("tree hash failed :: " + e.getCause());
+        } finally {
+            is.close();
+        }
+    }
+
+    /**
+     * 端末のコア数分のスレッドでツリーハッシュを計算する。
+     */
+    public static String calcTreeHash(File file, String algorithm, int chunkSize) throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        try {
+            return calcTreeHash(file, algorithm, chunkSize, executor);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * チャンク1つ分のハッシュを計算する。<BR>
+     * 位置指定の読み込みを行うため、複数スレッドから同じチャンネルを利用できる。
+     */
+    static byte[] digestChunk(FileChannel channel, String algorithm, long header, int length) throws IOException {
+        final MessageDigest md = newDigest(algorithm);
+        final ByteBuffer buffer = ByteBuffer.allocate(Math.min(length, READ_BUFFER_SIZE));
+        final byte[] array = buffer.array();
+
+        long position = header;
+        final long end = header + length;
+        while (position < end) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), end - position));
+            final int readed = channel.read(buffer, position);
+            if (readed < 0) {
+                break;
+            }
+            md.update(array, 0, readed);
+            position += readed;
+        }
+        return md.digest();
+    }
+
+    static MessageDigest newDigest(String algorithm) throws IOException {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("algorithm not found :: " + algorithm);
+        }
+    }
+
+    /**
+     * バイト配列を16進数文字列に変換する。
+     */
+    static String toHexString(byte[] digest) {
+        StringBuffer sBuffer = new StringBuffer(digest.length * 2);
+        for (byte b : digest) {
+            String s = Integer.toHexString(((int) b) & 0xff);
+
+            if (s.length() == 1) {
+                sBuffer.append('0');
+            }
+            sBuffer.append(s);
+        }
+        return sBuffer.toString();
+    }
+
+    static String toHexString(long value) {
+        String s = Long.toHexString(value);
+        while (s.length() < 16) {
+            s = "0" + s;
+        }
+        return s;
+    }
+}
@@ -0,0 +1,259 @@
+package com.eaglesakura.lib.android.game.util;
+
+import com.eaglesakura.lib.io.DataInputStream;
+import com.eaglesakura.lib.io.DataOutputStream;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * ファイルパスとハッシュの対応を保持するインデックス。<BR>
+ * ファイルサイズ・最終更新日が前回計算時から変わっていない場合、ハッシュの再計算を行わない。<BR>
+ * 更新日の精度はファイルシステムに依存するため、同一秒内に同サイズで書き換えられたファイルは検出できない。
+ *
+ * @author TAKESHI YAMASHITA
+ */
+public class FileHashIndex {
+    /**
+     * 保存形式の識別子
+     */
+    static final int FILE_MAGIC = 0x46484958;
+
+    /**
+     * 保存形式のバージョン
+     */
+    static final int FILE_VERSION = 1;
+
+    /**
+     * 短縮ハッシュの比較バイト数。<BR>
+     * 0の場合はファイル全体のSHA-1を利用する。
+     */
+    final int shortHashLength;
+
+    /**
+     * 絶対パスをキーにしたエントリ
+     */
+    final Map<String, Entry> entries = new HashMap<String, Entry>();
+
+    /**
+     * 変更があればtrue
+     */
+    boolean modified = false;
+
+    /**
+     * ファイル全体のSHA-1を利用するインデックスを作成する。
+     */
+    public FileHashIndex() {
+        this(0);
+    }
+
+    /**
+     * {@link FileUtil#genShortHash(File, int)}を利用するインデックスを作成する。
+     *
+     * @param shortHashLength 先頭・末尾の比較バイト数。0の場合はSHA-1を利用する。
+     */
+    public FileHashIndex(int shortHashLength) {
+        this.shortHashLength = shortHashLength;
+    }
+
+    /**
+     * ファイルのハッシュを取得する。<BR>
+     * サイズ・更新日が記録と一致する場合は記録済みのハッシュを返し、それ以外の場合は再計算する。
+     *
+     * @return ハッシュ。ファイルが存在しない場合はnull
+     */
+    public String getHash(File file) {
+        final String path = file.getAbsolutePath();
+        if (!file.isFile()) {
+            if (entries.remove(path) != null) {
+                modified = true;
+            }
+            return null;
+        }
+
+        final long length = file.length();
+        final long lastModified = file.lastModified();
+        Entry entry = entries.get(path);
+        if (entry != null && entry.length == length && entry.lastModified == lastModified) {
+            return entry.hash;
+        }
+
+        final String hash = shortHashLength > 0 ? FileUtil.genShortHash(file, shortHashLength) : FileUtil.genSHA1(file);
+        if (hash == null) {
+            return null;
+        }
+        entries.put(path, new Entry(length, lastModified, hash));
+        modified = true;
+        return hash;
+    }
+
+    /**
+     * ディレクトリ以下の全てのファイルを走査し、インデックスを更新する。<BR>
+     * 存在しなくなったファイルはインデックスから取り除かれる。
+     *
+     * @return ハッシュを再計算したファイル数
+     */
+    public int scan(File root) {
+        final String rootPath = root.getAbsolutePath();
+        // 削除されたファイルを取り除く
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            final String path = iterator.next().getKey();
+            if (path.startsWith(rootPath) && !new File(path).isFile()) {
+                iterator.remove();
+                modified = true;
+            }
+        }
+        return scanImpl(root);
+    }
+
+    private int scanImpl(File file) {
+        if (file.isFile()) {
+            final Entry before = entries.get(file.getAbsolutePath());
+            getHash(file);
+            return before == entries.get(file.getAbsolutePath()) ? 0 : 1;
+        }
+
+        int result = 0;
+        File[] files = file.listFiles();
+        if (files != null) {
+            for (File child : files) {
+                result += scanImpl(child);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * インデックスからファイルを取り除く。
+     */
+    public void remove(File file) {
+        if (entries.remove(file.getAbsolutePath()) != null) {
+            modified = true;
+        }
+    }
+
+    /**
+     * 記録しているファイル数を取得する。
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * 読み込み・保存後に変更があればtrue
+     */
+    public boolean isModified() {
+        return modified;
+    }
+
+    /**
+     * コピー先が存在しない、もしくはハッシュが一致しない場合のみコピーを行う。<BR>
+     * ハッシュはインデックスを通して取得するため、変更のないファイルは再計算されない。
+     *
+     * @return コピーを行った場合はtrue
+     */
+    public boolean copyOrUpdate(File src, File dst) throws IOException {
+        final String srcHash = getHash(src);
+        if (dst.isFile() && srcHash != null && srcHash.equals(getHash(dst))) {
+            return false;
+        }
+
+        FileUtil.copy(src, dst);
+        // コピー先は内容が一致しているため、再計算せずに記録する
+        if (srcHash != null) {
+            entries.put(dst.getAbsolutePath(), new Entry(dst.length(), dst.lastModified(), srcHash));
+            modified = true;
+        }
+        return true;
+    }
+
+    /**
+     * インデックスをファイルへ保存する。
+     */
+    public void save(File indexFile) throws IOException {
+        FileUtil.mkdir(indexFile.getAbsoluteFile().getParentFile());
+        DataOutputStream stream = new DataOutputStream(new FileOutputStream(indexFile), 32 * 1024);
+        try {
+            stream.writeS32(FILE_MAGIC);
+            stream.writeVarU32(FILE_VERSION);
+            stream.writeVarU32(shortHashLength);
+            stream.writeVarU32(entries.size());
+            for (Map.Entry<String, Entry> it : entries.entrySet()) {
+                final byte[] path = it.getKey().getBytes("UTF-8");
+                final Entry entry = it.getValue();
+                stream.writeVarU32(path.length);
+                stream.writeBuffer(path, 0, path.length);
+                stream.writeVarU64(entry.length);
+                stream.writeVarU64(entry.lastModified);
+                stream.writeString(entry.hash);
+            }
+            stream.flush();
+        } finally {
+            stream.dispose();
+        }
+        modified = false;
+    }
+
+    /**
+     * ファイルからインデックスを読み込む。<BR>
+     * ファイルが存在しない・形式が異なる・破損している場合は空のインデックスを返す。
+     *
+     * @param indexFile       保存先
+     * @param shortHashLength 短縮ハッシュの比較バイト数。保存時と異なる場合は記録を破棄する。
+     */
+    public static FileHashIndex load(File indexFile, int shortHashLength) {
+        FileHashIndex result = new FileHashIndex(shortHashLength);
+        if (!indexFile.isFile()) {
+            return result;
+        }
+
+        DataInputStream stream = null;
+        try {
+            stream = new DataInputStream(new FileInputStream(indexFile), 32 * 1024);
+            if (stream.readS32() != FILE_MAGIC || stream.readVarU32() != FILE_VERSION
+                    || stream.readVarU32() != shortHashLength) {
+                return result;
+            }
+
+            final int num = stream.readVarU32();
+            for (int i = 0; i < num; ++i) {
+                final String path = new String(stream.readBuffer(stream.readVarU32()), "UTF-8");
+                final long length = stream.readVarU64();
+                final long lastModified = stream.readVarU64();
+                final String hash = stream.readString();
+                result.entries.put(path, new Entry(length, lastModified, hash));
+            }
+        } catch (Exception e) {
+            LogUtil.log(e);
+            result.entries.clear();
+        } finally {
+            if (stream != null) {
+                stream.dispose();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 1ファイル分の記録
+     */
+    static class Entry {
+        final long length;
+
+        final long lastModified;
+
+        final String hash;
+
+        Entry(long length, long lastModified, String hash) {
+            this.length = length;
+            this.lastModified = lastModified;
+            this.hash = hash;
+        }
+    }
+}
@@ -6,7 +6,7 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.security.MessageDigest;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
@@ -63,35 +63,22 @@ public class FileUtil {
         }
     }
 
+    /**
+     * インデックスを利用してcopyOrUpdateを行う。<BR>
+     * 前回から変更のないファイルはハッシュを再計算しない。
+     *
+     * @return コピーを行った場合はtrue
+     */
+    public static final boolean copyOrUpdate(File src, File dst, FileHashIndex index) throws IOException {
+        return index.copyOrUpdate(src, dst);
+    }
+
     /**
      * ファイルからMD5を求める。
      */
     public static String genMD5(File file) {
         try {
-
-            FileInputStream is = new FileInputStream(file);
-            final MessageDigest md = MessageDigest.getInstance("MD5");
-            {
-                byte[] buffer = new byte[128 * 1024];
-                int readed = 0;
-
-                while ((readed = is.read(buffer)) > 0) {
-                    md.update(buffer, 0, readed);
-                }
-            }
-            is.close();
-            byte[] digest = md.digest();
-
-            StringBuffer sBuffer = new StringBuffer(digest.length * 2);
-            for (byte b : digest) {
-                String s = Integer.toHexString(((int) b) & 0xff);
-
-                if (s.length() == 1) {
-                    sBuffer.append('0');
-                }
-                sBuffer.append(s);
-            }
-            return sBuffer.toString();
+            return FileHash.calc(file, FileHash.HASH_MD5).getMD5();
         } catch (Exception e) {
             return null;
         }
@@ -112,28 +99,16 @@ public class FileUtil {
         }
 
         try {
-            String start = null;
-            String end = null;
-            // 先頭の任意バイトを読み込む
-            {
-                byte[] buffer = new byte[checkLength];
-                FileInputStream is = new FileInputStream(file);
-                is.read(buffer);
-                is.close();
-                start = EncodeUtil.genMD5(buffer);
-            }
-            // 末尾の任意バイトを読み込む
-            {
-                byte[] buffer = new byte[checkLength];
-                FileInputStream is = new FileInputStream(file);
-                is.skip(file.length() - checkLength);
-                is.read(buffer);
+            FileInputStream is = new FileInputStream(file);
+            try {
+                final FileChannel channel = is.getChannel();
+                // 先頭と末尾の任意バイトを、同じチャンネルから位置指定で読み込む
+                String start = FileHash.toHexString(FileHash.digestChunk(channel, "MD5", 0, checkLength));
+                String end = FileHash.toHexString(FileHash.digestChunk(channel, "MD5", channel.size() - checkLength, checkLength));
+                return start + end;
+            } finally {
                 is.close();
-                end = EncodeUtil.genMD5(buffer);
             }
-
-            return start + end;
-
         } catch (Exception e) {
             return null;
         }
@@ -144,30 +119,7 @@ public class FileUtil {
      */
     public static String genSHA1(File file) {
         try {
-
-            FileInputStream is = new FileInputStream(file);
-            final MessageDigest md = MessageDigest.getInstance("SHA-1");
-            {
-                byte[] buffer = new byte[128 * 1024];
-                int readed = 0;
-
-                while ((readed = is.read(buffer)) > 0) {
-                    md.update(buffer, 0, readed);
-                }
-            }
-            is.close();
-            byte[] digest = md.digest();
-
-            StringBuffer sBuffer = new StringBuffer(digest.length * 2);
-            for (byte b : digest) {
-                String s = Integer.toHexString(((int) b) & 0xff);
-
-                if (s.length() == 1) {
-                    sBuffer.append('0');
-                }
-                sBuffer.append(s);
-            }
-            return sBuffer.toString();
+            return FileHash.calc(file, FileHash.HASH_SHA1).getSHA1();
         } catch (Exception e) {
             return null;
         }
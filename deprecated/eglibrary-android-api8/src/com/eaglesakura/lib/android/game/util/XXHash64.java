@@ -0,0 +1,183 @@
+package com.eaglesakura.lib.android.game.util;
+
+import java.util.zip.Checksum;
+
+/**
+ * xxHash64による非暗号学的ハッシュを計算する。<BR>
+ * MD5/SHA-1に比べて高速なため、破損チェック等の用途に利用する。<BR>
+ * データは分割して与えることができる。
+ */
+public class XXHash64 implements Checksum {
+    private static final long PRIME64_1 = 0x9E3779B185EBCA87L;
+    private static final long PRIME64_2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long PRIME64_3 = 0x165667B19E3779F9L;
+    private static final long PRIME64_4 = 0x85EBCA77C2B2AE63L;
+    private static final long PRIME64_5 = 0x27D4EB2F165667C5L;
+
+    /**
+     * シード値
+     */
+    private final long seed;
+
+    private long v1;
+    private long v2;
+    private long v3;
+    private long v4;
+
+    /**
+     * 入力されたバイト数
+     */
+    private long totalLength;
+
+    /**
+     * 32バイトに満たない入力の一時保存領域
+     */
+    private final byte[] memory = new byte[32];
+
+    /**
+     * {@link #memory}に格納されているバイト数
+     */
+    private int memorySize;
+
+    public XXHash64() {
+        this(0);
+    }
+
+    public XXHash64(long seed) {
+        this.seed = seed;
+        reset();
+    }
+
+    @Override
+    public void reset() {
+        v1 = seed + PRIME64_1 + PRIME64_2;
+        v2 = seed + PRIME64_2;
+        v3 = seed;
+        v4 = seed - PRIME64_1;
+        totalLength = 0;
+        memorySize = 0;
+    }
+
+    @Override
+    public void update(int b) {
+        memory[memorySize++] = (byte) b;
+        ++totalLength;
+        if (memorySize == 32) {
+            consume(memory, 0);
+            memorySize = 0;
+        }
+    }
+
+    @Override
+    public void update(byte[] buffer, int offset, int length) {
+        totalLength += length;
+        final int end = offset + length;
+
+        //! 前回の残りを埋める
+        if (memorySize > 0) {
+            final int fill = Math.min(32 - memorySize, length);
+            System.arraycopy(buffer, offset, memory, memorySize, fill);
+            memorySize += fill;
+            offset += fill;
+            if (memorySize < 32) {
+                return;
+            }
+            consume(memory, 0);
+            memorySize = 0;
+        }
+
+        //! 32バイト単位で処理する
+        while (offset + 32 <= end) {
+            consume(buffer, offset);
+            offset += 32;
+        }
+
+        //! 残りは次回へ回す
+        if (offset < end) {
+            memorySize = end - offset;
+            System.arraycopy(buffer, offset, memory, 0, memorySize);
+        }
+    }
+
+    public void update(byte[] buffer) {
+        update(buffer, 0, buffer.length);
+    }
+
+    @Override
+    public long getValue() {
+        long h;
+        if (totalLength >= 32) {
+            h = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+            h = mergeRound(h, v1);
+            h = mergeRound(h, v2);
+            h = mergeRound(h, v3);
+            h = mergeRound(h, v4);
+        } else {
+            h = seed + PRIME64_5;
+        }
+        h += totalLength;
+
+        int ptr = 0;
+        while (ptr + 8 <= memorySize) {
+            h ^= round(0, readLong(memory, ptr));
+            h = Long.rotateLeft(h, 27) * PRIME64_1 + PRIME64_4;
+            ptr += 8;
+        }
+        if (ptr + 4 <= memorySize) {
+            h ^= (((long) readInt(memory, ptr)) & 0xFFFFFFFFL) * PRIME64_1;
+            h = Long.rotateLeft(h, 23) * PRIME64_2 + PRIME64_3;
+            ptr += 4;
+        }
+        while (ptr < memorySize) {
+            h ^= (((long) memory[ptr]) & 0xff) * PRIME64_5;
+            h = Long.rotateLeft(h, 11) * PRIME64_1;
+            ++ptr;
+        }
+
+        h ^= h >>> 33;
+        h *= PRIME64_2;
+        h ^= h >>> 29;
+        h *= PRIME64_3;
+        h ^= h >>> 32;
+        return h;
+    }
+
+    /**
+     * 32バイトを処理する。
+     */
+    private void consume(byte[] buffer, int offset) {
+        v1 = round(v1, readLong(buffer, offset));
+        v2 = round(v2, readLong(buffer, offset + 8));
+        v3 = round(v3, readLong(buffer, offset + 16));
+        v4 = round(v4, readLong(buffer, offset + 24));
+    }
+
+    private static long round(long acc, long input) {
+        acc += input * PRIME64_2;
+        acc = Long.rotateLeft(acc, 31);
+        return acc * PRIME64_1;
+    }
+
+    private static long mergeRound(long acc, long value) {
+        acc ^= round(0, value);
+        return acc * PRIME64_1 + PRIME64_4;
+    }
+
+    /**
+     * リトルエンディアンで8バイト読み込む。
+     */
+    private static long readLong(byte[] buffer, int offset) {
+        return (((long) buffer[offset]) & 0xff) | ((((long) buffer[offset + 1]) & 0xff) << 8)
+                | ((((long) buffer[offset + 2]) & 0xff) << 16) | ((((long) buffer[offset + 3]) & 0xff) << 24)
+                | ((((long) buffer[offset + 4]) & 0xff) << 32) | ((((long) buffer[offset + 5]) & 0xff) << 40)
+                | ((((long) buffer[offset + 6]) & 0xff) << 48) | ((((long) buffer[offset + 7]) & 0xff) << 56);
+    }
+
+    /**
+     * リトルエンディアンで4バイト読み込む。
+     */
+    private static int readInt(byte[] buffer, int offset) {
+        return (((int) buffer[offset]) & 0xff) | ((((int) buffer[offset + 1]) & 0xff) << 8)
+                | ((((int) buffer[offset + 2]) & 0xff) << 16) | ((((int) buffer[offset + 3]) & 0xff) << 24);
+    }
+}
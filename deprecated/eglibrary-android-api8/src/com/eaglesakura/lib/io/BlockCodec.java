@@ -0,0 +1,138 @@
+package com.eaglesakura.lib.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 圧縮ブロックの符号化・復号を行う。<BR>
+ * ブロックは以下の形式で保存される。<BR>
+ * S8 : 符号化方式（{@link #CODEC_STORED} / {@link #CODEC_DEFLATE}）<BR>
+ * VarU32 : 元データのバイト数<BR>
+ * VarU32 : 保存データのバイト数<BR>
+ * S32 : 元データのCRC32<BR>
+ * 保存データ本体
+ */
+final class BlockCodec {
+    /**
+     * 無圧縮で保存する。<BR>
+     * 圧縮しても小さくならない場合に利用される。
+     */
+    static final byte CODEC_STORED = 0;
+
+    /**
+     * Deflateで圧縮して保存する。
+     */
+    static final byte CODEC_DEFLATE = 1;
+
+    /**
+     * 1ブロックの元データ・保存データとして許容する最大バイト数。<BR>
+     * 壊れたヘッダの長さをそのまま配列確保に使わないための上限。
+     */
+    static final int MAX_BLOCK_LENGTH = 256 * 1024 * 1024;
+
+    /**
+     * Deflateの最大圧縮率。<BR>
+     * 保存データのバイト数に対して、元データがこれを超えて大きくなることは無い。
+     */
+    static final int MAX_DEFLATE_RATIO = 1032;
+
+    private BlockCodec() {
+    }
+
+    /**
+     * ブロックのヘッダを検証する。<BR>
+     * 保存データの読み込み・元データの配列確保の前に呼び出すこと。
+     */
+    static void checkHeader(byte codec, int rawLength, int storedLength) throws IOException {
+        if (rawLength < 0 || rawLength > MAX_BLOCK_LENGTH || storedLength < 0 || storedLength > MAX_BLOCK_LENGTH) {
+            throw new IOException("block length error :: " + rawLength + " / " + storedLength);
+        }
+        if (codec == CODEC_STORED) {
+            if (storedLength != rawLength) {
+                throw new IOException("block length error :: " + storedLength + " / " + rawLength);
+            }
+        } else if (codec == CODEC_DEFLATE) {
+            if ((long) rawLength > (long) storedLength * MAX_DEFLATE_RATIO) {
+                throw new IOException("block length error :: " + rawLength + " / " + storedLength);
+            }
+        } else {
+            throw new IOException("unknown block codec :: " + codec);
+        }
+    }
+
+    /**
+     * CRC32を計算する。
+     */
+    static int crc32(byte[] buffer, int offset, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer, offset, length);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Deflateで圧縮する。
+     */
+    static byte[] deflate(byte[] buffer, int offset, int length) {
+        Deflater deflater = new Deflater();
+        try {
+            deflater.setInput(buffer, offset, length);
+            deflater.finish();
+
+            ByteArrayOutputStream result = new ByteArrayOutputStream(Math.max(length / 2, 64));
+            byte[] temp = new byte[Math.min(Math.max(length, 64), 32 * 1024)];
+            while (!deflater.finished()) {
+                int deflated = deflater.deflate(temp);
+                result.write(temp, 0, deflated);
+            }
+            return result.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * 保存されたブロックを元に戻し、CRCの検証を行う。
+     */
+    static byte[] decode(byte codec, byte[] stored, int rawLength, int crc) throws IOException {
+        checkHeader(codec, rawLength, stored.length);
+        byte[] result;
+        if (codec == CODEC_STORED) {
+            result = stored;
+        } else if (codec == CODEC_DEFLATE) {
+            result = new byte[rawLength];
+            Inflater inflater = new Inflater();
+            try {
+                inflater.setInput(stored);
+                int inflated = 0;
+                while (inflated < rawLength && !inflater.finished()) {
+                    int n = inflater.inflate(result, inflated, rawLength - inflated);
+                    if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                        break;
+                    }
+                    inflated += n;
+                }
+                if (inflated != rawLength) {
+                    throw new IOException("block length error :: " + inflated + " / " + rawLength);
+                }
+            } catch (DataFormatException e) {
+                throw new IOException("block format error :: " + e.getMessage());
+            } finally {
+                inflater.end();
+            }
+        } else {
+            throw new IOException("unknown block codec :: " + codec);
+        }
+
+        if (result.length != rawLength) {
+            throw new IOException("block length error :: " + result.length + " / " + rawLength);
+        }
+        if (crc32(result, 0, result.length) != crc) {
+            throw new IOException("block checksum error");
+        }
+        return result;
+    }
+}
@@ -6,8 +6,10 @@ package com.eaglesakura.lib.io;
 import com.eaglesakura.lib.android.game.resource.DisposableResource;
 import com.eaglesakura.lib.android.game.util.LogUtil;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 /**
  * データ入力を補助するクラス。
@@ -16,11 +18,44 @@ import java.io.InputStream;
  *
  */
 public final class DataInputStream extends DisposableResource {
+    /**
+     * 配列の変換に利用する作業領域のバイト数。
+     */
+    private static final int ARRAY_WORK_SIZE = 8 * 1024;
+
     /**
      * 読み取りに使用するリーダー。
      */
     private InputStream reader = null;
 
+    /**
+     * 基本型の読み込みに使用する作業領域。<BR>
+     * 呼び出し毎の配列確保を避けるため、使い回す。
+     */
+    private final byte[] work = new byte[8];
+
+    /**
+     * 先読み用のバッファ。<BR>
+     * nullの場合、{@link #reader}から直接読み込む。
+     */
+    private byte[] buffer = null;
+
+    /**
+     * {@link #buffer}の読み込み位置。
+     */
+    private int bufferPosition = 0;
+
+    /**
+     * {@link #buffer}に格納されている有効なバイト数。
+     */
+    private int bufferLength = 0;
+
+    /**
+     * 配列変換用の作業領域。<BR>
+     * ビッグエンディアンのまま、各型のビューを通して変換を行う。
+     */
+    private ByteBuffer arrayWork = null;
+
     /**
      *
      *
@@ -31,6 +66,48 @@ public final class DataInputStream extends DisposableResource {
         reader = is;
     }
 
+    /**
+     * 内部バッファを利用して読み込みを行う。<BR>
+     * 細かい読み込みが多数発生する場合、InputStreamへのアクセス回数を減らすことができる。
+     *
+     * @param is
+     * @param bufferSize 先読みを行うバッファサイズ
+     */
+    public DataInputStream(InputStream is, int bufferSize) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("bufferSize error :: " + bufferSize);
+        }
+        reader = is;
+        buffer = new byte[bufferSize];
+    }
+
+    /**
+     * 指定したバイト数を必ず読み込む。<BR>
+     * 途中で終端に達した場合は例外を投げる。
+     */
+    private void readFully(byte[] buf, int index, int length) throws IOException {
+        final int readed = readBuffer(buf, index, length);
+        if (readed < length) {
+            throw new EOFException("require(" + length + ") readed(" + readed + ")");
+        }
+    }
+
+    /**
+     * 先読みバッファを再度満たす。
+     *
+     * @return 終端に達していたらfalse
+     */
+    private boolean fillBuffer() throws IOException {
+        bufferPosition = 0;
+        bufferLength = 0;
+        final int readed = reader.read(buffer, 0, buffer.length);
+        if (readed <= 0) {
+            return false;
+        }
+        bufferLength = readed;
+        return true;
+    }
+
     /**
      * バッファから１バイト読み取る。
      *
@@ -39,11 +116,11 @@ public final class DataInputStream extends DisposableResource {
      *
      */
     public byte readS8() throws IOException {
-        byte[] n = {
-                0
-        };
-        reader.read(n, 0, n.length);
-        return n[0];
+        if (buffer != null && bufferPosition < bufferLength) {
+            return buffer[bufferPosition++];
+        }
+        readFully(work, 0, 1);
+        return work[0];
     }
 
     /**
@@ -54,10 +131,8 @@ public final class DataInputStream extends DisposableResource {
      *
      */
     public short readS16() throws IOException {
-        byte[] n = {
-                0, 0
-        };
-        reader.read(n, 0, n.length);
+        final byte[] n = work;
+        readFully(n, 0, 2);
 
         int n0 = ((int) n[0] & 0xff);
         int n1 = ((int) n[1] & 0xff);
@@ -74,10 +149,8 @@ public final class DataInputStream extends DisposableResource {
      *
      */
     public int readS24() throws IOException {
-        byte[] n = {
-                0, 0, 0
-        };
-        reader.read(n, 0, n.length);
+        final byte[] n = work;
+        readFully(n, 0, 3);
 
         return (int) (((((int) n[0]) & 0xff) << 16) | ((((int) n[1]) & 0xff) << 8) | ((((int) n[2]) & 0xff) << 0));
     }
@@ -112,10 +185,8 @@ public final class DataInputStream extends DisposableResource {
      *
      */
     public int readS32() throws IOException {
-        byte[] n = {
-                0, 0, 0, 0
-        };
-        reader.read(n, 0, n.length);
+        final byte[] n = work;
+        readFully(n, 0, 4);
 
         int n0 = ((int) n[0] & 0xff);
         int n1 = ((int) n[1] & 0xff);
@@ -133,10 +204,8 @@ public final class DataInputStream extends DisposableResource {
      *
      */
     public long readS64() throws IOException {
-        byte[] n = {
-                0, 0, 0, 0, 0, 0, 0, 0
-        };
-        reader.read(n, 0, n.length);
+        final byte[] n = work;
+        readFully(n, 0, 8);
 
         long n0 = ((int) n[0] & 0xff);
         long n1 = ((int) n[1] & 0xff);
@@ -153,31 +222,183 @@ public final class DataInputStream extends DisposableResource {
     }
 
     /**
-     * write64Arrayした配列を取り出す。
+     * 可変長（LEB128）で保存された符号無整数を読み取る。
+     */
+    public int readVarU32() throws IOException {
+        int result = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            final int n = readS8();
+            result |= (n & 0x7f) << shift;
+            if ((n & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IOException("varint format error");
+    }
+
+    /**
+     * 可変長（LEB128）で保存された符号無整数を読み取る。
+     */
+    public long readVarU64() throws IOException {
+        long result = 0;
+        for (int shift = 0; shift < 70; shift += 7) {
+            final int n = readS8();
+            result |= ((long) (n & 0x7f)) << shift;
+            if ((n & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IOException("varint format error");
+    }
+
+    /**
+     * ZigZag変換して可変長で保存された符号付き整数を読み取る。
+     */
+    public int readVarS32() throws IOException {
+        final int n = readVarU32();
+        return (n >>> 1) ^ -(n & 1);
+    }
+
+    /**
+     * ZigZag変換して可変長で保存された符号付き整数を読み取る。
+     */
+    public long readVarS64() throws IOException {
+        final long n = readVarU64();
+        return (n >>> 1) ^ -(n & 1);
+    }
+
+    /**
+     * writeS16ArrayWithLengthした配列を取り出す。
+     */
+    public short[] readS16Array() throws IOException {
+        //! 配列数を取り出す
+        final short[] result = new short[readS32()];
+        readS16Array(result, 0, result.length);
+        return result;
+    }
+
+    /**
+     * writeS32ArrayWithLengthした配列を取り出す。
+     */
+    public int[] readS32Array() throws IOException {
+        final int[] result = new int[readS32()];
+        readS32Array(result, 0, result.length);
+        return result;
+    }
+
+    /**
+     * writeS64ArrayWithLengthした配列を取り出す。
      * @return
      * @throws IOException
      */
     public long[] readS64Array() throws IOException {
-        //! 配列数を取り出す
-        final int length = readS32();
-        final long[] result = new long[length];
-        final byte[] buffer = readBuffer(result.length * 8);
-        int ptr = 0;
-        //! longに変換する。
-        for (int i = 0; i < length; ++i) {
-            result[i] |= (long) ((((long) buffer[ptr++]) & 0xff) << 56);
-            result[i] |= (long) ((((long) buffer[ptr++]) & 0xff) << 48);
-            result[i] |= (long) ((((long) buffer[ptr++]) & 0xff) << 40);
-            result[i] |= (long) ((((long) buffer[ptr++]) & 0xff) << 32);
-            result[i] |= (long) ((((long) buffer[ptr++]) & 0xff) << 24);
-            result[i] |= (long) ((((long) buffer[ptr++]) & 0xff) << 16);
-            result[i] |= (long) ((((long) buffer[ptr++]) & 0xff) << 8);
-            result[i] |= (long) ((((long) buffer[ptr++]) & 0xff) << 0);
-        }
+        final long[] result = new long[readS32()];
+        readS64Array(result, 0, result.length);
+        return result;
+    }
+
+    /**
+     * writeFloatArrayWithLengthした配列を取り出す。
+     */
+    public float[] readFloatArray() throws IOException {
+        final float[] result = new float[readS32()];
+        readFloatArray(result, 0, result.length);
+        return result;
+    }
 
+    /**
+     * writeDoubleArrayWithLengthした配列を取り出す。
+     */
+    public double[] readDoubleArray() throws IOException {
+        final double[] result = new double[readS32()];
+        readDoubleArray(result, 0, result.length);
         return result;
     }
 
+    /**
+     * 2バイト整数の配列を指定数読み取る。<BR>
+     * 長さを含まない（writeS16Arrayした）配列に対応する。
+     */
+    public void readS16Array(short[] result, int offset, int length) throws IOException {
+        final int step = ARRAY_WORK_SIZE / 2;
+        while (length > 0) {
+            final int n = Math.min(length, step);
+            readArrayChunk(n * 2).asShortBuffer().get(result, offset, n);
+            offset += n;
+            length -= n;
+        }
+    }
+
+    /**
+     * 4バイト整数の配列を指定数読み取る。<BR>
+     * 長さを含まない（writeS32Arrayした）配列に対応する。
+     */
+    public void readS32Array(int[] result, int offset, int length) throws IOException {
+        final int step = ARRAY_WORK_SIZE / 4;
+        while (length > 0) {
+            final int n = Math.min(length, step);
+            readArrayChunk(n * 4).asIntBuffer().get(result, offset, n);
+            offset += n;
+            length -= n;
+        }
+    }
+
+    /**
+     * 8バイト整数の配列を指定数読み取る。<BR>
+     * 長さを含まない（writeS64Arrayした）配列に対応する。
+     */
+    public void readS64Array(long[] result, int offset, int length) throws IOException {
+        final int step = ARRAY_WORK_SIZE / 8;
+        while (length > 0) {
+            final int n = Math.min(length, step);
+            readArrayChunk(n * 8).asLongBuffer().get(result, offset, n);
+            offset += n;
+            length -= n;
+        }
+    }
+
+    /**
+     * 浮動小数点の配列を指定数読み取る。<BR>
+     * 長さを含まない（writeFloatArrayした）配列に対応する。
+     */
+    public void readFloatArray(float[] result, int offset, int length) throws IOException {
+        final int step = ARRAY_WORK_SIZE / 4;
+        while (length > 0) {
+            final int n = Math.min(length, step);
+            readArrayChunk(n * 4).asFloatBuffer().get(result, offset, n);
+            offset += n;
+            length -= n;
+        }
+    }
+
+    /**
+     * 倍精度浮動小数点の配列を指定数読み取る。<BR>
+     * 長さを含まない（writeDoubleArrayした）配列に対応する。
+     */
+    public void readDoubleArray(double[] result, int offset, int length) throws IOException {
+        final int step = ARRAY_WORK_SIZE / 8;
+        while (length > 0) {
+            final int n = Math.min(length, step);
+            readArrayChunk(n * 8).asDoubleBuffer().get(result, offset, n);
+            offset += n;
+            length -= n;
+        }
+    }
+
+    /**
+     * 配列変換用の作業領域へ指定バイト数を読み込む。<BR>
+     * 作業領域は使い回されるため、次の呼び出しまでに利用を終えること。
+     */
+    private ByteBuffer readArrayChunk(int bytes) throws IOException {
+        if (arrayWork == null) {
+            arrayWork = ByteBuffer.allocate(ARRAY_WORK_SIZE);
+        }
+        arrayWork.clear();
+        readFully(arrayWork.array(), 0, bytes);
+        arrayWork.limit(bytes);
+        return arrayWork;
+    }
+
     /**
      * 固定小数をfloat変換して取得する。<BR>
      * GL仕様のため、符号1 整数15 小数16の固定小数を使用する。
@@ -254,7 +475,7 @@ public final class DataInputStream extends DisposableResource {
             return "";
         }
         byte[] buf = new byte[len];
-        readBuffer(buf, len);
+        readFully(buf, 0, len);
 
         return new String(buf, "Shift_JIS");
     }
@@ -269,7 +490,7 @@ public final class DataInputStream extends DisposableResource {
      */
     public byte[] readBuffer(int length) throws IOException {
         byte[] ret = new byte[length];
-        readBuffer(ret, length);
+        readFully(ret, 0, length);
         return ret;
     }
 
@@ -287,6 +508,19 @@ public final class DataInputStream extends DisposableResource {
         return ret;
     }
 
+    /**
+     * writeCompressedFileで保存したファイルを読み取る。<BR>
+     * CRC32が一致しない場合は例外を投げる。
+     */
+    public byte[] readCompressedFile() throws IOException {
+        final byte codec = readS8();
+        final int rawLength = readVarU32();
+        final int storedLength = readVarU32();
+        final int crc = readS32();
+        BlockCodec.checkHeader(codec, rawLength, storedLength);
+        return BlockCodec.decode(codec, readBuffer(storedLength), rawLength, crc);
+    }
+
     /**
      * バッファから必要な長さを読み取る。
      *
@@ -300,15 +534,42 @@ public final class DataInputStream extends DisposableResource {
     }
 
     /**
-     *
+     * バッファから必要な長さを読み取る。<BR>
+     * 終端に達するまではlengthを満たすまで読み込みを続ける。
      *
      * @param buf
      * @param index
      * @param length
-     *
+     * @return 読み込んだバイト数。何も読み込めずに終端に達した場合は-1
      */
     public int readBuffer(byte[] buf, int index, int length) throws IOException {
-        return reader.read(buf, index, length);
+        int readed = 0;
+        while (readed < length) {
+            int n;
+            if (buffer == null) {
+                n = reader.read(buf, index + readed, length - readed);
+            } else if (bufferPosition < bufferLength) {
+                //! 先読み済みのデータからコピーする
+                n = Math.min(length - readed, bufferLength - bufferPosition);
+                System.arraycopy(buffer, bufferPosition, buf, index + readed, n);
+                bufferPosition += n;
+            } else if ((length - readed) >= buffer.length) {
+                //! バッファより大きな読み込みは二重コピーを避けて直接読み込む
+                n = reader.read(buf, index + readed, length - readed);
+            } else {
+                n = fillBuffer() ? 0 : -1;
+            }
+
+            if (n < 0) {
+                break;
+            }
+            readed += n;
+        }
+
+        if (readed == 0 && length > 0) {
+            return -1;
+        }
+        return readed;
     }
 
     /**
@@ -349,6 +610,29 @@ public final class DataInputStream extends DisposableResource {
      *
      */
     public void seek(SeekType type, int pos) throws IOException {
+        if (buffer != null) {
+            if (type == SeekType.Current) {
+                if (pos >= 0) {
+                    //! 先読み済みの分はバッファ内で移動する
+                    final int buffered = Math.min(pos, bufferLength - bufferPosition);
+                    bufferPosition += buffered;
+                    pos -= buffered;
+                    if (pos == 0) {
+                        return;
+                    }
+                } else if (-pos <= bufferPosition) {
+                    //! 戻り先がバッファ内に残っている
+                    bufferPosition += pos;
+                    return;
+                } else {
+                    //! readerは未読のバッファ分だけ先に進んでいる
+                    pos -= (bufferLength - bufferPosition);
+                }
+            }
+            //! 先読み済みのデータは破棄する
+            bufferPosition = 0;
+            bufferLength = 0;
+        }
         type.set(reader, pos);
     }
 
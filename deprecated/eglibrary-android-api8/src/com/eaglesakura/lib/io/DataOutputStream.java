@@ -5,27 +5,78 @@ import com.eaglesakura.lib.android.game.util.LogUtil;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 
 /**
  * ライブラリ規定の形式でデータを出力するインターフェース。<BR>
  * このクラスを通して出力したファイルは対になる {@link DataInputStream}で開くことが可能。
  */
 public final class DataOutputStream extends DisposableResource {
+    /**
+     * 配列の変換に利用する作業領域のバイト数。<BR>
+     * 配列はこのサイズ単位で変換・書き込みされるため、配列サイズに比例した一時領域は確保しない。
+     */
+    private static final int ARRAY_WORK_SIZE = 8 * 1024;
+
     /**
      * 入出力。
      */
     private OutputStream writer = null;
 
+    /**
+     * 基本型の書き込みに使用する作業領域。<BR>
+     * 呼び出し毎の配列確保を避けるため、使い回す。<BR>
+     * 可変長整数の最大長（10バイト）を格納できるサイズを確保する。
+     */
+    private final byte[] work = new byte[10];
+
+    /**
+     * 配列変換用の作業領域。
+     */
+    private ByteBuffer arrayWork = null;
+
+    /**
+     * 書き込み待ちのバッファ。<BR>
+     * nullの場合、{@link #writer}へ直接書き込む。
+     */
+    private byte[] outputBuffer = null;
+
+    /**
+     * {@link #outputBuffer}に溜まっているバイト数。
+     */
+    private int outputLength = 0;
+
     public DataOutputStream(OutputStream os) {
         writer = os;
     }
 
     /**
-     * リソースの開放を行う。
+     * 内部バッファを利用して書き込みを行う。<BR>
+     * 書き込みはバッファが満たされるか、{@link #flush()}もしくは{@link #dispose()}を呼び出した時点でまとめて行われる。
+     *
+     * @param os
+     * @param bufferSize 書き込み待ちを行うバッファサイズ
+     */
+    public DataOutputStream(OutputStream os, int bufferSize) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("bufferSize error :: " + bufferSize);
+        }
+        writer = os;
+        outputBuffer = new byte[bufferSize];
+    }
+
+    /**
+     * リソースの開放を行う。<BR>
+     * 書き込み待ちのデータがあれば、閉じる前に書き込みを行う。
      */
     @Override
     public void dispose() {
         if (writer != null) {
+            try {
+                flush();
+            } catch (Exception e) {
+                LogUtil.log(e);
+            }
             try {
                 writer.close();
             } catch (Exception e) {
@@ -35,21 +86,65 @@ public final class DataOutputStream extends DisposableResource {
         }
     }
 
+    /**
+     * 書き込み待ちのデータを出力する。
+     */
+    public void flush() throws IOException {
+        if (outputLength > 0) {
+            writer.write(outputBuffer, 0, outputLength);
+            outputLength = 0;
+        }
+        writer.flush();
+    }
+
     /**
      * 実際のバッファへ書き込みを行う。
      */
     public void writeBuffer(byte[] buf, int position, int length) throws IOException {
-        writer.write(buf, position, length);
+        if (outputBuffer == null) {
+            writer.write(buf, position, length);
+            return;
+        }
+
+        if (length > (outputBuffer.length - outputLength)) {
+            //! 入りきらないため、溜まっている分を書き出す
+            if (outputLength > 0) {
+                writer.write(outputBuffer, 0, outputLength);
+                outputLength = 0;
+            }
+
+            //! バッファより大きな書き込みは二重コピーを避けて直接書き込む
+            if (length >= outputBuffer.length) {
+                writer.write(buf, position, length);
+                return;
+            }
+        }
+
+        System.arraycopy(buf, position, outputBuffer, outputLength, length);
+        outputLength += length;
+    }
+
+    /**
+     * 配列変換用の作業領域を取得する。
+     */
+    private ByteBuffer getArrayWork() {
+        if (arrayWork == null) {
+            arrayWork = ByteBuffer.allocate(ARRAY_WORK_SIZE);
+        }
+        arrayWork.clear();
+        return arrayWork;
     }
 
     /**
      * 1バイト整数を保存する。
      */
     public void writeS8(byte n) throws IOException {
-        byte[] buf = {
-                n,
-        };
-        writeBuffer(buf, 0, buf.length);
+        if (outputBuffer != null && outputLength < outputBuffer.length) {
+            outputBuffer[outputLength++] = n;
+            return;
+        }
+        work[0] = n;
+        writeBuffer(work, 0, 1);
     }
 
     /**
@@ -67,59 +162,135 @@ public final class DataOutputStream extends DisposableResource {
      * 2バイト整数を保存する。
      */
     public void writeS16(short n) throws IOException {
-        byte[] buf = {
-                (byte) ((((int) n) >> 8) & 0xff), (byte) ((((int) n) >> 0) & 0xff),
-        };
-        writeBuffer(buf, 0, buf.length);
+        final byte[] buf = work;
+        buf[0] = (byte) ((((int) n) >> 8) & 0xff);
+        buf[1] = (byte) ((((int) n) >> 0) & 0xff);
+        writeBuffer(buf, 0, 2);
     }
 
     /**
      * 4バイト整数を保存する。
      */
     public void writeS32(int n) throws IOException {
-        byte[] buf = {
-                (byte) ((((int) n) >> 24) & 0xff), (byte) ((((int) n) >> 16) & 0xff), (byte) ((((int) n) >> 8) & 0xff),
-                (byte) ((((int) n) >> 0) & 0xff),
-        };
-        writeBuffer(buf, 0, buf.length);
+        final byte[] buf = work;
+        buf[0] = (byte) ((n >> 24) & 0xff);
+        buf[1] = (byte) ((n >> 16) & 0xff);
+        buf[2] = (byte) ((n >> 8) & 0xff);
+        buf[3] = (byte) ((n >> 0) & 0xff);
+        writeBuffer(buf, 0, 4);
     }
 
     /**
      * 8バイト整数を保存する。
      */
     public void writeS64(long n) throws IOException {
-        byte[] buf = {
-
-                (byte) ((n >> 56) & 0xff), //!
-                (byte) ((n >> 48) & 0xff), //!
-                (byte) ((n >> 40) & 0xff), //!
-                (byte) ((n >> 32) & 0xff), //!
-
-                (byte) ((n >> 24) & 0xff), //!
-                (byte) ((n >> 16) & 0xff), //!
-                (byte) ((n >> 8) & 0xff), //!
-                (byte) ((n >> 0) & 0xff), //!
-        };
-        writeBuffer(buf, 0, buf.length);
+        final byte[] buf = work;
+        buf[0] = (byte) ((n >> 56) & 0xff);
+        buf[1] = (byte) ((n >> 48) & 0xff);
+        buf[2] = (byte) ((n >> 40) & 0xff);
+        buf[3] = (byte) ((n >> 32) & 0xff);
+        buf[4] = (byte) ((n >> 24) & 0xff);
+        buf[5] = (byte) ((n >> 16) & 0xff);
+        buf[6] = (byte) ((n >> 8) & 0xff);
+        buf[7] = (byte) ((n >> 0) & 0xff);
+        writeBuffer(buf, 0, 8);
+    }
+
+    /**
+     * 符号無整数を可変長（LEB128）で保存する。<BR>
+     * 値が小さいほど保存バイト数が少なくなり、1～5バイトで保存される。
+     */
+    public void writeVarU32(int n) throws IOException {
+        final byte[] buf = work;
+        int ptr = 0;
+        while ((n & ~0x7f) != 0) {
+            buf[ptr++] = (byte) ((n & 0x7f) | 0x80);
+            n >>>= 7;
+        }
+        buf[ptr++] = (byte) n;
+        writeBuffer(buf, 0, ptr);
+    }
+
+    /**
+     * 符号無整数を可変長（LEB128）で保存する。<BR>
+     * 1～10バイトで保存される。
+     */
+    public void writeVarU64(long n) throws IOException {
+        final byte[] buf = work;
+        int ptr = 0;
+        while ((n & ~0x7fL) != 0) {
+            buf[ptr++] = (byte) ((n & 0x7f) | 0x80);
+            n >>>= 7;
+        }
+        buf[ptr++] = (byte) n;
+        writeBuffer(buf, 0, ptr);
+    }
+
+    /**
+     * 符号付き整数をZigZag変換し、可変長で保存する。<BR>
+     * 絶対値が小さい負数も少ないバイト数で保存される。
+     */
+    public void writeVarS32(int n) throws IOException {
+        writeVarU32((n << 1) ^ (n >> 31));
+    }
+
+    /**
+     * 符号付き整数をZigZag変換し、可変長で保存する。
+     */
+    public void writeVarS64(long n) throws IOException {
+        writeVarU64((n << 1) ^ (n >> 63));
+    }
+
+    /**
+     * 2バイト整数の配列を保存する。
+     */
+    public final void writeS16Array(final short[] buffer) throws IOException {
+        writeS16Array(buffer, 0, buffer.length);
+    }
+
+    /**
+     * 2バイト整数配列の指定範囲を保存する。
+     */
+    public void writeS16Array(final short[] buffer, int offset, int length) throws IOException {
+        final int step = ARRAY_WORK_SIZE / 2;
+        while (length > 0) {
+            final int n = Math.min(length, step);
+            final ByteBuffer temp = getArrayWork();
+            temp.asShortBuffer().put(buffer, offset, n);
+            writeBuffer(temp.array(), 0, n * 2);
+            offset += n;
+            length -= n;
+        }
+    }
+
+    /**
+     * 2バイト整数の配列を保存する。
+     */
+    public final void writeS16ArrayWithLength(final short[] buffer) throws IOException {
+        writeS32(buffer.length);
+        writeS16Array(buffer);
     }
 
     /**
      * 4バイト整数の配列を保存する。
      */
     public final void writeS32Array(final int[] buffer) throws IOException {
-        byte[] temp = new byte[buffer.length * 4];
-        int ptr = 0;
-        for (int n : buffer) {
-            temp[ptr] = (byte) ((n >> 24) & 0xff);
-            ptr++;
-            temp[ptr] = (byte) ((n >> 16) & 0xff);
-            ptr++;
-            temp[ptr] = (byte) ((n >> 8) & 0xff);
-            ptr++;
-            temp[ptr] = (byte) ((n >> 0) & 0xff);
-            ptr++;
+        writeS32Array(buffer, 0, buffer.length);
+    }
+
+    /**
+     * 4バイト整数配列の指定範囲を保存する。
+     */
+    public void writeS32Array(final int[] buffer, int offset, int length) throws IOException {
+        final int step = ARRAY_WORK_SIZE / 4;
+        while (length > 0) {
+            final int n = Math.min(length, step);
+            final ByteBuffer temp = getArrayWork();
+            temp.asIntBuffer().put(buffer, offset, n);
+            writeBuffer(temp.array(), 0, n * 4);
+            offset += n;
+            length -= n;
         }
-        writeBuffer(temp, 0, temp.length);
     }
 
     /**
@@ -127,46 +298,29 @@ public final class DataOutputStream extends DisposableResource {
      */
     public final void writeS32ArrayWithLength(final int[] buffer) throws IOException {
         writeS32(buffer.length);
-        byte[] temp = new byte[buffer.length * 4];
-        int ptr = 0;
-        for (int n : buffer) {
-            temp[ptr] = (byte) ((n >> 24) & 0xff);
-            ptr++;
-            temp[ptr] = (byte) ((n >> 16) & 0xff);
-            ptr++;
-            temp[ptr] = (byte) ((n >> 8) & 0xff);
-            ptr++;
-            temp[ptr] = (byte) ((n >> 0) & 0xff);
-            ptr++;
-        }
-        writeBuffer(temp, 0, temp.length);
+        writeS32Array(buffer);
     }
 
     /**
      * 8バイト整数の配列を保存する。
      */
     public final void writeS64Array(final long[] buffer) throws IOException {
-        final byte[] temp = new byte[buffer.length * 8];
-        int ptr = 0;
-        for (long n : buffer) {
-            temp[ptr] = (byte) ((n >> 56) & 0xff);
-            ptr++;
-            temp[ptr] = (byte) ((n >> 48) & 0xff);
-            ptr++;
-            temp[ptr] = (byte) ((n >> 40) & 0xff);
-            ptr++;
-            temp[ptr] = (byte) ((n >> 32) & 0xff);
-            ptr++;
-            temp[ptr] = (byte) ((n >> 24) & 0xff);
-            ptr++;
-            temp[ptr] = (byte) ((n >> 16) & 0xff);
-            ptr++;
-            temp[ptr] = (byte) ((n >> 8) & 0xff);
-            ptr++;
-            temp[ptr] = (byte) ((n >> 0) & 0xff);
-            ptr++;
+        writeS64Array(buffer, 0, buffer.length);
+    }
+
+    /**
+     * 8バイト整数配列の指定範囲を保存する。
+     */
+    public void writeS64Array(final long[] buffer, int offset, int length) throws IOException {
+        final int step = ARRAY_WORK_SIZE / 8;
+        while (length > 0) {
+            final int n = Math.min(length, step);
+            final ByteBuffer temp = getArrayWork();
+            temp.asLongBuffer().put(buffer, offset, n);
+            writeBuffer(temp.array(), 0, n * 8);
+            offset += n;
+            length -= n;
         }
-        writeBuffer(temp, 0, temp.length);
     }
 
     /**
@@ -174,60 +328,74 @@ public final class DataOutputStream extends DisposableResource {
      */
     public final void writeS64ArrayWithLength(final long[] buffer) throws IOException {
         writeS32(buffer.length);
-        final byte[] temp = new byte[buffer.length * 8];
-        int ptr = 0;
-        for (long n : buffer) {
-            temp[ptr] = (byte) ((n >> 56) & 0xff);
-            ptr++;
-            temp[ptr] = (byte) ((n >> 48) & 0xff);
-            ptr++;
-            temp[ptr] = (byte) ((n >> 40) & 0xff);
-            ptr++;
-            temp[ptr] = (byte) ((n >> 32) & 0xff);
-            ptr++;
-            temp[ptr] = (byte) ((n >> 24) & 0xff);
-            ptr++;
-            temp[ptr] = (byte) ((n >> 16) & 0xff);
-            ptr++;
-            temp[ptr] = (byte) ((n >> 8) & 0xff);
-            ptr++;
-            temp[ptr] = (byte) ((n >> 0) & 0xff);
-            ptr++;
-        }
-        writeBuffer(temp, 0, temp.length);
+        writeS64Array(buffer);
     }
 
     /**
      * 浮動小数点配列を保存する。
      */
     public void writeFloatArray(float[] buffer) throws IOException {
-        byte[] temp = new byte[buffer.length * 4];
-        int ptr = 0;
-        for (float f : buffer) {
-            int n = Float.floatToIntBits(f);
-            temp[ptr] = (byte) ((n >> 24) & 0xff);
-            ptr++;
-            temp[ptr] = (byte) ((n >> 16) & 0xff);
-            ptr++;
-            temp[ptr] = (byte) ((n >> 8) & 0xff);
-            ptr++;
-            temp[ptr] = (byte) ((n >> 0) & 0xff);
-            ptr++;
+        writeFloatArray(buffer, 0, buffer.length);
+    }
+
+    /**
+     * 浮動小数点配列の指定範囲を保存する。
+     */
+    public void writeFloatArray(final float[] buffer, int offset, int length) throws IOException {
+        final int step = ARRAY_WORK_SIZE / 4;
+        while (length > 0) {
+            final int n = Math.min(length, step);
+            final ByteBuffer temp = getArrayWork();
+            temp.asFloatBuffer().put(buffer, offset, n);
+            writeBuffer(temp.array(), 0, n * 4);
+            offset += n;
+            length -= n;
+        }
+    }
+
+    /**
+     * 浮動小数点配列を保存する。
+     */
+    public void writeFloatArrayWithLength(float[] buffer) throws IOException {
+        writeS32(buffer.length);
+        writeFloatArray(buffer);
+    }
+
+    /**
+     * 倍精度浮動小数点配列を保存する。
+     */
+    public void writeDoubleArray(double[] buffer) throws IOException {
+        writeDoubleArray(buffer, 0, buffer.length);
+    }
+
+    /**
+     * 倍精度浮動小数点配列の指定範囲を保存する。
+     */
+    public void writeDoubleArray(final double[] buffer, int offset, int length) throws IOException {
+        final int step = ARRAY_WORK_SIZE / 8;
+        while (length > 0) {
+            final int n = Math.min(length, step);
+            final ByteBuffer temp = getArrayWork();
+            temp.asDoubleBuffer().put(buffer, offset, n);
+            writeBuffer(temp.array(), 0, n * 8);
+            offset += n;
+            length -= n;
         }
-        writeBuffer(temp, 0, temp.length);
+    }
+
+    /**
+     * 倍精度浮動小数点配列を保存する。
+     */
+    public void writeDoubleArrayWithLength(double[] buffer) throws IOException {
+        writeS32(buffer.length);
+        writeDoubleArray(buffer);
     }
 
     /**
      * 浮動小数値をGL形式の固定小数として保存する。
      */
     public void writeGLFloat(float f) throws IOException {
-        int n = (int) (f * (float) 0x10000);
-
-        byte[] buf = {
-                (byte) ((((int) n) >> 24) & 0xff), (byte) ((((int) n) >> 16) & 0xff), (byte) ((((int) n) >> 8) & 0xff),
-                (byte) ((((int) n) >> 0) & 0xff),
-        };
-        writeBuffer(buf, 0, buf.length);
+        writeS32((int) (f * (float) 0x10000));
     }
 
     /**
@@ -237,6 +405,13 @@ public final class DataOutputStream extends DisposableResource {
         writeS32(Float.floatToIntBits(f));
     }
 
+    /**
+     * 倍精度浮動小数値を書き込む。
+     */
+    public void writeDouble(double d) throws IOException {
+        writeS64(Double.doubleToLongBits(d));
+    }
+
     /**
      * 文字列を書き込む。<BR>
      * エンコードはShiftJISとして保存する。
@@ -272,4 +447,44 @@ public final class DataOutputStream extends DisposableResource {
         //! 配列本体
         writeBuffer(buffer, 0, buffer.length);
     }
+
+    /**
+     * 配列を圧縮ブロックとして保存する。<BR>
+     * ブロックにはCRC32が付与され、読み込み時に検証される。<BR>
+     * 圧縮しても小さくならない場合は無圧縮で保存される。<BR>
+     * bufferがnullである場合、0バイトのファイルとして保存する。
+     */
+    public void writeCompressedFile(byte[] buffer) throws IOException {
+        if (buffer == null) {
+            buffer = new byte[0];
+        }
+        writeCompressedBlock(buffer, 0, buffer.length);
+    }
+
+    /**
+     * 配列の指定範囲を圧縮ブロックとして保存する。
+     *
+     * @throws IOException lengthが読み込み可能な上限を超える場合
+     */
+    public void writeCompressedBlock(byte[] buffer, int offset, int length) throws IOException {
+        if (length > BlockCodec.MAX_BLOCK_LENGTH) {
+            throw new IOException("block length error :: " + length);
+        }
+        final int crc = BlockCodec.crc32(buffer, offset, length);
+        final byte[] deflated = BlockCodec.deflate(buffer, offset, length);
+
+        if (deflated.length < length) {
+            writeS8(BlockCodec.CODEC_DEFLATE);
+            writeVarU32(length);
+            writeVarU32(deflated.length);
+            writeS32(crc);
+            writeBuffer(deflated, 0, deflated.length);
+        } else {
+            writeS8(BlockCodec.CODEC_STORED);
+            writeVarU32(length);
+            writeVarU32(length);
+            writeS32(crc);
+            writeBuffer(buffer, offset, length);
+        }
+    }
 }
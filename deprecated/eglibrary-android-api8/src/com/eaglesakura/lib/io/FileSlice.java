@@ -0,0 +1,149 @@
+package com.eaglesakura.lib.io;
+
+import com.eaglesakura.lib.android.game.resource.DisposableResource;
+import com.eaglesakura.lib.android.game.util.LogUtil;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * ファイルの一部分を示す。<BR>
+ * 読み込みは位置指定で行い、ファイルポインタを共有しないため、複数スレッドから同時に異なる範囲を読み込むことができる。<BR>
+ * 1つのアーカイブファイルへ格納された複数のエントリを並列に読み込む用途に利用する。
+ */
+public class FileSlice extends DisposableResource {
+    /**
+     * 読み込み対象のチャンネル
+     */
+    final FileChannel channel;
+
+    /**
+     * このスライスが開いたファイル。<BR>
+     * チャンネルを外部から受け取った場合はnull
+     */
+    RandomAccessFile file = null;
+
+    /**
+     * ファイル内の開始位置
+     */
+    final long header;
+
+    /**
+     * スライスのバイト数
+     */
+    final long length;
+
+    /**
+     * ファイル全体をスライスとして開く。<BR>
+     * 利用後はdispose()を呼び出すこと。
+     */
+    public FileSlice(File file) throws IOException {
+        this.file = new RandomAccessFile(file, "r");
+        this.channel = this.file.getChannel();
+        this.header = 0;
+        this.length = channel.size();
+    }
+
+    /**
+     * チャンネルの指定範囲をスライスとして扱う。<BR>
+     * チャンネルの管理は呼び出し側で行う。
+     */
+    public FileSlice(FileChannel channel, long header, long length) {
+        this.channel = channel;
+        this.header = header;
+        this.length = length;
+    }
+
+    /**
+     * スライスの一部を新たなスライスとして取得する。<BR>
+     * 生成されたスライスはチャンネルを共有し、dispose()を行ってもチャンネルは閉じない。
+     *
+     * @param offset このスライスの先頭からのバイト数
+     * @param length 新たなスライスのバイト数
+     */
+    public FileSlice slice(long offset, long length) {
+        if (offset < 0 || length < 0 || (offset + length) > this.length) {
+            throw new IndexOutOfBoundsException("offset(" + offset + ") length(" + length + ") size(" + this.length + ")");
+        }
+        return new FileSlice(channel, header + offset, length);
+    }
+
+    /**
+     * スライスのバイト数を取得する。
+     */
+    public long length() {
+        return length;
+    }
+
+    /**
+     * 位置を指定して読み込む。<BR>
+     * スライスの末尾を超えて読み込むことはない。
+     *
+     * @param position スライスの先頭からのバイト数
+     * @return 読み込んだバイト数。末尾に達している場合は-1
+     */
+    public int read(long position, byte[] buffer, int offset, int length) throws IOException {
+        final long remaining = this.length - position;
+        if (remaining <= 0) {
+            return -1;
+        }
+        if (length > remaining) {
+            length = (int) remaining;
+        }
+        return channel.read(ByteBuffer.wrap(buffer, offset, length), header + position);
+    }
+
+    /**
+     * 位置を指定し、必要なバイト数を必ず読み込む。
+     */
+    public void readFully(long position, byte[] buffer, int offset, int length) throws IOException {
+        while (length > 0) {
+            final int readed = read(position, buffer, offset, length);
+            if (readed < 0) {
+                throw new EOFException("slice end :: " + position);
+            }
+            position += readed;
+            offset += readed;
+            length -= readed;
+        }
+    }
+
+    /**
+     * スライス全体を読み込む。
+     */
+    public byte[] readAll() throws IOException {
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("slice size over :: " + length);
+        }
+        byte[] result = new byte[(int) length];
+        readFully(0, result, 0, result.length);
+        return result;
+    }
+
+    /**
+     * スライスを先頭から読み込むストリームを生成する。<BR>
+     * ストリームは独立した読み込み位置を持つため、スレッドごとに生成して利用できる。
+     */
+    public SliceInputStream openStream() {
+        return new SliceInputStream(this);
+    }
+
+    /**
+     * このスライスがファイルを開いた場合、ファイルを閉じる。
+     */
+    @Override
+    public void dispose() {
+        if (file != null) {
+            try {
+                file.close();
+            } catch (Exception e) {
+                LogUtil.log(e);
+            }
+            file = null;
+        }
+    }
+}
@@ -0,0 +1,424 @@
+package com.eaglesakura.lib.io;
+
+import com.eaglesakura.lib.android.game.resource.DisposableResource;
+import com.eaglesakura.lib.android.game.util.LogUtil;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * {@link DataOutputStream}で出力したファイルを、メモリマップを通して読み込む。<BR>
+ * {@link DataInputStream}と同じ形式で読み込みを行うが、ヒープへのコピーを行わずに直接参照する。<BR>
+ * 読み込み位置は任意に変更することができる。
+ */
+public final class MappedDataReader extends DisposableResource {
+    /**
+     * マッピング元のファイル。<BR>
+     * 外部から渡されたチャンネルを利用する場合はnullとなる。
+     */
+    private RandomAccessFile file = null;
+
+    /**
+     * マッピングされた領域。
+     */
+    private MappedByteBuffer buffer = null;
+
+    /**
+     * ファイル全体をマッピングする。
+     *
+     * @param file 読み込むファイル
+     */
+    public MappedDataReader(File file) throws IOException {
+        this.file = new RandomAccessFile(file, "r");
+        try {
+            map(this.file.getChannel(), 0, this.file.length());
+        } catch (IOException e) {
+            dispose();
+            throw e;
+        }
+    }
+
+    /**
+     * チャンネルの指定範囲をマッピングする。<BR>
+     * チャンネルの管理は呼び出し側で行う。
+     *
+     * @param channel 読み込むチャンネル
+     * @param header  マッピングを開始する位置
+     * @param length  マッピングするバイト数
+     */
+    public MappedDataReader(FileChannel channel, long header, long length) throws IOException {
+        map(channel, header, length);
+    }
+
+    private void map(FileChannel channel, long header, long length) throws IOException {
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("mapping size over :: " + length);
+        }
+        buffer = channel.map(FileChannel.MapMode.READ_ONLY, header, length);
+        buffer.order(ByteOrder.BIG_ENDIAN);
+    }
+
+    /**
+     * 残りのバイト数が不足していたら例外を投げる。
+     */
+    private void require(int length) throws IOException {
+        if (buffer.remaining() < length) {
+            throw new EOFException("require(" + length + ") remaining(" + buffer.remaining() + ")");
+        }
+    }
+
+    /**
+     * バッファから１バイト読み取る。
+     */
+    public byte readS8() throws IOException {
+        require(1);
+        return buffer.get();
+    }
+
+    /**
+     * バッファから2バイト読み取る。
+     */
+    public short readS16() throws IOException {
+        require(2);
+        return buffer.getShort();
+    }
+
+    /**
+     * バッファから3バイト読み取る。<BR>
+     * 色情報等に利用可能。
+     */
+    public int readS24() throws IOException {
+        require(3);
+        final int n0 = ((int) buffer.get() & 0xff);
+        final int n1 = ((int) buffer.get() & 0xff);
+        final int n2 = ((int) buffer.get() & 0xff);
+        return (n0 << 16) | (n1 << 8) | (n2 << 0);
+    }
+
+    /**
+     * １バイト整数を取得し、読み込み位置を１バイト進める。
+     *
+     * @return １バイト符号無整数。ただし、符号無を表現する関係上、戻りはint型となる。
+     */
+    public int readU8() throws IOException {
+        return (((int) readS8()) & 0xff);
+    }
+
+    /**
+     * ２バイト整数を取得し、読み込み位置を２バイト進める。
+     *
+     * @return ２バイト符号無整数。ただし、符号無を表現する関係上、戻りはint型となる。
+     */
+    public int readU16() throws IOException {
+        return (((int) readS16()) & 0xffff);
+    }
+
+    /**
+     * バッファから4バイト読み取る。
+     */
+    public int readS32() throws IOException {
+        require(4);
+        return buffer.getInt();
+    }
+
+    /**
+     * バッファから８バイト整数を読み取る。
+     */
+    public long readS64() throws IOException {
+        require(8);
+        return buffer.getLong();
+    }
+
+    /**
+     * 可変長（LEB128）で保存された符号無整数を読み取る。
+     */
+    public int readVarU32() throws IOException {
+        int result = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            final int n = readS8();
+            result |= (n & 0x7f) << shift;
+            if ((n & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IOException("varint format error");
+    }
+
+    /**
+     * 可変長（LEB128）で保存された符号無整数を読み取る。
+     */
+    public long readVarU64() throws IOException {
+        long result = 0;
+        for (int shift = 0; shift < 70; shift += 7) {
+            final int n = readS8();
+            result |= ((long) (n & 0x7f)) << shift;
+            if ((n & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IOException("varint format error");
+    }
+
+    /**
+     * ZigZag変換して可変長で保存された符号付き整数を読み取る。
+     */
+    public int readVarS32() throws IOException {
+        final int n = readVarU32();
+        return (n >>> 1) ^ -(n & 1);
+    }
+
+    /**
+     * ZigZag変換して可変長で保存された符号付き整数を読み取る。
+     */
+    public long readVarS64() throws IOException {
+        final long n = readVarU64();
+        return (n >>> 1) ^ -(n & 1);
+    }
+
+    /**
+     * writeS16ArrayWithLengthした配列を取り出す。
+     */
+    public short[] readS16Array() throws IOException {
+        final short[] result = new short[readS32()];
+        readS16Array(result, 0, result.length);
+        return result;
+    }
+
+    /**
+     * writeS32ArrayWithLengthした配列を取り出す。
+     */
+    public int[] readS32Array() throws IOException {
+        final int[] result = new int[readS32()];
+        readS32Array(result, 0, result.length);
+        return result;
+    }
+
+    /**
+     * writeS64ArrayWithLengthした配列を取り出す。
+     */
+    public long[] readS64Array() throws IOException {
+        final long[] result = new long[readS32()];
+        readS64Array(result, 0, result.length);
+        return result;
+    }
+
+    /**
+     * writeFloatArrayWithLengthした配列を取り出す。
+     */
+    public float[] readFloatArray() throws IOException {
+        final float[] result = new float[readS32()];
+        readFloatArray(result, 0, result.length);
+        return result;
+    }
+
+    /**
+     * writeDoubleArrayWithLengthした配列を取り出す。
+     */
+    public double[] readDoubleArray() throws IOException {
+        final double[] result = new double[readS32()];
+        readDoubleArray(result, 0, result.length);
+        return result;
+    }
+
+    /**
+     * 2バイト整数の配列を指定数読み取る。
+     */
+    public void readS16Array(short[] result, int offset, int length) throws IOException {
+        require(length * 2);
+        final int position = buffer.position();
+        buffer.asShortBuffer().get(result, offset, length);
+        buffer.position(position + length * 2);
+    }
+
+    /**
+     * 4バイト整数の配列を指定数読み取る。
+     */
+    public void readS32Array(int[] result, int offset, int length) throws IOException {
+        require(length * 4);
+        final int position = buffer.position();
+        buffer.asIntBuffer().get(result, offset, length);
+        buffer.position(position + length * 4);
+    }
+
+    /**
+     * 8バイト整数の配列を指定数読み取る。
+     */
+    public void readS64Array(long[] result, int offset, int length) throws IOException {
+        require(length * 8);
+        final int position = buffer.position();
+        buffer.asLongBuffer().get(result, offset, length);
+        buffer.position(position + length * 8);
+    }
+
+    /**
+     * 浮動小数点の配列を指定数読み取る。
+     */
+    public void readFloatArray(float[] result, int offset, int length) throws IOException {
+        require(length * 4);
+        final int position = buffer.position();
+        buffer.asFloatBuffer().get(result, offset, length);
+        buffer.position(position + length * 4);
+    }
+
+    /**
+     * 倍精度浮動小数点の配列を指定数読み取る。
+     */
+    public void readDoubleArray(double[] result, int offset, int length) throws IOException {
+        require(length * 8);
+        final int position = buffer.position();
+        buffer.asDoubleBuffer().get(result, offset, length);
+        buffer.position(position + length * 8);
+    }
+
+    /**
+     * 固定小数をfloat変換して取得する。<BR>
+     * GL仕様のため、符号1 整数15 小数16の固定小数を使用する。
+     */
+    public float readGLFixedFloat() throws IOException {
+        return ((float) readS32()) / (float) 0x10000;
+    }
+
+    /**
+     * 固定小数をdouble変換して取得する。<BR>
+     * GL仕様のため、符号1 整数47 小数16の固定小数を使用する。
+     */
+    public double readGLFixedDouble() throws IOException {
+        return ((double) readS64()) / (double) 0x10000;
+    }
+
+    /**
+     * IEEE754形式のビット列をfloatに変換し、取得する。
+     */
+    public float readFloat() throws IOException {
+        return Float.intBitsToFloat(readS32());
+    }
+
+    /**
+     * IEEE754形式のビット列をdoubleに変換し、取得する。
+     */
+    public double readDouble() throws IOException {
+        return Double.longBitsToDouble(readS64());
+    }
+
+    /**
+     * 真偽の値を取得する。<BR>
+     * 1byte読み取り、0ならfalse、それ以外ならtrueを返す。
+     */
+    public boolean readBoolean() throws IOException {
+        return readS8() == 0 ? false : true;
+    }
+
+    /**
+     * 文字列を読み取る。<BR>
+     * エンコードはShiftJISである必要がある。<BR>
+     * 頭2byteが文字数、後に文字配列が続く。
+     */
+    public String readString() throws IOException {
+        int len = readS16();
+        if (len <= 0) {
+            return "";
+        }
+        return new String(readBuffer(len), "Shift_JIS");
+    }
+
+    /**
+     * バッファを直接読み取る。
+     */
+    public byte[] readBuffer(int length) throws IOException {
+        byte[] ret = new byte[length];
+        readBuffer(ret, 0, length);
+        return ret;
+    }
+
+    /**
+     * ファイルを読み取る。
+     */
+    public byte[] readFile() throws IOException {
+        int len = readS32();
+        return readBuffer(len);
+    }
+
+    /**
+     * writeCompressedFileで保存したファイルを読み取る。<BR>
+     * CRC32が一致しない場合は例外を投げる。
+     */
+    public byte[] readCompressedFile() throws IOException {
+        final byte codec = readS8();
+        final int rawLength = readVarU32();
+        final int storedLength = readVarU32();
+        final int crc = readS32();
+        BlockCodec.checkHeader(codec, rawLength, storedLength);
+        return BlockCodec.decode(codec, readBuffer(storedLength), rawLength, crc);
+    }
+
+    /**
+     * バッファから必要な長さを読み取る。
+     */
+    public void readBuffer(byte[] buf, int length) throws IOException {
+        readBuffer(buf, 0, length);
+    }
+
+    /**
+     * バッファから必要な長さを読み取る。<BR>
+     * 残りの長さが足りない場合は例外を投げる。
+     */
+    public int readBuffer(byte[] buf, int index, int length) throws IOException {
+        require(length);
+        buffer.get(buf, index, length);
+        return length;
+    }
+
+    /**
+     * 読み取り位置を指定する。
+     */
+    public void seek(DataInputStream.SeekType type, int pos) throws IOException {
+        final int position = (type == DataInputStream.SeekType.Current) ? (buffer.position() + pos) : pos;
+        if (position < 0 || position > buffer.limit()) {
+            throw new EOFException("seek position error :: " + position);
+        }
+        buffer.position(position);
+    }
+
+    /**
+     * 現在の読み込み位置を取得する。
+     */
+    public int getPosition() {
+        return buffer.position();
+    }
+
+    /**
+     * マッピングされた領域のバイト数を取得する。
+     */
+    public int length() {
+        return buffer.limit();
+    }
+
+    /**
+     * 残りのバイト数を取得する。
+     */
+    public int available() {
+        return buffer.remaining();
+    }
+
+    /**
+     * 資源の解放を行う。<BR>
+     * ファイルを指定して生成した場合、そのファイルを閉じる。
+     */
+    @Override
+    public void dispose() {
+        buffer = null;
+        if (file != null) {
+            try {
+                file.close();
+            } catch (Exception e) {
+                LogUtil.log(e);
+            }
+            file = null;
+        }
+    }
+}
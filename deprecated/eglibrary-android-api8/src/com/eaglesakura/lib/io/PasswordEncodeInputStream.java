@@ -8,32 +8,27 @@ import java.io.InputStream;
  */
 public class PasswordEncodeInputStream extends InputStream {
     InputStream is = null;
-    byte[] encodeBits = null;
-    int current = 0;
+    PasswordKernel kernel = null;
+
+    /**
+     * 読み込み済みのバイト数
+     */
+    long current = 0;
 
     public PasswordEncodeInputStream(InputStream is, String password) {
-        if (password.length() == 0) {
-            throw new IllegalArgumentException("password lengh error");
-        }
-        this.is = is;
-        encodeBits = password.getBytes();
+        this(is, password.getBytes());
     }
 
     public PasswordEncodeInputStream(InputStream is, byte[] password) {
-        if (password.length == 0) {
-            throw new IllegalArgumentException("password lengh error");
-        }
         this.is = is;
-        encodeBits = password;
+        kernel = new PasswordKernel(password);
     }
 
     @Override
     public int read() throws IOException {
-        final int bits = encodeBits[current % encodeBits.length];
         final int n = is.read();
         if (n >= 0) {
-            ++current;
-            return ((n ^ bits) & 0xff);
+            return kernel.apply(current++, n);
         } else {
             return n;
         }
@@ -41,8 +36,11 @@ public class PasswordEncodeInputStream extends InputStream {
 
     @Override
     public long skip(long n) throws IOException {
-        current += (int) n;
-        return is.skip(n);
+        final long result = is.skip(n);
+        if (result > 0) {
+            current += result;
+        }
+        return result;
     }
 
     @Override
@@ -51,6 +49,11 @@ public class PasswordEncodeInputStream extends InputStream {
         is.reset();
     }
 
+    @Override
+    public int available() throws IOException {
+        return is.available();
+    }
+
     @Override
     public int read(byte[] b) throws IOException {
         return read(b, 0, b.length);
@@ -60,10 +63,9 @@ public class PasswordEncodeInputStream extends InputStream {
     public int read(byte[] b, int offset, int length) throws IOException {
         int result = is.read(b, offset, length);
         //! 読み込めた分だけデコードを行う
-        for (int i = 0; i < result; ++i) {
-            final int bits = encodeBits[current % encodeBits.length];
-            b[offset + i] = (byte) (((int) b[offset + i] ^ bits) & 0xff);
-            ++current;
+        if (result > 0) {
+            kernel.apply(current, b, offset, result);
+            current += result;
         }
         return result;
     }
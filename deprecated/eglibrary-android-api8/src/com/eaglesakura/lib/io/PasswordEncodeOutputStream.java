@@ -4,33 +4,66 @@ import java.io.IOException;
 import java.io.OutputStream;
 
 public class PasswordEncodeOutputStream extends OutputStream {
+    /**
+     * 変換に利用する作業領域のバイト数
+     */
+    static final int WORK_SIZE = 8 * 1024;
+
     OutputStream os = null;
-    byte[] encodeBits = null;
-    int current = 0;
+    PasswordKernel kernel = null;
+
+    /**
+     * 書き込み済みのバイト数
+     */
+    long current = 0;
+
+    /**
+     * 変換用の作業領域。<BR>
+     * 呼び出し元の配列を書き換えないよう、ここへコピーしてから変換する。
+     */
+    byte[] work = null;
 
     public PasswordEncodeOutputStream(OutputStream os, String password) {
-        if (password.length() == 0) {
-            throw new IllegalArgumentException("password lengh error");
-        }
-        this.os = os;
-        encodeBits = password.getBytes();
+        this(os, password.getBytes());
     }
 
     public PasswordEncodeOutputStream(OutputStream os, byte[] password) {
-        if (password.length == 0) {
-            throw new IllegalArgumentException("password lengh error");
-        }
         this.os = os;
-        encodeBits = password;
+        kernel = new PasswordKernel(password);
     }
 
     @Override
     public void write(int oneByte) throws IOException {
-        int bits = encodeBits[current % encodeBits.length];
-        os.write((oneByte ^ bits) & 0xff);
+        os.write(kernel.apply(current, oneByte));
         ++current;
     }
 
+    @Override
+    public void write(byte[] buffer) throws IOException {
+        write(buffer, 0, buffer.length);
+    }
+
+    @Override
+    public void write(byte[] buffer, int offset, int length) throws IOException {
+        if (work == null) {
+            work = new byte[WORK_SIZE];
+        }
+        while (length > 0) {
+            final int n = Math.min(length, work.length);
+            System.arraycopy(buffer, offset, work, 0, n);
+            kernel.apply(current, work, 0, n);
+            os.write(work, 0, n);
+            current += n;
+            offset += n;
+            length -= n;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        os.flush();
+    }
+
     @Override
     public void close() throws IOException {
         os.close();
@@ -0,0 +1,90 @@
+package com.eaglesakura.lib.io;
+
+/**
+ * パスワードによるXOR変換をブロック単位で行う。<BR>
+ * パスワードを繰り返し展開したバッファを事前に作成し、1バイト毎の剰余計算を行わずに変換する。
+ */
+final class PasswordKernel {
+    /**
+     * 展開後のバッファの最低バイト数
+     */
+    static final int EXPAND_SIZE = 1024;
+
+    /**
+     * 元のパスワード長
+     */
+    final int keyLength;
+
+    /**
+     * パスワードを繰り返し展開したバッファ。<BR>
+     * 長さはパスワード長の倍数となる。
+     */
+    final byte[] expanded;
+
+    PasswordKernel(byte[] password) {
+        if (password.length == 0) {
+            throw new IllegalArgumentException("password lengh error");
+        }
+        keyLength = password.length;
+        final int repeat = (EXPAND_SIZE + keyLength - 1) / keyLength;
+        expanded = new byte[keyLength * repeat];
+        for (int i = 0; i < repeat; ++i) {
+            System.arraycopy(password, 0, expanded, i * keyLength, keyLength);
+        }
+    }
+
+    /**
+     * ストリーム上の位置に対応するパスワードの位置を取得する。
+     */
+    int keyOffset(long position) {
+        return (int) (position % keyLength);
+    }
+
+    /**
+     * 指定範囲をXOR変換する。
+     *
+     * @param position ストリーム上の位置
+     * @param buffer   変換対象
+     * @param offset   変換開始位置
+     * @param length   変換するバイト数
+     */
+    void apply(long position, byte[] buffer, int offset, int length) {
+        final byte[] key = expanded;
+        int k = keyOffset(position);
+        while (length > 0) {
+            final int n = Math.min(length, key.length - k);
+            int i = offset;
+            int j = k;
+            final int end8 = offset + (n & ~7);
+            //! 8バイト単位で変換する
+            while (i < end8) {
+                buffer[i] ^= key[j];
+                buffer[i + 1] ^= key[j + 1];
+                buffer[i + 2] ^= key[j + 2];
+                buffer[i + 3] ^= key[j + 3];
+                buffer[i + 4] ^= key[j + 4];
+                buffer[i + 5] ^= key[j + 5];
+                buffer[i + 6] ^= key[j + 6];
+                buffer[i + 7] ^= key[j + 7];
+                i += 8;
+                j += 8;
+            }
+            final int end = offset + n;
+            while (i < end) {
+                buffer[i++] ^= key[j++];
+            }
+
+            offset += n;
+            length -= n;
+            //! 展開済みバッファの末尾はパスワードの区切りと一致する
+            k = 0;
+        }
+    }
+
+    /**
+     * 1バイトをXOR変換する。
+     */
+    int apply(long position, int value) {
+        return (value ^ expanded[keyOffset(position)]) & 0xff;
+    }
+}
@@ -12,6 +12,11 @@ public class RandomAccessFileInputStream extends InputStream {
     private int header = 0;
     private int size = 0;
 
+    /**
+     * mark()された位置。未指定の場合は読み込み範囲の先頭となる。
+     */
+    private long markPosition = -1;
+
     /**
      *
      * @param raf
@@ -35,20 +40,34 @@ public class RandomAccessFileInputStream extends InputStream {
         this.size = length;
     }
 
+    /**
+     * 読み込み範囲の残りバイト数を取得する。
+     */
+    private long remaining() throws IOException {
+        return ((long) header + size) - file.getFilePointer();
+    }
+
     @Override
     public int read() throws IOException {
+        if (remaining() <= 0) {
+            return -1;
+        }
         return file.read();
 
     }
 
     @Override
     public int read(byte[] b) throws IOException {
-        return file.read(b);
+        return read(b, 0, b.length);
     }
 
     @Override
     public int read(byte[] b, int offset, int length) throws IOException {
-        return file.read(b, offset, length);
+        final long remaining = remaining();
+        if (remaining <= 0) {
+            return -1;
+        }
+        return file.read(b, offset, (int) Math.min(length, remaining));
     }
 
     @Override
@@ -57,7 +76,12 @@ public class RandomAccessFileInputStream extends InputStream {
     }
 
     @Override
-    public void mark(int readlimit) {
+    public synchronized void mark(int readlimit) {
+        try {
+            markPosition = file.getFilePointer();
+        } catch (IOException e) {
+            markPosition = -1;
+        }
     }
 
     @Override
@@ -71,7 +95,7 @@ public class RandomAccessFileInputStream extends InputStream {
     public long skip(long byteCount) throws IOException {
 
         long start = file.getFilePointer();
-        file.skipBytes((int) byteCount);
+        file.skipBytes((int) Math.max(0, Math.min(byteCount, remaining())));
 
         return file.getFilePointer() - start;
     }
@@ -83,6 +107,22 @@ public class RandomAccessFileInputStream extends InputStream {
 
     @Override
     public synchronized void reset() throws IOException {
-        file.seek(header);
+        file.seek(markPosition >= 0 ? markPosition : header);
+    }
+
+    /**
+     * 読み込み位置を指定する。
+     *
+     * @param position 読み込み範囲の先頭からのバイト数
+     */
+    public void seek(long position) throws IOException {
+        file.seek(header + position);
+    }
+
+    /**
+     * 読み込み範囲の先頭からの読み込み位置を取得する。
+     */
+    public long getPosition() throws IOException {
+        return file.getFilePointer() - header;
     }
 }
@@ -0,0 +1,38 @@
+package com.eaglesakura.lib.io;
+
+import java.io.IOException;
+
+/**
+ * 読み込み位置を任意に変更できる{@link PasswordEncodeInputStream}。<BR>
+ * 読み込み範囲の先頭を起点としてパスワードを適用する。
+ */
+public class SeekablePasswordEncodeInputStream extends PasswordEncodeInputStream {
+    final RandomAccessFileInputStream file;
+
+    public SeekablePasswordEncodeInputStream(RandomAccessFileInputStream is, String password) {
+        super(is, password);
+        file = is;
+    }
+
+    public SeekablePasswordEncodeInputStream(RandomAccessFileInputStream is, byte[] password) {
+        super(is, password);
+        file = is;
+    }
+
+    /**
+     * 読み込み位置を指定する。
+     *
+     * @param position 読み込み範囲の先頭からのバイト数
+     */
+    public void seek(long position) throws IOException {
+        file.seek(position);
+        current = position;
+    }
+
+    /**
+     * 読み込み範囲の先頭からの読み込み位置を取得する。
+     */
+    public long getPosition() {
+        return current;
+    }
+}
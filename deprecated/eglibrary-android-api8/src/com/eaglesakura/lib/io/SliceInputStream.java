@@ -0,0 +1,107 @@
+package com.eaglesakura.lib.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * {@link FileSlice}の範囲を読み込むストリーム。<BR>
+ * 読み込み位置はストリームごとに保持され、他のストリームと干渉しない。<BR>
+ * close()を行ってもファイルは閉じない。
+ */
+public class SliceInputStream extends InputStream {
+    final FileSlice slice;
+
+    /**
+     * スライス先頭からの読み込み位置
+     */
+    long position = 0;
+
+    /**
+     * mark()された位置
+     */
+    long mark = 0;
+
+    /**
+     * 1バイト読み込み用の作業領域
+     */
+    final byte[] work = new byte[1];
+
+    public SliceInputStream(FileSlice slice) {
+        this.slice = slice;
+    }
+
+    @Override
+    public int read() throws IOException {
+        final int readed = read(work, 0, 1);
+        if (readed <= 0) {
+            return -1;
+        }
+        return ((int) work[0]) & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        final int readed = slice.read(position, b, offset, length);
+        if (readed > 0) {
+            position += readed;
+        }
+        return readed;
+    }
+
+    @Override
+    public long skip(long byteCount) throws IOException {
+        if (byteCount <= 0) {
+            return 0;
+        }
+        final long result = Math.min(byteCount, Math.max(0, slice.length - position));
+        position += result;
+        return result;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return (int) Math.min(Integer.MAX_VALUE, Math.max(0, slice.length - position));
+    }
+
+    @Override
+    public boolean markSupported() {
+        return true;
+    }
+
+    @Override
+    public synchronized void mark(int readlimit) {
+        mark = position;
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        position = mark;
+    }
+
+    /**
+     * 読み込み位置を指定する。<BR>
+     * スライスの末尾を超える位置は末尾として扱う。
+     *
+     * @param position スライスの先頭からのバイト数
+     */
+    public void seek(long position) {
+        if (position < 0) {
+            throw new IllegalArgumentException("position error :: " + position);
+        }
+        this.position = Math.min(position, slice.length);
+    }
+
+    /**
+     * スライスの先頭からの読み込み位置を取得する。
+     */
+    public long getPosition() {
+        return position;
+    }
+
+    @Override
+    public void close() throws IOException {
+    }
+}
@@ -46,13 +46,30 @@ public class XmlElement {
      * 属性情報
      * <tag key=value key=value></tag>を保持する
      */
-    Map<String, String> attributes = new HashMap<String, String>();
+    Map<String, String> attributes = null;
+
+    /**
+     * コンパクト形式の属性情報
+     * 属性名、値の順に交互に保持する
+     */
+    String[] attributePairs = null;
 
     /**
      * 子要素を定義する
      */
     List<XmlElement> childs = new ArrayList<XmlElement>();
 
+    /**
+     * タグ名ごとの子要素の索引
+     * 索引を利用する場合、最初の検索時に構築する
+     */
+    Map<String, List<XmlElement>> childIndex = null;
+
+    /**
+     * 子要素の検索に索引を利用する場合true
+     */
+    boolean indexed = false;
+
     public XmlElement() {
 
     }
@@ -82,6 +99,17 @@ public class XmlElement {
      * サブコンテンツを取得する
      */
     public String getAttribute(String key) {
+        if (attributePairs != null) {
+            for (int i = 0; i < attributePairs.length; i += 2) {
+                if (attributePairs[i].equals(key)) {
+                    return attributePairs[i + 1];
+                }
+            }
+            return null;
+        }
+        if (attributes == null) {
+            return null;
+        }
         return attributes.get(key);
     }
 
@@ -91,18 +119,35 @@ public class XmlElement {
     private void addChild(XmlElement element) {
         childs.add(element);
         element.parent = this;
+        childIndex = null;
+    }
+
+    /**
+     * タグ名ごとの索引を取得する
+     */
+    private Map<String, List<XmlElement>> getChildIndex() {
+        if (childIndex == null) {
+            Map<String, List<XmlElement>> index = new HashMap<String, List<XmlElement>>();
+            for (XmlElement child : childs) {
+                List<XmlElement> list = index.get(child.tag);
+                if (list == null) {
+                    list = new ArrayList<XmlElement>(1);
+                    index.put(child.tag, list);
+                }
+                list.add(child);
+            }
+            childIndex = index;
+        }
+        return childIndex;
     }
 
     /**
      * 子要素の持つコンテンツを文字列として取得する
      */
     public String childToString(String tag) {
-        Iterator<XmlElement> iterator = childs.iterator();
-        while (iterator.hasNext()) {
-            XmlElement child = iterator.next();
-            if (child.getTag().equals(tag)) {
-                return child.getContent();
-            }
+        XmlElement child = getChild(tag);
+        if (child != null) {
+            return child.getContent();
         }
 
         // 要素が見つからなかった
@@ -138,6 +183,11 @@ public class XmlElement {
      * 一致するタグの子エレメントを列挙する
      */
     public List<XmlElement> listChilds(String tag) {
+        if (indexed) {
+            List<XmlElement> list = getChildIndex().get(tag);
+            return list == null ? new ArrayList<XmlElement>() : new ArrayList<XmlElement>(list);
+        }
+
         List<XmlElement> result = new ArrayList<XmlElement>();
         {
             Iterator<XmlElement> iterator = childs.iterator();
@@ -156,6 +206,11 @@ public class XmlElement {
      * 指定した子要素を取得する。
      */
     public XmlElement getChild(String tag) {
+        if (indexed) {
+            List<XmlElement> list = getChildIndex().get(tag);
+            return list == null ? null : list.get(0);
+        }
+
         Iterator<XmlElement> iterator = childs.iterator();
         while (iterator.hasNext()) {
             XmlElement element = iterator.next();
@@ -175,12 +230,21 @@ public class XmlElement {
         return parent;
     }
 
+    /**
+     * XMLをパースし、ツリー全体を構築する。
+     */
     public static XmlElement parse(InputStream is) throws XmlPullParserException, IOException {
-        XmlPullParserFactory factory = XmlPullParserFactory.newInstance();
-        factory.setNamespaceAware(true);
-        XmlPullParser parser = factory.newPullParser();
-        parser.setInput(is, "UTF-8");
-        //        parser.setFeature(XmlPullParser, true);
+        return parse(is, false);
+    }
+
+    /**
+     * XMLをパースし、ツリー全体を構築する。<BR>
+     * compactがtrueの場合、タグ名・属性名を共有して属性を配列で保持し、子要素の検索にタグ名の索引を利用する。<BR>
+     * 同じ要素に対して何度も子要素の検索を行う場合に適する。
+     */
+    public static XmlElement parse(InputStream is, boolean compact) throws XmlPullParserException, IOException {
+        XmlPullParser parser = newParser(is);
+        Map<String, String> symbols = compact ? new HashMap<String, String>() : null;
 
         int event = 0;
 
@@ -193,31 +257,24 @@ public class XmlElement {
         while ((event = parser.next()) != XmlPullParser.END_DOCUMENT) {
             switch (event) {
                 case XmlPullParser.START_TAG:
-                    XmlElement nextElement = new XmlElement();
-                    // タグ名を取得する
-                    nextElement.tag = parser.getName();
-                    nextElement.nspace = parser.getNamespace();
-                    // 現在のタグの子に設定
-                    if (current != null) {
-                        current.addChild(nextElement);
-                    } else {
-                        root = nextElement;
-                    }
-
-                    current = nextElement;
-                    // 属性を取得する
-                    for (int i = 0; i < parser.getAttributeCount(); ++i) {
-                        current.attributes.put(parser.getAttributeName(i), parser.getAttributeValue(i));
+                    current = newElement(parser, current, symbols);
+                    if (root == null) {
+                        root = current;
                     }
                     break;
                 case XmlPullParser.END_TAG:
+                    if (symbols != null) {
+                        ((ArrayList<XmlElement>) current.childs).trimToSize();
+                    }
                     // 親に戻る
                     current = current.getParent();
 
                     break;
                 case XmlPullParser.TEXT:
                     // テキストを格納する
-                    current.content = parser.getText();
+                    if (current != null) {
+                        current.appendContent(parser.getText());
+                    }
                     break;
                 default:
                     break;
@@ -227,7 +284,83 @@ public class XmlElement {
         return root;
     }
 
+    /**
+     * パーサーを生成する。
+     */
+    static XmlPullParser newParser(InputStream is) throws XmlPullParserException {
+        XmlPullParserFactory factory = XmlPullParserFactory.newInstance();
+        factory.setNamespaceAware(true);
+        XmlPullParser parser = factory.newPullParser();
+        parser.setInput(is, "UTF-8");
+        return parser;
+    }
+
+    /**
+     * START_TAGの位置から要素を生成し、親要素へ追加する。<BR>
+     * symbolsが指定された場合、コンパクト形式で生成する。
+     */
+    static XmlElement newElement(XmlPullParser parser, XmlElement parent, Map<String, String> symbols) {
+        XmlElement result = new XmlElement();
+        // タグ名を取得する
+        result.tag = intern(symbols, parser.getName());
+        result.nspace = intern(symbols, parser.getNamespace());
+        // 現在のタグの子に設定
+        if (parent != null) {
+            parent.addChild(result);
+        }
+        // 属性を取得する
+        final int attributeCount = parser.getAttributeCount();
+        if (symbols != null) {
+            result.indexed = true;
+            if (attributeCount > 0) {
+                result.attributePairs = new String[attributeCount * 2];
+                for (int i = 0; i < attributeCount; ++i) {
+                    result.attributePairs[i * 2] = intern(symbols, parser.getAttributeName(i));
+                    result.attributePairs[i * 2 + 1] = parser.getAttributeValue(i);
+                }
+            }
+        } else if (attributeCount > 0) {
+            //! 属性の無い要素はMapを生成しない
+            result.attributes = new HashMap<String, String>(attributeCount * 2);
+            for (int i = 0; i < attributeCount; ++i) {
+                result.attributes.put(parser.getAttributeName(i), parser.getAttributeValue(i));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 同じ文字列を同じインスタンスで共有する。
+     */
+    private static String intern(Map<String, String> symbols, String value) {
+        if (symbols == null || value == null) {
+            return value;
+        }
+        String result = symbols.get(value);
+        if (result == null) {
+            symbols.put(value, value);
+            result = value;
+        }
+        return result;
+    }
+
+    /**
+     * コンテンツを追記する。<BR>
+     * テキストは複数のイベントに分割されて通知されることがあるため、連結して保持する。
+     */
+    void appendContent(String text) {
+        if (content == null) {
+            content = text;
+        } else {
+            content = content + text;
+        }
+    }
+
     public static XmlElement parse(String xml) throws XmlPullParserException, IOException {
         return parse(new ByteArrayInputStream(xml.getBytes()));
     }
+
+    public static XmlElement parse(String xml, boolean compact) throws XmlPullParserException, IOException {
+        return parse(new ByteArrayInputStream(xml.getBytes()), compact);
+    }
 }
@@ -0,0 +1,159 @@
+package com.eaglesakura.lib.io;
+
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * パスを指定してXMLから要素を逐次取り出す。<BR>
+ * パスに一致した要素とその子要素のみを{@link XmlElement}として構築し、それ以外の要素は読み飛ばす。<BR>
+ * 一致した要素は通知後に破棄されるため、巨大なXMLでもツリー全体を保持せずに処理できる。<BR>
+ * <BR>
+ * パスはルート要素からのタグ名を"/"で区切って指定する。"*"は任意のタグに一致する。<BR>
+ * 例："feed/entry/title"
+ *
+ * @author TAKESHI YAMASHITA
+ */
+public class XmlQuery {
+    /**
+     * 任意のタグに一致する
+     */
+    public static final String WILDCARD = "*";
+
+    /**
+     * 分解されたパス
+     */
+    final String[] path;
+
+    /**
+     * パスを指定してクエリを生成する。
+     */
+    public XmlQuery(String path) {
+        List<String> segments = new ArrayList<String>();
+        for (String segment : path.split("/")) {
+            if (segment.length() > 0) {
+                segments.add(segment);
+            }
+        }
+        if (segments.isEmpty()) {
+            throw new IllegalArgumentException("path error :: " + path);
+        }
+        this.path = segments.toArray(new String[segments.size()]);
+    }
+
+    /**
+     * 一致した要素を受け取る
+     */
+    public interface Listener {
+        /**
+         * パスに一致した要素を受け取る。<BR>
+         * 要素は子要素を含めて構築済みだが、親要素は持たない。
+         *
+         * @return 処理を継続する場合はtrue、中断する場合はfalse
+         */
+        boolean onMatch(XmlElement element);
+    }
+
+    /**
+     * XMLを読み込み、パスに一致した要素をlistenerへ通知する。
+     */
+    public void parse(InputStream is, Listener listener) throws XmlPullParserException, IOException {
+        XmlPullParser parser = XmlElement.newParser(is);
+
+        // 現在のタグの深さ
+        int depth = 0;
+        // パスの先頭から一致している階層数
+        int matched = 0;
+        // 構築中の要素
+        XmlElement current = null;
+
+        int event = 0;
+        while ((event = parser.next()) != XmlPullParser.END_DOCUMENT) {
+            switch (event) {
+                case XmlPullParser.START_TAG:
+                    if (current != null) {
+                        // 一致した要素の子を構築する
+                        current = XmlElement.newElement(parser, current, null);
+                    } else if (matched == depth && isMatch(depth, parser.getName())) {
+                        ++matched;
+                        if (matched == path.length) {
+                            current = XmlElement.newElement(parser, null, null);
+                        }
+                    }
+                    ++depth;
+                    break;
+                case XmlPullParser.END_TAG:
+                    --depth;
+                    if (current != null) {
+                        XmlElement parent = current.getParent();
+                        if (parent == null) {
+                            // 一致した要素の構築が完了した
+                            if (!listener.onMatch(current)) {
+                                return;
+                            }
+                        }
+                        current = parent;
+                    }
+                    if (matched > depth) {
+                        matched = depth;
+                    }
+                    break;
+                case XmlPullParser.TEXT:
+                    if (current != null) {
+                        current.appendContent(parser.getText());
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    public void parse(String xml, Listener listener) throws XmlPullParserException, IOException {
+        parse(new ByteArrayInputStream(xml.getBytes()), listener);
+    }
+
+    /**
+     * パスに一致した要素のコンテンツを列挙する。
+     */
+    public List<String> listContents(InputStream is) throws XmlPullParserException, IOException {
+        final List<String> result = new ArrayList<String>();
+        parse(is, new Listener() {
+            @Override
+            public boolean onMatch(XmlElement element) {
+                result.add(element.getContent());
+                return true;
+            }
+        });
+        return result;
+    }
+
+    /**
+     * パスに一致した最初の要素を取得する。
+     *
+     * @return 一致する要素が無ければnull
+     */
+    public XmlElement findFirst(InputStream is) throws XmlPullParserException, IOException {
+        final XmlElement[] result = new XmlElement[1];
+        parse(is, new Listener() {
+            @Override
+            public boolean onMatch(XmlElement element) {
+                result[0] = element;
+                return false;
+            }
+        });
+        return result[0];
+    }
+
+    private boolean isMatch(int depth, String tag) {
+        if (depth >= path.length) {
+            return false;
+        }
+        return WILDCARD.equals(path[depth]) || path[depth].equals(tag);
+    }
+}
@@ -0,0 +1,275 @@
+package com.eaglesakura.lib.list;
+
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 複数スレッドから逐次アクセスを行うためのリスト。<BR>
+ * {@link OrderAccessList}と同じ操作を、ロックを用いずに提供する。<BR>
+ * 要素は不変の配列として保持され、追加・削除はCASによって配列を差し替える。<BR>
+ * イテレータは生成時点のスナップショットを走査するため、走査中に他スレッドが変更を行っても影響を受けない。<BR>
+ * 読み込みが多く、書き込みが少ない用途に向く。<BR>
+ * nullは追加できない。
+ *
+ * @author TAKESHI YAMASHITA
+ */
+public class ConcurrentOrderAccessList<T> implements Iterable<T> {
+
+    static final Object[] EMPTY = new Object[0];
+
+    /**
+     * 現在の要素一覧
+     */
+    final AtomicReference<Object[]> elements = new AtomicReference<Object[]>(EMPTY);
+
+    /**
+     * 要素を追加する
+     *
+     * @throws NullPointerException objectがnullの場合
+     */
+    public boolean add(T object) {
+        checkElement(object);
+        while (true) {
+            final Object[] current = elements.get();
+            final Object[] next = new Object[current.length + 1];
+            System.arraycopy(current, 0, next, 0, current.length);
+            next[current.length] = object;
+            if (elements.compareAndSet(current, next)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 要素を指定箇所に追加する
+     *
+     * @throws NullPointerException objectがnullの場合
+     */
+    public boolean add(int index, T object) {
+        checkElement(object);
+        while (true) {
+            final Object[] current = elements.get();
+            if (index < 0 || index > current.length) {
+                throw new IndexOutOfBoundsException();
+            }
+            final Object[] next = new Object[current.length + 1];
+            System.arraycopy(current, 0, next, 0, index);
+            next[index] = object;
+            System.arraycopy(current, index, next, index + 1, current.length - index);
+            if (elements.compareAndSet(current, next)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * index指定してアイテムを取得する
+     */
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        final Object[] current = elements.get();
+        if (index < 0 || index >= current.length) {
+            return null;
+        }
+        return (T) current[index];
+    }
+
+    @SuppressWarnings("unchecked")
+    public T getFirst() {
+        final Object[] current = elements.get();
+        if (current.length == 0) {
+            throw new NoSuchElementException();
+        }
+        return (T) current[0];
+    }
+
+    @SuppressWarnings("unchecked")
+    public T getLast() {
+        final Object[] current = elements.get();
+        if (current.length == 0) {
+            throw new NoSuchElementException();
+        }
+        return (T) current[current.length - 1];
+    }
+
+    /**
+     * サイズを取得する
+     */
+    public int size() {
+        return elements.get().length;
+    }
+
+    /**
+     * オブジェクトが含まれている場合はtrue
+     */
+    public boolean contains(T object) {
+        return indexOf(object) >= 0;
+    }
+
+    /**
+     * 保持しているリストを全てクリアする。
+     */
+    public void clear() {
+        elements.set(EMPTY);
+    }
+
+    /**
+     * 指定したオブジェクトを排除する
+     */
+    public void remove(T obj) {
+        while (true) {
+            final Object[] current = elements.get();
+            final int index = indexOf(current, obj);
+            if (index < 0) {
+                return;
+            }
+            if (elements.compareAndSet(current, removeAt(current, index))) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 指定したオブジェクトを全て削除する
+     */
+    public void removeAll(T obj) {
+        while (true) {
+            final Object[] current = elements.get();
+            int hit = 0;
+            for (Object it : current) {
+                if (it.equals(obj)) {
+                    ++hit;
+                }
+            }
+            if (hit == 0) {
+                return;
+            }
+
+            final Object[] next = new Object[current.length - hit];
+            int ptr = 0;
+            for (Object it : current) {
+                if (!it.equals(obj)) {
+                    next[ptr++] = it;
+                }
+            }
+            if (elements.compareAndSet(current, next)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * オブジェクトのインデックスを取得する。
+     */
+    public int indexOf(T object) {
+        return indexOf(elements.get(), object);
+    }
+
+    /**
+     * 要素が空ならtrue
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * 末尾から先頭へ向かってアクセスするイテレータを返す
+     */
+    public Iterator<T> revertIterator() {
+        return new Iterator<T>(elements.get(), this, true);
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<T>(elements.get(), this, false);
+    }
+
+    /**
+     * 要素の比較・イテレータの削除はnullで無いことを前提とするため、nullの追加を拒否する。
+     */
+    static void checkElement(Object object) {
+        if (object == null) {
+            throw new NullPointerException("element is null");
+        }
+    }
+
+    static int indexOf(Object[] array, Object object) {
+        for (int i = 0; i < array.length; ++i) {
+            if (array[i].equals(object)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    static Object[] removeAt(Object[] array, int index) {
+        final Object[] result = new Object[array.length - 1];
+        System.arraycopy(array, 0, result, 0, index);
+        System.arraycopy(array, index + 1, result, index, array.length - index - 1);
+        return result;
+    }
+
+    /**
+     * スナップショットを走査するiterator
+     *
+     * @author TAKESHI YAMASHITA
+     */
+    public static class Iterator<T> implements java.util.Iterator<T> {
+        final Object[] snapshot;
+        final ConcurrentOrderAccessList<T> list;
+        final boolean revert;
+        int current;
+        Object removeTarget = null;
+
+        Iterator(Object[] snapshot, ConcurrentOrderAccessList<T> list, boolean revert) {
+            this.snapshot = snapshot;
+            this.list = list;
+            this.revert = revert;
+            this.current = revert ? snapshot.length - 1 : 0;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return revert ? current >= 0 : current < snapshot.length;
+        }
+
+        /**
+         * 次の要素を取得する
+         */
+        @Override
+        @SuppressWarnings("unchecked")
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            removeTarget = snapshot[current];
+            current += revert ? -1 : 1;
+            return (T) removeTarget;
+        }
+
+        /**
+         * 最後に取得した要素をリストから削除する。<BR>
+         * スナップショットには影響しない。
+         */
+        @Override
+        public void remove() {
+            if (removeTarget == null) {
+                throw new IllegalStateException();
+            }
+            while (true) {
+                final Object[] current = list.elements.get();
+                int index = -1;
+                for (int i = 0; i < current.length; ++i) {
+                    if (current[i] == removeTarget) {
+                        index = i;
+                        break;
+                    }
+                }
+                if (index < 0 || list.elements.compareAndSet(current, removeAt(current, index))) {
+                    break;
+                }
+            }
+            removeTarget = null;
+        }
+    }
+}
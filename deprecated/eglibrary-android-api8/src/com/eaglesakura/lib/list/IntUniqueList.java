@@ -0,0 +1,184 @@
+package com.eaglesakura.lib.list;
+
+/**
+ * 内容をUniqueに保つint型のリスト<BR>
+ * {@link UniqueList}と同じ構造を持ち、値をボクシングせずに保持する。<BR>
+ * removeは末尾の要素を削除位置へ移動させるため、削除を行うと末尾要素の順番が変わる。
+ *
+ * @author TAKESHI YAMASHITA
+ */
+public class IntUniqueList {
+    /**
+     * 追加順に並んだ値
+     */
+    int[] data = new int[8];
+
+    /**
+     * 格納されている数
+     */
+    int size = 0;
+
+    /**
+     * {@link #data}の位置+1を格納するハッシュテーブル。0は空きを示す。
+     */
+    int[] table = new int[16];
+
+    /**
+     * 既にデータを保持していればtrue
+     */
+    public boolean contains(int value) {
+        return table[slotOf(value)] != 0;
+    }
+
+    /**
+     * データを追加する
+     */
+    public boolean add(int value) {
+        int slot = slotOf(value);
+        if (table[slot] != 0) {
+            return false;
+        }
+
+        if ((size + 1) * 4 > table.length * 3) {
+            rehash(table.length * 2);
+            slot = slotOf(value);
+        }
+        if (size == data.length) {
+            int[] temp = new int[size * 2];
+            System.arraycopy(data, 0, temp, 0, size);
+            data = temp;
+        }
+
+        data[size] = value;
+        ++size;
+        table[slot] = size;
+        return true;
+    }
+
+    /**
+     * データを削除する。<BR>
+     * 末尾の要素が削除位置へ移動する。
+     */
+    public boolean remove(int value) {
+        final int slot = slotOf(value);
+        if (table[slot] == 0) {
+            return false;
+        }
+
+        final int index = table[slot] - 1;
+        deleteSlot(slot);
+
+        final int last = size - 1;
+        if (index != last) {
+            // 末尾の要素を空いた位置へ詰める
+            final int moved = data[last];
+            final int mask = table.length - 1;
+            int i = hash(moved) & mask;
+            while (table[i] != last + 1) {
+                i = (i + 1) & mask;
+            }
+            table[i] = index + 1;
+            data[index] = moved;
+        }
+        --size;
+        return true;
+    }
+
+    /**
+     * index指定で値を取得する
+     */
+    public int get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index(" + index + ") size(" + size + ")");
+        }
+        return data[index];
+    }
+
+    /**
+     * 全ての値を削除する
+     */
+    public void clear() {
+        for (int i = 0; i < table.length; ++i) {
+            table[i] = 0;
+        }
+        size = 0;
+    }
+
+    /**
+     * 格納されている値を配列にコピーする
+     */
+    public int[] toArray() {
+        int[] result = new int[size];
+        System.arraycopy(data, 0, result, 0, size);
+        return result;
+    }
+
+    /**
+     * リストに格納されている数を取得する
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    static int hash(int value) {
+        final int h = value * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * 値が格納されているスロット、もしくは格納すべき空きスロットを返す
+     */
+    int slotOf(int value) {
+        final int mask = table.length - 1;
+        int i = hash(value) & mask;
+        while (true) {
+            final int index = table[i];
+            if (index == 0 || data[index - 1] == value) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+    }
+
+    /**
+     * スロットを空け、後続のスロットを詰める
+     */
+    void deleteSlot(int slot) {
+        final int mask = table.length - 1;
+        int i = slot;
+        while (true) {
+            table[i] = 0;
+            int j = i;
+            while (true) {
+                j = (j + 1) & mask;
+                if (table[j] == 0) {
+                    return;
+                }
+                final int k = hash(data[table[j] - 1]) & mask;
+                // 本来の位置が(i, j]の範囲にある場合は移動できない
+                final boolean stay = (i <= j) ? (i < k && k <= j) : (i < k || k <= j);
+                if (!stay) {
+                    break;
+                }
+            }
+            table[i] = table[j];
+            i = j;
+        }
+    }
+
+    void rehash(int tableSize) {
+        table = new int[tableSize];
+        final int mask = tableSize - 1;
+        for (int n = 0; n < size; ++n) {
+            int i = hash(data[n]) & mask;
+            while (table[i] != 0) {
+                i = (i + 1) & mask;
+            }
+            table[i] = n + 1;
+        }
+    }
+}
@@ -67,7 +67,7 @@ public class OrderAccessList<T> {
     private Element<T> getElementAt(int index) {
         synchronized (lock) {
             // インデックスチェック
-            if (index < (size - 1) || index < 0) {
+            if (index > (size - 1) || index < 0) {
                 throw new IndexOutOfBoundsException();
             }
             Element<T> element = getFirstElement(null);
@@ -84,18 +84,11 @@ public class OrderAccessList<T> {
      */
     public T get(int index) {
         synchronized (lock) {
-            Iterator<T> iterator = iterator();
-            int current = 0;
-            while (iterator.hasNext()) {
-                T t = iterator.next();
-
-                if (current == index) {
-                    return t;
-                }
-                ++current;
+            if (index < 0 || index >= size) {
+                return null;
             }
+            return getElementAt(index).obj;
         }
-        return null;
     }
 
     /**
@@ -200,13 +193,13 @@ public class OrderAccessList<T> {
      */
     public int indexOf(T object) {
         synchronized (lock) {
-            Iterator<T> iterator = iterator();
+            Element<T> element = first;
             int index = 0;
-            while (iterator.hasNext()) {
-                T t = iterator.next();
-                if (t.equals(object)) {
+            while (element != null) {
+                if (element.obj.equals(object)) {
                     return index;
                 }
+                element = element.next;
                 ++index;
             }
             return -1;
@@ -1,49 +1,219 @@
 package com.eaglesakura.lib.list;
 
-import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.AbstractList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
 
 /**
- * 内容をUniqueに保つリストを作成する
+ * 内容をUniqueに保つリストを作成する<BR>
+ * 要素は追加順に密な配列へ格納され、オープンアドレス法のハッシュテーブルで配列位置を引く。<BR>
+ * contains/add/removeはO(1)、index指定のアクセスもO(1)で行える。<BR>
+ * removeは末尾の要素を削除位置へ移動させるため、削除を行うと末尾要素の順番が変わる。
  *
  * @author TAKESHI YAMASHITA
  */
 public class UniqueList<E> {
-    List<E> data = new LinkedList<E>();
-    Map<E, E> unique = new HashMap<E, E>();
+    /**
+     * 追加順に並んだ要素
+     */
+    Object[] data = new Object[8];
+
+    /**
+     * 格納されている数
+     */
+    int size = 0;
+
+    /**
+     * {@link #data}の位置+1を格納するハッシュテーブル。0は空きを示す。
+     */
+    int[] table = new int[16];
+
+    /**
+     * getList()で返却するビュー
+     */
+    List<E> view = null;
 
     /**
      * 既にデータを保持していればtrue
      */
     public boolean containts(E e) {
-        return unique.get(e) != null;
+        return contains(e);
+    }
+
+    /**
+     * 既にデータを保持していればtrue
+     */
+    public boolean contains(E e) {
+        if (e == null) {
+            return false;
+        }
+        return table[slotOf(e)] != 0;
     }
 
     /**
      * データを追加する
      */
     public boolean add(E e) {
-        if (!containts(e)) {
-            data.add(e);
-            unique.put(e, e);
-            return true;
+        if (e == null) {
+            throw new NullPointerException("element is null");
         }
-        return false;
+        int slot = slotOf(e);
+        if (table[slot] != 0) {
+            return false;
+        }
+
+        if ((size + 1) * 4 > table.length * 3) {
+            rehash(table.length * 2);
+            slot = slotOf(e);
+        }
+        if (size == data.length) {
+            Object[] temp = new Object[size * 2];
+            System.arraycopy(data, 0, temp, 0, size);
+            data = temp;
+        }
+
+        data[size] = e;
+        ++size;
+        table[slot] = size;
+        return true;
     }
 
     /**
-     * 一意のリストを取得する
+     * データを削除する。<BR>
+     * 末尾の要素が削除位置へ移動する。
+     */
+    public boolean remove(E e) {
+        if (e == null) {
+            return false;
+        }
+        final int slot = slotOf(e);
+        if (table[slot] == 0) {
+            return false;
+        }
+
+        final int index = table[slot] - 1;
+        deleteSlot(slot);
+
+        final int last = size - 1;
+        if (index != last) {
+            // 末尾の要素を空いた位置へ詰める
+            final Object moved = data[last];
+            final int mask = table.length - 1;
+            int i = hash(moved) & mask;
+            while (table[i] != last + 1) {
+                i = (i + 1) & mask;
+            }
+            table[i] = index + 1;
+            data[index] = moved;
+        }
+        data[last] = null;
+        --size;
+        return true;
+    }
+
+    /**
+     * index指定で要素を取得する
+     */
+    @SuppressWarnings("unchecked")
+    public E get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index(" + index + ") size(" + size + ")");
+        }
+        return (E) data[index];
+    }
+
+    /**
+     * 全ての要素を削除する
+     */
+    public void clear() {
+        Arrays.fill(data, 0, size, null);
+        Arrays.fill(table, 0);
+        size = 0;
+    }
+
+    /**
+     * 一意のリストを取得する<BR>
+     * 戻り値は読み込み専用のビューであり、このリストの変更が反映される。
      */
     public List<E> getList() {
-        return data;
+        if (view == null) {
+            view = new AbstractList<E>() {
+                @Override
+                public E get(int location) {
+                    return UniqueList.this.get(location);
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+            };
+        }
+        return view;
     }
 
     /**
      * リストに格納されている数を取得する
      */
     public int size() {
-        return data.size();
+        return size;
+    }
+
+    static int hash(Object e) {
+        final int h = e.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * 要素が格納されているスロット、もしくは格納すべき空きスロットを返す
+     */
+    int slotOf(Object e) {
+        final int mask = table.length - 1;
+        int i = hash(e) & mask;
+        while (true) {
+            final int index = table[i];
+            if (index == 0 || data[index - 1].equals(e)) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+    }
+
+    /**
+     * スロットを空け、後続のスロットを詰める
+     */
+    void deleteSlot(int slot) {
+        final int mask = table.length - 1;
+        int i = slot;
+        while (true) {
+            table[i] = 0;
+            int j = i;
+            while (true) {
+                j = (j + 1) & mask;
+                if (table[j] == 0) {
+                    return;
+                }
+                final int k = hash(data[table[j] - 1]) & mask;
+                // 本来の位置が(i, j]の範囲にある場合は移動できない
+                final boolean stay = (i <= j) ? (i < k && k <= j) : (i < k || k <= j);
+                if (!stay) {
+                    break;
+                }
+            }
+            table[i] = table[j];
+            i = j;
+        }
+    }
+
+    void rehash(int tableSize) {
+        table = new int[tableSize];
+        final int mask = tableSize - 1;
+        for (int n = 0; n < size; ++n) {
+            int i = hash(data[n]) & mask;
+            while (table[i] != 0) {
+                i = (i + 1) & mask;
+            }
+            table[i] = n + 1;
+        }
     }
 }
@@ -0,0 +1,117 @@
+package com.eaglesakura.lib.android.db;
+
+import com.eaglesakura.lib.android.game.tests.Benchmark;
+
+import android.content.ContentValues;
+import android.test.AndroidTestCase;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 端末のSQLite上で、BlobKeyValueStoreの書き込み方法ごとの処理時間を比較する。<BR>
+ * 全ての行が登録済みのキーへの上書きとなるため、以前の実装では1行ごとに例外・削除・再登録が発生する。<BR>
+ * 結果はログへ出力し、値の大小は検証しない。書き込んだ値が読み出せることのみ確認する。
+ */
+public class BlobKeyValueStoreBenchmark extends AndroidTestCase {
+    static final int ROWS = 1000;
+
+    static final int VALUE_BYTES = 1024;
+
+    static final int WARMUPS = 2;
+
+    static final int ITERATIONS = 5;
+
+    File dbFile;
+
+    BlobKeyValueStore store;
+
+    Map<String, byte[]> values;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        dbFile = new File(getContext().getCacheDir(), "kvs-benchmark.db");
+        dbFile.delete();
+        store = new BlobKeyValueStore(dbFile, getContext(), "benchmark", DBType.ReadWrite, 1);
+
+        values = new LinkedHashMap<String, byte[]>();
+        for (int i = 0; i < ROWS; ++i) {
+            byte[] value = new byte[VALUE_BYTES];
+            Arrays.fill(value, (byte) i);
+            values.put("key-" + i, value);
+        }
+        store.putAll(values);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        store.dispose();
+        dbFile.delete();
+        super.tearDown();
+    }
+
+    /**
+     * 以前のinsertOrUpdate()と同じく、ContentValuesで登録し、重複した場合は削除してから再登録する。
+     */
+    void legacyInsertOrUpdate(String key, byte[] value) {
+        final ContentValues row = store.createValues(key, value);
+        try {
+            store.db.insertOrThrow(store.tableName, null, row);
+        } catch (Exception e) {
+            store.db.delete(store.tableName, BlobKeyValueStore.DB_KEY + "='" + key + "'", null);
+            store.db.insert(store.tableName, null, row);
+        }
+    }
+
+    void assertStored() {
+        for (Map.Entry<String, byte[]> it : values.entrySet()) {
+            assertTrue(Arrays.equals(it.getValue(), store.getOrNull(it.getKey())));
+        }
+    }
+
+    public void testWrite() throws Exception {
+        Benchmark.measure("BlobKeyValueStore legacy insertOrUpdate x" + ROWS, WARMUPS, ITERATIONS,
+                new Benchmark.Body() {
+                    @Override
+                    public Object run() {
+                        store.beginTransaction();
+                        try {
+                            for (Map.Entry<String, byte[]> it : values.entrySet()) {
+                                legacyInsertOrUpdate(it.getKey(), it.getValue());
+                            }
+                        } finally {
+                            store.endTransaction();
+                        }
+                        return store;
+                    }
+                });
+        assertStored();
+
+        Benchmark.measure("BlobKeyValueStore insertOrUpdate x" + ROWS, WARMUPS, ITERATIONS, new Benchmark.Body() {
+            @Override
+            public Object run() {
+                store.beginTransaction();
+                try {
+                    for (Map.Entry<String, byte[]> it : values.entrySet()) {
+                        store.insertOrUpdate(it.getKey(), it.getValue());
+                    }
+                } finally {
+                    store.endTransaction();
+                }
+                return store;
+            }
+        });
+        assertStored();
+
+        Benchmark.measure("BlobKeyValueStore putAll x" + ROWS, WARMUPS, ITERATIONS, new Benchmark.Body() {
+            @Override
+            public Object run() {
+                return store.putAll(values);
+            }
+        });
+        assertStored();
+    }
+}
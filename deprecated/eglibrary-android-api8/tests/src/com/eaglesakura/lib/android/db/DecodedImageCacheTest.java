@@ -0,0 +1,134 @@
+package com.eaglesakura.lib.android.db;
+
+import com.eaglesakura.lib.android.game.graphics.canvas.BitmapImage;
+import com.eaglesakura.lib.android.game.resource.GarbageCollector;
+
+import android.graphics.Bitmap;
+import android.graphics.Bitmap.Config;
+
+import junit.framework.TestCase;
+
+/**
+ * {@link DecodedImageCache}のバイト数管理と、参照カウントによるBitmapの解放を確認する。
+ */
+public class DecodedImageCacheTest extends TestCase {
+    static final int IMAGE_SIZE = 8;
+
+    /**
+     * 解放をその場で行うGC
+     */
+    GarbageCollector garbageCollector;
+
+    /**
+     * 1枚あたりのピクセルのバイト数
+     */
+    int imageBytes;
+
+    DecodedImageCache cache;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        garbageCollector = new GarbageCollector(null);
+        BitmapImage probe = newImage();
+        imageBytes = probe.getPixelBytes();
+        probe.dispose();
+        cache = new DecodedImageCache(imageBytes * 2);
+    }
+
+    BitmapImage newImage() {
+        return new BitmapImage(garbageCollector).create(IMAGE_SIZE, IMAGE_SIZE, Config.ARGB_8888);
+    }
+
+    public void testCachedImageSurvivesUserDispose() {
+        BitmapImage image = newImage();
+        Bitmap bitmap = image.getBitmap();
+
+        BitmapImage user = cache.put("a", image, 1);
+        assertNotSame(image, user);
+        assertSame(bitmap, user.getBitmap());
+        user.dispose();
+        assertFalse(bitmap.isRecycled());
+
+        DecodedImageCache.Entry entry = cache.acquire("a");
+        assertSame(bitmap, entry.image.getBitmap());
+        assertEquals(1L, entry.date);
+        entry.image.dispose();
+        assertFalse(bitmap.isRecycled());
+
+        cache.remove("a");
+        assertTrue(bitmap.isRecycled());
+        assertEquals(0L, cache.currentBytes);
+    }
+
+    public void testEvictedImageIsRecycledAfterLastUser() {
+        BitmapImage imageA = newImage();
+        Bitmap bitmapA = imageA.getBitmap();
+        BitmapImage userA = cache.put("a", imageA, 0);
+        cache.put("b", newImage(), 0).dispose();
+
+        // "a"は破棄されるが、利用者が参照しているためrecycleしない
+        cache.put("c", newImage(), 0).dispose();
+        assertEquals(1L, cache.evictionCount);
+        assertNull(cache.acquire("a"));
+        assertEquals(imageBytes * 2L, cache.currentBytes);
+        assertFalse(bitmapA.isRecycled());
+
+        userA.dispose();
+        assertTrue(bitmapA.isRecycled());
+    }
+
+    public void testReplaceReleasesOldImage() {
+        BitmapImage first = newImage();
+        Bitmap firstBitmap = first.getBitmap();
+        cache.put("a", first, 0).dispose();
+
+        BitmapImage second = newImage();
+        cache.put("a", second, 0).dispose();
+        assertTrue(firstBitmap.isRecycled());
+        assertFalse(second.getBitmap().isRecycled());
+        assertEquals((long) imageBytes, cache.currentBytes);
+        assertEquals(0L, cache.evictionCount);
+    }
+
+    public void testOversizedImageIsNotCached() {
+        cache.setMaxBytes(imageBytes - 1);
+        BitmapImage image = newImage();
+        Bitmap bitmap = image.getBitmap();
+
+        assertSame(image, cache.put("a", image, 0));
+        assertNull(cache.acquire("a"));
+        assertEquals(0L, cache.currentBytes);
+        assertFalse(bitmap.isRecycled());
+
+        image.dispose();
+        assertTrue(bitmap.isRecycled());
+    }
+
+    public void testClearRecyclesUnusedImages() {
+        BitmapImage imageA = newImage();
+        BitmapImage imageB = newImage();
+        Bitmap bitmapA = imageA.getBitmap();
+        Bitmap bitmapB = imageB.getBitmap();
+        cache.put("a", imageA, 0).dispose();
+        BitmapImage userB = cache.put("b", imageB, 0);
+
+        cache.clear();
+        assertEquals(0L, cache.currentBytes);
+        assertTrue(cache.entries.isEmpty());
+        assertTrue(bitmapA.isRecycled());
+        assertFalse(bitmapB.isRecycled());
+
+        userB.dispose();
+        assertTrue(bitmapB.isRecycled());
+    }
+
+    public void testHitAndMissCounts() {
+        assertNull(cache.acquire("a"));
+        cache.put("a", newImage(), 0).dispose();
+        cache.acquire("a").image.dispose();
+        cache.acquire("a").image.dispose();
+        assertEquals(2L, cache.hitCount);
+        assertEquals(1L, cache.missCount);
+    }
+}
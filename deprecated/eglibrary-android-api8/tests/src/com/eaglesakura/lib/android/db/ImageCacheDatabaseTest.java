@@ -0,0 +1,179 @@
+package com.eaglesakura.lib.android.db;
+
+import android.test.AndroidTestCase;
+
+import java.io.File;
+import java.util.concurrent.Callable;
+
+/**
+ * {@link ImageCacheDatabase}の合計バイト数の管理と、保存期間・容量による削除を端末のSQLite上で確認する。<BR>
+ * 削除処理は呼び出したスレッドでevict()を行い、バックグラウンドの処理とは競合させない。
+ */
+public class ImageCacheDatabaseTest extends AndroidTestCase {
+    static final int BLOB_BYTES = 100;
+
+    File dbFile;
+
+    ImageCacheDatabase database;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        dbFile = new File(getContext().getCacheDir(), "image-cache-test.db");
+        dbFile.delete();
+        database = new ImageCacheDatabase(dbFile, getContext(), "images", 1);
+        waitBackground();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        database.dispose();
+        dbFile.delete();
+        super.tearDown();
+    }
+
+    /**
+     * バックグラウンドで予約済みの処理が終わるまで待つ。
+     */
+    void waitBackground() throws Exception {
+        database.evictionExecutor.submit(new Callable<Object>() {
+            @Override
+            public Object call() {
+                return null;
+            }
+        }).get();
+    }
+
+    static byte[] blob(int length) {
+        byte[] result = new byte[length];
+        for (int i = 0; i < length; ++i) {
+            result[i] = (byte) i;
+        }
+        return result;
+    }
+
+    /**
+     * 最終アクセス日時が前後するよう、時刻を進めてから保存する。
+     */
+    void putLater(String key, int length) throws Exception {
+        Thread.sleep(10);
+        database.put(key, blob(length));
+    }
+
+    /**
+     * 推定値とDBの合計バイト数が一致することを確認する。
+     */
+    void assertTotalBytes(long expected) {
+        assertEquals(expected, database.getTotalBytes());
+        assertEquals(expected, database.queryTotalBytes());
+    }
+
+    public void testPutSubtractsReplacedSize() {
+        database.put("a", blob(BLOB_BYTES));
+        database.put("b", blob(BLOB_BYTES));
+        assertTotalBytes(BLOB_BYTES * 2);
+
+        // 上書きした場合は古い画像の分を差し引く
+        database.put("a", blob(40));
+        assertEquals(40L, database.querySize("a"));
+        assertTotalBytes(BLOB_BYTES + 40);
+
+        database.remove("a");
+        assertEquals(0L, database.querySize("a"));
+        assertEquals(BLOB_BYTES, database.queryTotalBytes());
+    }
+
+    public void testEvictLeastRecentlyAccessed() throws Exception {
+        putLater("a", BLOB_BYTES);
+        putLater("b", BLOB_BYTES);
+        putLater("c", BLOB_BYTES);
+
+        // "a"を参照したため、"b"が最も古い
+        Thread.sleep(10);
+        database.touch("a");
+
+        database.maxBytes = BLOB_BYTES * 2;
+        database.evict();
+        assertTrue(database.pendingAccess.isEmpty());
+        assertTrue(database.store.exists("a"));
+        assertFalse(database.store.exists("b"));
+        assertTrue(database.store.exists("c"));
+        assertTotalBytes(BLOB_BYTES * 2);
+
+        ImageCacheDatabase.EvictionStatistics statistics = database.getEvictionStatistics();
+        assertEquals(1, statistics.getRunCount());
+        assertEquals(1L, statistics.getEvictedCount());
+        assertEquals(0L, statistics.getExpiredCount());
+        assertEquals((long) BLOB_BYTES, statistics.getEvictedBytes());
+    }
+
+    public void testEvictInBatches() throws Exception {
+        final int count = ImageCacheDatabase.EVICTION_BATCH * 2 + 1;
+        for (int i = 0; i < count; ++i) {
+            database.put("key-" + i, blob(BLOB_BYTES));
+        }
+        assertTotalBytes((long) BLOB_BYTES * count);
+
+        database.maxBytes = BLOB_BYTES;
+        database.evict();
+        assertTotalBytes(BLOB_BYTES);
+        assertEquals(count - 1L, database.getEvictionStatistics().getEvictedCount());
+    }
+
+    public void testEvictExpired() throws Exception {
+        database.put("old", blob(BLOB_BYTES));
+        database.put("new", blob(40));
+        // 保存日時を過去へずらす
+        database.store.db.execSQL("update " + database.store.tableName + " set " + BlobKeyValueStore.DB_DATE
+                + "=0 where " + BlobKeyValueStore.DB_KEY + "='old'");
+
+        database.setMaxAge(60 * 60 * 1000);
+        assertTrue(database.isExpired(0));
+        assertFalse(database.isExpired(System.currentTimeMillis()));
+
+        database.evict();
+        assertFalse(database.store.exists("old"));
+        assertTrue(database.store.exists("new"));
+        assertTotalBytes(40);
+
+        ImageCacheDatabase.EvictionStatistics statistics = database.getEvictionStatistics();
+        assertEquals(1L, statistics.getExpiredCount());
+        assertEquals(0L, statistics.getEvictedCount());
+        assertEquals((long) BLOB_BYTES, statistics.getEvictedBytes());
+    }
+
+    public void testNoLimitKeepsEverything() throws Exception {
+        putLater("a", BLOB_BYTES);
+        putLater("b", BLOB_BYTES);
+        database.evict();
+        assertTrue(database.store.exists("a"));
+        assertTrue(database.store.exists("b"));
+        assertEquals(1, database.getEvictionStatistics().getRunCount());
+    }
+
+    public void testRegisterUntrackedIncludesChunkedValues() throws Exception {
+        // 管理テーブルを通さずに保存された画像
+        database.store.insertOrUpdate("small", blob(BLOB_BYTES));
+        database.store.setChunkThreshold(16);
+        database.store.insertOrUpdate("chunked", blob(BLOB_BYTES * 3));
+        assertEquals(0L, database.querySize("small"));
+
+        database.registerUntracked();
+        assertEquals((long) BLOB_BYTES, database.querySize("small"));
+        assertEquals(BLOB_BYTES * 3L, database.querySize("chunked"));
+        assertTotalBytes(BLOB_BYTES * 4);
+    }
+
+    public void testClearResetsTotalBytes() {
+        database.put("a", blob(BLOB_BYTES));
+        database.touch("a");
+        database.clear();
+        assertTotalBytes(0);
+        assertTrue(database.pendingAccess.isEmpty());
+        assertFalse(database.store.exists("a"));
+
+        // 破棄したステートメントは作り直される
+        database.put("a", blob(BLOB_BYTES));
+        assertTotalBytes(BLOB_BYTES);
+    }
+}
@@ -0,0 +1,209 @@
+package com.eaglesakura.lib.android.db;
+
+import com.eaglesakura.lib.android.game.graphics.canvas.BitmapImage;
+
+import android.graphics.Bitmap;
+import android.graphics.Bitmap.CompressFormat;
+import android.graphics.Bitmap.Config;
+import android.test.AndroidTestCase;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ImageLoadPipeline}の要求の相乗り・キャンセル・優先度を、端末のSQLite上で確認する。<BR>
+ * I/Oスレッドを1つにし、loaderで読み込みを止めている間に後続の要求を操作する。
+ */
+public class ImageLoadPipelineTest extends AndroidTestCase {
+    static final long TIMEOUT_SEC = 10;
+
+    File dbFile;
+
+    ImageCacheDatabase database;
+
+    ImageLoadPipeline pipeline;
+
+    BlockingLoader loader;
+
+    /**
+     * "block"の読み込みを止めるloader
+     */
+    static class BlockingLoader implements ImageCacheDatabase.Loader {
+        /**
+         * "block"の読み込みが始まった
+         */
+        final CountDownLatch started = new CountDownLatch(1);
+
+        /**
+         * "block"の読み込みを再開させる
+         */
+        final CountDownLatch release = new CountDownLatch(1);
+
+        /**
+         * 読み込んだキーの順番
+         */
+        final List<String> loaded = Collections.synchronizedList(new ArrayList<String>());
+
+        final byte[] png;
+
+        BlockingLoader(byte[] png) {
+            this.png = png;
+        }
+
+        @Override
+        public byte[] load(ImageCacheDatabase db, String key) throws IOException {
+            loaded.add(key);
+            if (key.equals("block")) {
+                started.countDown();
+                try {
+                    release.await(TIMEOUT_SEC, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    throw new IOException("interrupted");
+                }
+            }
+            return png;
+        }
+
+        @Override
+        public boolean isExist(ImageCacheDatabase db, BitmapImage image, long date) {
+            return true;
+        }
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        dbFile = new File(getContext().getCacheDir(), "pipeline-test.db");
+        dbFile.delete();
+        database = new ImageCacheDatabase(dbFile, getContext(), "images", 1);
+        pipeline = new ImageLoadPipeline(database, 1, 1);
+
+        Bitmap bitmap = Bitmap.createBitmap(4, 4, Config.ARGB_8888);
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        bitmap.compress(CompressFormat.PNG, 100, png);
+        bitmap.recycle();
+        loader = new BlockingLoader(png.toByteArray());
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        loader.release.countDown();
+        pipeline.dispose();
+        database.dispose();
+        dbFile.delete();
+        super.tearDown();
+    }
+
+    /**
+     * I/Oスレッドを"block"の読み込みで止める。
+     */
+    ImageLoadPipeline.ImageFuture block() throws InterruptedException {
+        ImageLoadPipeline.ImageFuture result = pipeline.request("block", loader, ImageCacheDatabase.PRIORITY_NORMAL);
+        assertTrue(loader.started.await(TIMEOUT_SEC, TimeUnit.SECONDS));
+        return result;
+    }
+
+    BitmapImage get(ImageLoadPipeline.ImageFuture future) throws Exception {
+        BitmapImage result = future.get(TIMEOUT_SEC, TimeUnit.SECONDS);
+        assertNotNull(result);
+        return result;
+    }
+
+    public void testDuplicateRequestsAreCoalesced() throws Exception {
+        ImageLoadPipeline.ImageFuture first = block();
+        ImageLoadPipeline.ImageFuture second = pipeline.request("block", loader, ImageCacheDatabase.PRIORITY_NORMAL);
+        loader.release.countDown();
+
+        BitmapImage firstImage = get(first);
+        BitmapImage secondImage = get(second);
+        assertNotSame(firstImage, secondImage);
+        assertSame(firstImage.getBitmap(), secondImage.getBitmap());
+        assertEquals(1, loader.loaded.size());
+
+        firstImage.dispose();
+        assertFalse(secondImage.getBitmap().isRecycled());
+        secondImage.dispose();
+    }
+
+    public void testCancelQueuedRequestSkipsLoad() throws Exception {
+        ImageLoadPipeline.ImageFuture blocked = block();
+        ImageLoadPipeline.ImageFuture cancelled = pipeline.request("a", loader, ImageCacheDatabase.PRIORITY_NORMAL);
+        assertTrue(cancelled.cancel(false));
+        assertTrue(cancelled.isDone());
+        assertTrue(cancelled.isCancelled());
+        try {
+            cancelled.get();
+            fail();
+        } catch (CancellationException e) {
+        }
+        // 2回目のキャンセルは失敗する
+        assertFalse(cancelled.cancel(false));
+
+        loader.release.countDown();
+        get(blocked).dispose();
+
+        // 同じ優先度のタスクは発行順に処理されるため、"c"が終わった時点で"a"は実行されていない
+        get(pipeline.request("c", loader, ImageCacheDatabase.PRIORITY_NORMAL)).dispose();
+        assertEquals(2, loader.loaded.size());
+        assertEquals("block", loader.loaded.get(0));
+        assertEquals("c", loader.loaded.get(1));
+        assertTrue(pipeline.requests.isEmpty());
+    }
+
+    public void testCancelOneOfCoalescedFutures() throws Exception {
+        ImageLoadPipeline.ImageFuture blocked = block();
+        ImageLoadPipeline.ImageFuture first = pipeline.request("a", loader, ImageCacheDatabase.PRIORITY_NORMAL);
+        ImageLoadPipeline.ImageFuture second = pipeline.request("a", loader, ImageCacheDatabase.PRIORITY_NORMAL);
+        assertTrue(first.cancel(false));
+
+        loader.release.countDown();
+        get(blocked).dispose();
+        get(second).dispose();
+        assertTrue(first.isCancelled());
+        assertFalse(second.isCancelled());
+        assertEquals(2, loader.loaded.size());
+        assertEquals("a", loader.loaded.get(1));
+    }
+
+    public void testHigherPriorityIsLoadedFirst() throws Exception {
+        ImageLoadPipeline.ImageFuture blocked = block();
+        ImageLoadPipeline.ImageFuture low = pipeline.request("low", loader, ImageCacheDatabase.PRIORITY_NORMAL);
+        ImageLoadPipeline.ImageFuture raised = pipeline.request("raised", loader, ImageCacheDatabase.PRIORITY_NORMAL);
+        ImageLoadPipeline.ImageFuture high = pipeline.request("high", loader, ImageCacheDatabase.PRIORITY_HIGH);
+        // 相乗りした要求の優先度で待機中のタスクを入れ直す
+        ImageLoadPipeline.ImageFuture raisedAgain = pipeline.request("raised", loader,
+                ImageCacheDatabase.PRIORITY_HIGH + 1);
+
+        loader.release.countDown();
+        for (ImageLoadPipeline.ImageFuture future : new ImageLoadPipeline.ImageFuture[]{
+                blocked, low, raised, high, raisedAgain
+        }) {
+            get(future).dispose();
+        }
+        assertEquals(4, loader.loaded.size());
+        assertEquals("block", loader.loaded.get(0));
+        assertEquals("raised", loader.loaded.get(1));
+        assertEquals("high", loader.loaded.get(2));
+        assertEquals("low", loader.loaded.get(3));
+    }
+
+    public void testCancelAllCancelsWaitingFutures() throws Exception {
+        ImageLoadPipeline.ImageFuture blocked = block();
+        ImageLoadPipeline.ImageFuture waiting = pipeline.request("a", loader, ImageCacheDatabase.PRIORITY_NORMAL);
+        pipeline.cancelAll();
+        assertTrue(blocked.isCancelled());
+        assertTrue(waiting.isCancelled());
+        assertTrue(pipeline.requests.isEmpty());
+
+        loader.release.countDown();
+        get(pipeline.request("c", loader, ImageCacheDatabase.PRIORITY_NORMAL)).dispose();
+        assertFalse(loader.loaded.contains("a"));
+    }
+}
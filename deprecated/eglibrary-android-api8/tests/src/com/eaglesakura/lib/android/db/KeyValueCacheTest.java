@@ -0,0 +1,245 @@
+package com.eaglesakura.lib.android.db;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+/**
+ * {@link KeyValueCache}の書き込み反映・破棄時の未反映数とバイト数の管理を確認する。
+ */
+public class KeyValueCacheTest extends TestCase {
+
+    /**
+     * HashMapをKVSとして扱うキャッシュ。値のバイト数は文字数とする。
+     */
+    static class MapCache extends KeyValueCache<String> {
+        final Map<String, String> storage = new HashMap<String, String>();
+
+        /**
+         * storeValue()されたキー
+         */
+        final List<String> stored = new ArrayList<String>();
+
+        int transactions = 0;
+
+        /**
+         * トランザクション中ならtrue
+         */
+        boolean inTransaction = false;
+
+        MapCache(long maxBytes, WriteMode writeMode) {
+            super(maxBytes, writeMode);
+        }
+
+        @Override
+        protected String loadValue(String key) {
+            return storage.get(key);
+        }
+
+        @Override
+        protected void storeValue(String key, String value) {
+            stored.add(key);
+            storage.put(key, value);
+        }
+
+        @Override
+        protected void removeValue(String key) {
+            storage.remove(key);
+        }
+
+        @Override
+        protected void beginTransaction() {
+            assertFalse(inTransaction);
+            inTransaction = true;
+            ++transactions;
+        }
+
+        @Override
+        protected void endTransaction() {
+            assertTrue(inTransaction);
+            inTransaction = false;
+        }
+
+        @Override
+        protected int sizeOf(String value) {
+            return value.length();
+        }
+    }
+
+    /**
+     * キャッシュ内での1エントリのバイト数
+     */
+    static long entryBytes(String key, String value) {
+        return value.length() + key.length() * 2 + KeyValueCache.ENTRY_OVERHEAD;
+    }
+
+    /**
+     * 値の長さ
+     */
+    static final int VALUE_LENGTH = 100;
+
+    static String value(char c) {
+        StringBuilder result = new StringBuilder(VALUE_LENGTH);
+        for (int i = 0; i < VALUE_LENGTH; ++i) {
+            result.append(c);
+        }
+        return result.toString();
+    }
+
+    /**
+     * 保持バイト数・未反映数がエントリの内容と一致することを確認する。
+     */
+    static void assertConsistent(MapCache cache) {
+        long bytes = 0;
+        int dirty = 0;
+        for (KeyValueCache.Entry<String> entry : cache.entries.values()) {
+            bytes += entry.size;
+            if (entry.dirty) {
+                ++dirty;
+            }
+        }
+        assertEquals(bytes, cache.getCurrentBytes());
+        assertEquals(dirty, cache.dirtyCount);
+        assertFalse(cache.inTransaction);
+    }
+
+    public void testWriteBackDefersStore() {
+        MapCache cache = new MapCache(1024 * 1024, KeyValueCache.WriteMode.WriteBack);
+        cache.put("a", value('a'));
+        cache.put("b", value('b'));
+        assertTrue(cache.storage.isEmpty());
+        assertEquals(2, cache.dirtyCount);
+        assertEquals(entryBytes("a", value('a')) + entryBytes("b", value('b')), cache.getCurrentBytes());
+
+        cache.flush();
+        assertEquals(2, cache.stored.size());
+        assertEquals(1, cache.transactions);
+        assertConsistent(cache);
+        assertEquals(0, cache.dirtyCount);
+
+        // 未反映が無ければトランザクションを開始しない
+        cache.flush();
+        assertEquals(1, cache.transactions);
+    }
+
+    public void testWriteBackEvictionStoresDirtyEntry() {
+        final long entry = entryBytes("a", value('a'));
+        MapCache cache = new MapCache(entry * 2, KeyValueCache.WriteMode.WriteBack);
+        cache.put("a", value('a'));
+        cache.put("b", value('b'));
+        assertTrue(cache.stored.isEmpty());
+
+        // 最も古い"a"が破棄され、破棄前にKVSへ書き込まれる
+        cache.put("c", value('c'));
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals(value('a'), cache.storage.get("a"));
+        assertEquals(1, cache.stored.size());
+        assertEquals(1, cache.transactions);
+        assertEquals(2, cache.size());
+        assertEquals(2, cache.dirtyCount);
+        assertEquals(entry * 2, cache.getCurrentBytes());
+        assertConsistent(cache);
+
+        // 破棄された値はKVSから読み直される
+        assertEquals(value('a'), cache.get("a"));
+        assertEquals(1, cache.getMissCount());
+        assertConsistent(cache);
+    }
+
+    public void testEvictionFollowsAccessOrder() {
+        final long entry = entryBytes("a", value('a'));
+        MapCache cache = new MapCache(entry * 2, KeyValueCache.WriteMode.WriteBack);
+        cache.put("a", value('a'));
+        cache.put("b", value('b'));
+
+        // "a"を参照したため、"b"が先に破棄される
+        assertEquals(value('a'), cache.get("a"));
+        cache.put("c", value('c'));
+        assertEquals(1, cache.stored.size());
+        assertEquals("b", cache.stored.get(0));
+        assertEquals(1, cache.getHitCount());
+        assertConsistent(cache);
+    }
+
+    public void testOverwriteDirtyEntry() {
+        MapCache cache = new MapCache(1024 * 1024, KeyValueCache.WriteMode.WriteBack);
+        cache.put("a", value('a'));
+        cache.put("a", "short");
+        assertEquals(1, cache.dirtyCount);
+        assertEquals(entryBytes("a", "short"), cache.getCurrentBytes());
+        assertConsistent(cache);
+
+        cache.flush();
+        assertEquals(1, cache.stored.size());
+        assertEquals("short", cache.storage.get("a"));
+    }
+
+    public void testOversizedValueIsStoredWithoutCaching() {
+        final long entry = entryBytes("a", value('a'));
+        MapCache cache = new MapCache(entry, KeyValueCache.WriteMode.WriteBack);
+        cache.put("big", value('x') + value('y'));
+        assertEquals(value('x') + value('y'), cache.storage.get("big"));
+        assertEquals(0, cache.size());
+        assertEquals(0L, cache.getCurrentBytes());
+        assertConsistent(cache);
+    }
+
+    public void testSetMaxBytesStoresEvictedDirtyEntries() {
+        final long entry = entryBytes("a", value('a'));
+        MapCache cache = new MapCache(entry * 4, KeyValueCache.WriteMode.WriteBack);
+        cache.put("a", value('a'));
+        cache.put("b", value('b'));
+        cache.put("c", value('c'));
+
+        cache.setMaxBytes(entry);
+        assertEquals(1, cache.size());
+        assertEquals(2, cache.getEvictionCount());
+        assertEquals(value('a'), cache.storage.get("a"));
+        assertEquals(value('b'), cache.storage.get("b"));
+        assertEquals(1, cache.dirtyCount);
+        // 破棄時の書き込みは1トランザクションにまとめられる
+        assertEquals(1, cache.transactions);
+        assertConsistent(cache);
+    }
+
+    public void testRemoveDirtyEntry() {
+        MapCache cache = new MapCache(1024 * 1024, KeyValueCache.WriteMode.WriteBack);
+        cache.put("a", value('a'));
+        cache.put("b", value('b'));
+        cache.remove("a");
+        assertEquals(1, cache.dirtyCount);
+        assertConsistent(cache);
+
+        cache.flush();
+        assertEquals(1, cache.stored.size());
+        assertEquals("b", cache.stored.get(0));
+        assertFalse(cache.storage.containsKey("a"));
+    }
+
+    public void testDisposeWritesDirtyEntries() {
+        MapCache cache = new MapCache(1024 * 1024, KeyValueCache.WriteMode.WriteBack);
+        cache.put("a", value('a'));
+        cache.dispose();
+        assertEquals(value('a'), cache.storage.get("a"));
+        assertEquals(0, cache.size());
+        assertEquals(0L, cache.getCurrentBytes());
+        assertConsistent(cache);
+    }
+
+    public void testWriteThroughStoresImmediately() {
+        final long entry = entryBytes("a", value('a'));
+        MapCache cache = new MapCache(entry, KeyValueCache.WriteMode.WriteThrough);
+        cache.put("a", value('a'));
+        assertEquals(value('a'), cache.storage.get("a"));
+        assertEquals(0, cache.dirtyCount);
+
+        // 反映済みのエントリは破棄時に書き込まない
+        cache.put("b", value('b'));
+        assertEquals(2, cache.stored.size());
+        assertEquals(0, cache.transactions);
+        assertConsistent(cache);
+    }
+}
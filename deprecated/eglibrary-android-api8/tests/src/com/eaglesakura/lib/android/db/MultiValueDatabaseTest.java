@@ -0,0 +1,352 @@
+package com.eaglesakura.lib.android.db;
+
+import com.eaglesakura.lib.android.db.MultiValueDatabase.Column;
+import com.eaglesakura.lib.android.db.MultiValueDatabase.Data;
+import com.eaglesakura.lib.android.db.MultiValueDatabase.RowCallback;
+import com.eaglesakura.lib.android.db.MultiValueDatabase.RowCursor;
+import com.eaglesakura.lib.android.db.MultiValueDatabase.SelectionType;
+import com.eaglesakura.lib.android.db.MultiValueDatabase.ValueList;
+
+import android.database.Cursor;
+import android.test.AndroidTestCase;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link MultiValueDatabase}の検索条件の組み立て・インデックスの作成・行ビューでの読み込みを端末のSQLite上で確認する。
+ */
+public class MultiValueDatabaseTest extends AndroidTestCase {
+    static final String TABLE = "items";
+
+    static final String ID = "_id";
+
+    static final String NAME = "name";
+
+    static final String SCORE = "score";
+
+    static final String RATIO = "ratio";
+
+    static final String DATA = "data";
+
+    /**
+     * 登録する行数。scoreは0からROWS-1となる。
+     */
+    static final int ROWS = 10;
+
+    File dbFile;
+
+    MultiValueDatabase database;
+
+    static ValueList newValueList() {
+        ValueList result = new ValueList(TABLE);
+        result.setPrimary(new Column(DBValueType.Text, ID));
+        result.addColmn(new Column(DBValueType.Text, NAME));
+        result.addColmn(new Column(DBValueType.Integer, SCORE));
+        result.addColmn(new Column(DBValueType.Real, RATIO));
+        result.addColmn(new Column(DBValueType.Blob, DATA));
+        result.addIndex(SCORE);
+        result.addUniqueIndex(NAME);
+        return result;
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        dbFile = new File(getContext().getCacheDir(), "multi-value-test.db");
+        dbFile.delete();
+        database = new MultiValueDatabase(getContext(), dbFile, DBType.ReadWrite, newValueList());
+
+        database.beginTransaction();
+        try {
+            for (int i = 0; i < ROWS; ++i) {
+                assertTrue(database.insertOrUpdate(row("id-" + i, "name-" + i, i)));
+            }
+        } finally {
+            database.endTransaction();
+        }
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        database.dispose();
+        dbFile.delete();
+        super.tearDown();
+    }
+
+    static Map<String, Object> row(String id, String name, int score) {
+        Map<String, Object> result = new HashMap<String, Object>();
+        result.put(ID, id);
+        result.put(NAME, name);
+        result.put(SCORE, score);
+        result.put(RATIO, score * 0.5);
+        result.put(DATA, new byte[]{
+                (byte) score
+        });
+        return result;
+    }
+
+    static List<Long> scores(List<Data> list) {
+        List<Long> result = new ArrayList<Long>();
+        for (Data data : list) {
+            result.add(data.getLong(SCORE, -1));
+        }
+        return result;
+    }
+
+    /**
+     * テーブルに作成されているインデックス名
+     */
+    List<String> indexNames() {
+        List<String> result = new ArrayList<String>();
+        Cursor cursor = database.getDb().rawQuery(
+                "select name from sqlite_master where type='index' and tbl_name=? and sql is not null", new String[]{
+                        TABLE
+                });
+        try {
+            while (cursor.moveToNext()) {
+                result.add(cursor.getString(0));
+            }
+        } finally {
+            cursor.close();
+        }
+        return result;
+    }
+
+    public void testIndexSql() {
+        assertEquals("create index if not exists items_idx_score on items (score)",
+                new MultiValueDatabase.Index(false, SCORE).sql(TABLE));
+        assertEquals("create unique index if not exists items_idx_name_score on items (name, score)",
+                new MultiValueDatabase.Index(true, NAME, SCORE).sql(TABLE));
+        try {
+            new MultiValueDatabase.Index(false);
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+    public void testIndicesAreCreated() {
+        List<String> names = indexNames();
+        assertEquals(2, names.size());
+        assertTrue(names.contains("items_idx_score"));
+        assertTrue(names.contains("items_idx_name"));
+
+        // 作り直したテーブルにもインデックスを作成する
+        database.resetTable();
+        assertEquals(2, indexNames().size());
+    }
+
+    public void testIndexAddedToExistingFile() {
+        database.dispose();
+
+        ValueList valueList = newValueList();
+        valueList.addIndex(RATIO, SCORE);
+        database = new MultiValueDatabase(getContext(), dbFile, DBType.ReadWrite, valueList);
+        assertTrue(indexNames().contains("items_idx_ratio_score"));
+        assertEquals(ROWS, database.query().count());
+    }
+
+    public void testUniqueIndexRejectsDuplicate() {
+        database.insertOrUpdate(row("other", "name-0", 100));
+        assertNull(database.getOrNull("other"));
+        assertEquals(1, database.query().where(NAME, SelectionType.Equal, "name-0").count());
+    }
+
+    public void testQuotedValueIsBound() {
+        assertTrue(database.insertOrUpdate(row("it's", "O'Brien", 100)));
+        Data data = database.getOrNull("it's");
+        assertNotNull(data);
+        assertEquals("O'Brien", data.getText(NAME, null));
+        assertEquals(100L, database.query().where(NAME, SelectionType.Equal, "O'Brien").first().getLong(SCORE, -1));
+
+        // 主キーでの上書き
+        assertTrue(database.insertOrUpdate(row("it's", "O'Brien", 200)));
+        assertEquals(200L, database.getOrNull("it's").getLong(SCORE, -1));
+
+        database.remove("it's");
+        assertNull(database.getOrNull("it's"));
+        assertEquals(ROWS, database.query().count());
+    }
+
+    public void testWhereOrderLimitOffset() {
+        MultiValueDatabase.Query query = database.query().where(SCORE, SelectionType.LargeEqual, 3)
+                .orderBy(SCORE, false).limit(3).offset(1);
+        List<Long> result = scores(query.list());
+        assertEquals(3, result.size());
+        assertEquals(8L, (long) result.get(0));
+        assertEquals(7L, (long) result.get(1));
+        assertEquals(6L, (long) result.get(2));
+
+        // 件数はlimit・offsetを無視する
+        assertEquals(7, query.count());
+    }
+
+    public void testLimitClause() {
+        assertNull(database.query().limit());
+        assertEquals("3", database.query().limit(3).limit());
+        assertEquals("1,3", database.query().limit(3).offset(1).limit());
+        assertEquals("8," + Long.MAX_VALUE, database.query().offset(8).limit());
+    }
+
+    public void testOffsetWithoutLimit() {
+        List<Long> result = scores(database.query().orderBy(SCORE, true).offset(ROWS - 2).list());
+        assertEquals(2, result.size());
+        assertEquals(ROWS - 2L, (long) result.get(0));
+    }
+
+    public void testConditionsAreJoinedWithAnd() {
+        MultiValueDatabase.Query query = database.query().where(SCORE, SelectionType.LargeEqual, 2)
+                .where(SCORE + "<? or " + SCORE + "=?", "5", "9");
+        assertEquals("(score>=?) and (score<? or score=?)", query.selection());
+        assertEquals(4, query.count());
+        assertEquals(4, query.list().size());
+    }
+
+    public void testSelectionTypes() {
+        assertEquals(1, database.query().where(SCORE, SelectionType.Equal, 5).count());
+        assertEquals(ROWS - 1, database.query().where(SCORE, SelectionType.NotEqual, 5).count());
+        assertEquals(4, database.query().where(SCORE, SelectionType.Large, 5).count());
+        assertEquals(5, database.query().where(SCORE, SelectionType.Small, 5).count());
+        assertEquals(6, database.query().where(SCORE, SelectionType.SmallEqual, 5).count());
+        // booleanは0/1として比較する
+        assertEquals(1, database.query().where(SCORE, SelectionType.Equal, true).count());
+    }
+
+    public void testUnknownColumnIsRejected() {
+        try {
+            database.query().where("unknown", SelectionType.Equal, 0);
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+    public void testColumnsProjection() {
+        Data data = database.query().where(ID, SelectionType.Equal, "id-3").columns(ID, NAME).first();
+        assertEquals("name-3", data.getText(NAME, null));
+        assertEquals(-1L, data.getLong(SCORE, -1));
+        assertNull(data.getBlob(DATA, null));
+    }
+
+    public void testFirstKeepsLimit() {
+        MultiValueDatabase.Query query = database.query().orderBy(SCORE, true).limit(5);
+        assertEquals(0L, query.first().getLong(SCORE, -1));
+        assertEquals(5, query.list().size());
+        assertNull(database.query().where(SCORE, SelectionType.Large, 100).first());
+    }
+
+    public void testLegacyList() {
+        List<Data> result = database.list(NAME, "name-4");
+        assertEquals(1, result.size());
+        Data data = result.get(0);
+        assertEquals(4L, data.getLong(SCORE, -1));
+        assertEquals(2.0, data.getReal(RATIO, -1), 0);
+        assertEquals(4, data.getBlob(DATA, null)[0]);
+
+        assertEquals(7, database.list(SCORE, 7, SelectionType.Small, new String[]{
+                ID
+        }).size());
+    }
+
+    public void testForEachReusesRowCursor() {
+        final List<RowCursor> rows = new ArrayList<RowCursor>();
+        final long[] sum = {
+                0
+        };
+        int count = database.forEach(new RowCallback() {
+            @Override
+            public boolean onRow(RowCursor row) {
+                rows.add(row);
+                sum[0] += row.getLong(SCORE, 0);
+                return true;
+            }
+        });
+        assertEquals(ROWS, count);
+        assertEquals(ROWS * (ROWS - 1) / 2L, sum[0]);
+        for (RowCursor row : rows) {
+            assertSame(rows.get(0), row);
+        }
+        // 走査が終わったカーソルは閉じられている
+        assertNull(rows.get(0).cursor);
+    }
+
+    public void testForEachStopsEarly() {
+        final List<Long> scores = new ArrayList<Long>();
+        int count = database.query().orderBy(SCORE, true).forEach(new RowCallback() {
+            @Override
+            public boolean onRow(RowCursor row) {
+                scores.add(row.getLong(SCORE, -1));
+                return scores.size() < 3;
+            }
+        });
+        assertEquals(3, count);
+        assertEquals(3, scores.size());
+        assertEquals(2L, (long) scores.get(2));
+    }
+
+    public void testTypedGetters() {
+        RowCursor row = database.query().where(ID, SelectionType.Equal, "id-3").open();
+        try {
+            assertEquals(1, row.getCount());
+            assertTrue(row.moveToNext());
+            assertEquals("id-3", row.getText(ID, null));
+            assertEquals("name-3", row.getText(NAME, null));
+            assertEquals(3, row.getInteger(SCORE, -1));
+            assertTrue(row.getBoolean(SCORE, false));
+            assertEquals(1.5, row.getReal(RATIO, -1), 0);
+            assertEquals(3, row.getBlob(DATA, null)[0]);
+
+            // 位置指定でも同じ値を読み込む
+            final int score = row.getColumnIndex(SCORE);
+            assertTrue(score >= 0);
+            assertEquals(3L, row.getLong(score, -1));
+            assertFalse(row.moveToNext());
+        } finally {
+            row.dispose();
+        }
+    }
+
+    public void testProjectionAndNullUseDefaults() {
+        Map<String, Object> values = row("empty", "empty", 100);
+        values.remove(RATIO);
+        values.remove(DATA);
+        assertTrue(database.insertOrUpdate(values));
+
+        RowCursor row = database.query().where(ID, SelectionType.Equal, "empty").columns(ID, SCORE, DATA).open();
+        try {
+            assertTrue(row.moveToNext());
+            // 取得していないカラム
+            assertEquals(-1, row.getColumnIndex(NAME));
+            assertTrue(row.isNull(-1));
+            assertEquals("def", row.getText(NAME, "def"));
+            assertEquals(-1.0, row.getReal(RATIO, -1), 0);
+
+            // NULLのカラム
+            assertTrue(row.getColumnIndex(DATA) >= 0);
+            assertTrue(row.isNull(row.getColumnIndex(DATA)));
+            assertNull(row.getBlob(DATA, null));
+            assertEquals(100L, row.getLong(SCORE, -1));
+        } finally {
+            row.dispose();
+        }
+    }
+
+    public void testToDataOutlivesCursor() {
+        final List<Data> copies = new ArrayList<Data>();
+        database.query().orderBy(SCORE, true).forEach(new RowCallback() {
+            @Override
+            public boolean onRow(RowCursor row) {
+                copies.add(row.toData());
+                return true;
+            }
+        });
+        assertEquals(ROWS, copies.size());
+        for (int i = 0; i < ROWS; ++i) {
+            Data data = copies.get(i);
+            assertEquals("name-" + i, data.getText(NAME, null));
+            assertEquals((long) i, data.getLong(SCORE, -1));
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.eaglesakura.lib.android.db;
+
+import com.eaglesakura.lib.android.db.TextKeyValueStore.BinaryStorage;
+
+import android.database.Cursor;
+import android.test.AndroidTestCase;
+
+import java.io.File;
+import java.util.Arrays;
+
+/**
+ * {@link TextKeyValueStore}のbyte配列の保存方法と、既存テーブルのblobカラムへの移行を端末のSQLite上で確認する。
+ */
+public class TextKeyValueStoreTest extends AndroidTestCase {
+    static final String TABLE = "entries";
+
+    static final int DB_VERSION = 1;
+
+    static final byte[] BINARY = {
+            0, 1, 2, (byte) 0xFF, 'a', 0
+    };
+
+    File dbFile;
+
+    File otherFile;
+
+    TextKeyValueStore store;
+
+    TextKeyValueStore other;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        dbFile = new File(getContext().getCacheDir(), "text-kvs-test.db");
+        otherFile = new File(getContext().getCacheDir(), "text-kvs-test-other.db");
+        dbFile.delete();
+        otherFile.delete();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        if (store != null) {
+            store.dispose();
+        }
+        if (other != null) {
+            other.dispose();
+        }
+        dbFile.delete();
+        otherFile.delete();
+        super.tearDown();
+    }
+
+    TextKeyValueStore open(File file, BinaryStorage binaryStorage) {
+        return new TextKeyValueStore(file, getContext(), TABLE, DBType.ReadWrite, DB_VERSION, binaryStorage);
+    }
+
+    /**
+     * 値がblobカラムに保存されていればtrue
+     */
+    static boolean isStoredAsBlob(TextKeyValueStore store, String key) {
+        Cursor cursor = store.db.rawQuery("select " + TextKeyValueStore.DB_VALUE + " is null and "
+                + TextKeyValueStore.DB_BLOB + " is not null from " + TABLE + " where " + TextKeyValueStore.DB_KEY
+                + "=?", new String[]{
+                key
+        });
+        try {
+            assertTrue(cursor.moveToFirst());
+            return cursor.getInt(0) != 0;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    public void testTextModeKeepsLegacyFormat() {
+        store = new TextKeyValueStore(dbFile, getContext(), TABLE, DBType.ReadWrite, DB_VERSION);
+        assertEquals(BinaryStorage.Text, store.binaryStorage);
+        assertFalse(store.hasBlobColumn);
+        assertFalse(store.checkBlobColumn());
+
+        store.insertOrUpdate("bin", BINARY);
+        assertTrue(Arrays.equals(BINARY, store.getBytesOrNull("bin")));
+        assertEquals(TextKeyValueStore.toString(BINARY), store.getOrNull("bin"));
+    }
+
+    public void testBlobModeStoresRawBytes() {
+        store = open(dbFile, BinaryStorage.Blob);
+        assertTrue(store.checkBlobColumn());
+
+        store.insertOrUpdate("bin", BINARY);
+        assertTrue(isStoredAsBlob(store, "bin"));
+        assertTrue(Arrays.equals(BINARY, store.getBytesOrNull("bin")));
+
+        // 文字列として読み込む場合は従来通りBase64となる
+        assertEquals(TextKeyValueStore.toString(BINARY), store.getOrNull("bin"));
+        assertEquals(TextKeyValueStore.toString(BINARY), store.get("bin").getText());
+        assertEquals(1, store.list().size());
+
+        store.insertOrUpdate("text", "hello");
+        assertFalse(isStoredAsBlob(store, "text"));
+        assertEquals("hello", store.getOrNull("text"));
+    }
+
+    public void testOverwriteSwitchesColumn() {
+        store = open(dbFile, BinaryStorage.Blob);
+        store.insertOrUpdate("key", BINARY);
+        store.insertOrUpdate("key", "hello");
+        assertFalse(isStoredAsBlob(store, "key"));
+        assertEquals("hello", store.getOrNull("key"));
+        assertNull(store.get("key").blob);
+
+        store.insertOrUpdate("key", BINARY);
+        assertTrue(isStoredAsBlob(store, "key"));
+        assertTrue(Arrays.equals(BINARY, store.getBytesOrNull("key")));
+    }
+
+    public void testDropTableKeepsBlobColumn() {
+        store = open(dbFile, BinaryStorage.Blob);
+        store.insertOrUpdate("bin", BINARY);
+        store.dropTable();
+        assertTrue(store.hasBlobColumn);
+        assertNull(store.getOrNull("bin"));
+
+        store.insertOrUpdate("bin", BINARY);
+        assertTrue(isStoredAsBlob(store, "bin"));
+    }
+
+    public void testMigrateExistingTable() {
+        store = open(dbFile, BinaryStorage.Text);
+        store.insertOrUpdate("bin", BINARY);
+        store.insertOrUpdate("text", "hello");
+        store.dispose();
+
+        // blobカラムの無いテーブルを開くとカラムが追加される
+        store = open(dbFile, BinaryStorage.Blob);
+        assertTrue(store.hasBlobColumn);
+        assertTrue(store.checkBlobColumn());
+
+        // 移行前はBase64から読み込む
+        assertFalse(isStoredAsBlob(store, "bin"));
+        assertTrue(Arrays.equals(BINARY, store.getBytesOrNull("bin")));
+
+        TextKeyValueStore.BinaryKeyFilter filter = new TextKeyValueStore.BinaryKeyFilter() {
+            @Override
+            public boolean isBinary(String key) {
+                return key.equals("bin");
+            }
+        };
+        assertEquals(1, store.migrateToBlob(filter));
+        assertTrue(isStoredAsBlob(store, "bin"));
+        assertTrue(Arrays.equals(BINARY, store.getBytesOrNull("bin")));
+        assertEquals("hello", store.getOrNull("text"));
+
+        // 移行済みの値は対象にならない
+        assertEquals(0, store.migrateToBlob(filter));
+    }
+
+    public void testMigrateSkipsInvalidBase64() {
+        store = open(dbFile, BinaryStorage.Blob);
+        // 5文字は4文字単位にならないため、Base64として復号できない
+        store.insertOrUpdate("text", "abcde");
+        assertEquals(0, store.migrateToBlob(new TextKeyValueStore.BinaryKeyFilter() {
+            @Override
+            public boolean isBinary(String key) {
+                return true;
+            }
+        }));
+        assertEquals("abcde", store.getOrNull("text"));
+    }
+
+    public void testMigrateRequiresBlobColumn() {
+        store = open(dbFile, BinaryStorage.Text);
+        try {
+            store.migrateToBlob(new TextKeyValueStore.BinaryKeyFilter() {
+                @Override
+                public boolean isBinary(String key) {
+                    return true;
+                }
+            });
+            fail();
+        } catch (IllegalStateException e) {
+        }
+    }
+
+    public void testInsertToCarriesBlob() {
+        other = open(otherFile, BinaryStorage.Blob);
+        other.insertOrUpdate("bin", BINARY);
+        other.insertOrUpdate("text", "hello");
+
+        // Textモードへ結合した場合はBase64で保存される
+        store = open(dbFile, BinaryStorage.Text);
+        store.insertTo(other, TextKeyValueStore.FILTER_ALWAYS_OVERWRITE);
+        assertTrue(Arrays.equals(BINARY, store.getBytesOrNull("bin")));
+        assertEquals("hello", store.getOrNull("text"));
+        store.dispose();
+        dbFile.delete();
+
+        store = open(dbFile, BinaryStorage.Blob);
+        store.insertTo(other, TextKeyValueStore.FILTER_ALWAYS_OVERWRITE);
+        assertTrue(isStoredAsBlob(store, "bin"));
+        assertTrue(Arrays.equals(BINARY, store.getBytesOrNull("bin")));
+        assertEquals("hello", store.getOrNull("text"));
+    }
+}
@@ -0,0 +1,177 @@
+package com.eaglesakura.lib.android.game.graphics.gl11.hw;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.microedition.khronos.opengles.GL11;
+import javax.microedition.khronos.opengles.GL11ExtensionPack;
+
+/**
+ * GL呼び出しを記録するテスト用のGL11。<BR>
+ * 実際のドライバと同じく、glGen*()は削除済みの名前のうち最も小さいものを再利用し、無ければ新しい名前を返す。<BR>
+ * glDelete*()は削除された名前を記録し、生きていない名前の削除・バインドは不正な呼び出しとして数える。
+ */
+class RecordingGL11 implements InvocationHandler {
+    /**
+     * オブジェクトの種類ごとの名前の状態
+     */
+    static class Names {
+        /**
+         * 確保済みで削除されていない名前
+         */
+        final Set<Integer> live = new HashSet<Integer>();
+
+        /**
+         * 削除され、再利用を待っている名前
+         */
+        final TreeSet<Integer> free = new TreeSet<Integer>();
+
+        /**
+         * 一度も使われていない名前の先頭
+         */
+        int next = 1;
+
+        int gen() {
+            final int result = free.isEmpty() ? next++ : free.pollFirst();
+            live.add(result);
+            return result;
+        }
+    }
+
+    /**
+     * glBind*()とオブジェクトの種類の対応
+     */
+    static final Map<String, String> BIND_KINDS = new HashMap<String, String>();
+
+    static {
+        BIND_KINDS.put("glBindTexture", "Textures");
+        BIND_KINDS.put("glBindBuffer", "Buffers");
+        BIND_KINDS.put("glBindFramebufferOES", "FramebuffersOES");
+        BIND_KINDS.put("glBindRenderbufferOES", "RenderbuffersOES");
+    }
+
+    /**
+     * GL11とGL11ExtensionPackを実装したオブジェクト
+     */
+    final GL11 gl;
+
+    /**
+     * メソッド名ごとの呼び出し回数
+     */
+    final Map<String, Integer> calls = new HashMap<String, Integer>();
+
+    /**
+     * glDelete*()のメソッド名ごとの削除された名前
+     */
+    final Map<String, List<Integer>> deleted = new HashMap<String, List<Integer>>();
+
+    /**
+     * "Textures"、"Buffers"等の種類ごとの名前
+     */
+    final Map<String, Names> kinds = new HashMap<String, Names>();
+
+    /**
+     * 生きていない名前を削除した回数
+     */
+    int invalidDeletes = 0;
+
+    /**
+     * 生きていない名前をバインドした回数
+     */
+    int invalidBinds = 0;
+
+    RecordingGL11() {
+        gl = (GL11) Proxy.newProxyInstance(RecordingGL11.class.getClassLoader(), new Class<?>[]{
+                GL11.class, GL11ExtensionPack.class
+        }, this);
+    }
+
+    Names names(String kind) {
+        Names result = kinds.get(kind);
+        if (result == null) {
+            result = new Names();
+            kinds.put(kind, result);
+        }
+        return result;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        final String name = method.getName();
+        if (method.getDeclaringClass() == Object.class) {
+            return method.invoke(this, args);
+        }
+
+        final Integer count = calls.get(name);
+        calls.put(name, count != null ? count + 1 : 1);
+
+        if (args != null && args.length == 3 && args[1] instanceof int[]) {
+            final int n = (Integer) args[0];
+            final int[] buffer = (int[]) args[1];
+            final int offset = (Integer) args[2];
+            if (name.startsWith("glGen")) {
+                final Names kind = names(name.substring("glGen".length()));
+                for (int i = 0; i < n; ++i) {
+                    buffer[offset + i] = kind.gen();
+                }
+            } else if (name.startsWith("glDelete")) {
+                final Names kind = names(name.substring("glDelete".length()));
+                List<Integer> list = deleted.get(name);
+                if (list == null) {
+                    list = new ArrayList<Integer>();
+                    deleted.put(name, list);
+                }
+                for (int i = 0; i < n; ++i) {
+                    final int target = buffer[offset + i];
+                    list.add(target);
+                    if (kind.live.remove(target)) {
+                        kind.free.add(target);
+                    } else {
+                        ++invalidDeletes;
+                    }
+                }
+            }
+        } else if (BIND_KINDS.containsKey(name)) {
+            // glBindTexture(target, texture)等
+            final int target = (Integer) args[1];
+            if (target != 0 && !names(BIND_KINDS.get(name)).live.contains(target)) {
+                ++invalidBinds;
+            }
+        }
+
+        final Class<?> type = method.getReturnType();
+        if (type == int.class) {
+            // glGetError()はGL_NO_ERRORとなる
+            return 0;
+        } else if (type == boolean.class) {
+            return false;
+        } else if (type == float.class) {
+            return 0.0f;
+        }
+        return null;
+    }
+
+    /**
+     * 呼び出し回数を取得する。
+     */
+    int count(String name) {
+        final Integer result = calls.get(name);
+        return result != null ? result : 0;
+    }
+
+    /**
+     * 削除された名前を取得する。
+     */
+    List<Integer> deleted(String name) {
+        final List<Integer> result = deleted.get(name);
+        return result != null ? result : new ArrayList<Integer>();
+    }
+}
@@ -0,0 +1,117 @@
+package com.eaglesakura.lib.android.game.graphics.gl11.hw;
+
+import com.eaglesakura.lib.android.game.graphics.gl11.QuadPolygon;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+/**
+ * {@link VRAM}のオブジェクト名の確保・削除をGL呼び出し回数で確認する。
+ */
+public class VRAMNamePoolTest extends TestCase {
+    RecordingGL11 recorder;
+
+    VRAM vram;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        recorder = new RecordingGL11();
+        vram = new VRAM(null, recorder.gl);
+    }
+
+    public void testGenTextureInBlocks() {
+        Set<Integer> names = new HashSet<Integer>();
+        for (int i = 0; i < GLNamePool.BLOCK_SIZE * 3 + 1; ++i) {
+            names.add(vram.genTexture());
+        }
+        assertEquals(GLNamePool.BLOCK_SIZE * 3 + 1, names.size());
+        assertEquals(4, recorder.count("glGenTextures"));
+    }
+
+    public void testDeleteIsBatchedPerFlush() {
+        int[] textures = new int[10];
+        for (int i = 0; i < textures.length; ++i) {
+            textures[i] = vram.genTexture();
+        }
+        for (int texture : textures) {
+            vram.deleteTexture(texture);
+            // 重複した削除は1回にまとめられる
+            vram.deleteTexture(texture);
+        }
+        assertEquals(0, recorder.count("glDeleteTextures"));
+
+        assertEquals(textures.length, vram.flushDeletions());
+        assertEquals(1, recorder.count("glDeleteTextures"));
+        assertEquals(textures.length, recorder.deleted("glDeleteTextures").size());
+
+        // 削除待ちが無ければ呼び出さない
+        assertEquals(0, vram.flushDeletions());
+        assertEquals(1, recorder.count("glDeleteTextures"));
+    }
+
+    public void testDeleteFlushedAtThreshold() {
+        for (int i = 0; i < GLNamePool.FLUSH_THRESHOLD; ++i) {
+            vram.deleteVertexBufferObject(vram.genVertexBufferObject());
+        }
+        assertEquals(1, recorder.count("glDeleteBuffers"));
+        assertEquals(GLNamePool.FLUSH_THRESHOLD, recorder.deleted("glDeleteBuffers").size());
+    }
+
+    public void testDisposedPolygonDoesNotDeleteLiveBuffer() {
+        QuadPolygon disposed = new QuadPolygon(vram);
+        disposed.dispose();
+        // GLへの削除はflushまで行わない
+        assertEquals(0, recorder.count("glDeleteBuffers"));
+
+        QuadPolygon live = new QuadPolygon(vram);
+        vram.flushDeletions();
+        assertEquals(1, recorder.count("glDeleteBuffers"));
+        assertEquals(Arrays.asList(1), recorder.deleted("glDeleteBuffers"));
+
+        live.bind();
+        assertEquals(0, recorder.invalidBinds);
+    }
+
+    /**
+     * 1フレーム内で削除待ちが閾値を超え、ドライバが解放済みの名前を再利用しても、生きているVBOを削除しない。
+     */
+    public void testReusedNameIsNotDeletedInSameFrame() {
+        final int count = 300;
+        List<QuadPolygon> polygons = new ArrayList<QuadPolygon>();
+        for (int i = 0; i < count; ++i) {
+            polygons.add(new QuadPolygon(vram));
+        }
+        for (QuadPolygon polygon : polygons) {
+            polygon.dispose();
+        }
+
+        polygons.clear();
+        for (int i = 0; i < count; ++i) {
+            polygons.add(new QuadPolygon(vram));
+        }
+        // フレーム終了時の削除
+        vram.flushDeletions();
+
+        for (QuadPolygon polygon : polygons) {
+            polygon.bind();
+        }
+        assertEquals(0, recorder.invalidDeletes);
+        assertEquals(0, recorder.invalidBinds);
+    }
+
+    public void testDisposeDeletesUnusedNames() {
+        vram.genFrameBufferObject();
+        final int renderBuffer = vram.genRenderBuffer();
+        vram.deleteRenderBuffer(renderBuffer);
+
+        vram.dispose();
+        assertEquals(GLNamePool.BLOCK_SIZE - 1, recorder.deleted("glDeleteFramebuffersOES").size());
+        assertEquals(GLNamePool.BLOCK_SIZE, recorder.deleted("glDeleteRenderbuffersOES").size());
+    }
+}
@@ -0,0 +1,70 @@
+package com.eaglesakura.lib.android.game.tests;
+
+import com.eaglesakura.lib.android.game.util.LogUtil;
+
+import java.util.Arrays;
+
+/**
+ * テストプロジェクト上で処理時間を比較する簡易ベンチマーク。<BR>
+ * JMHはAndroidのテストAPK上で動作しないため、ウォームアップ後に指定回数計測し、1回あたりの中央値をログへ出力する。<BR>
+ * 計測値は端末・VMに依存するため、同じ実行内での比較にのみ利用すること。
+ */
+public final class Benchmark {
+    /**
+     * 計測する処理
+     */
+    public interface Body {
+        /**
+         * 1回分の処理を行う。
+         *
+         * @return 最適化で処理が取り除かれないよう、処理結果を返す
+         */
+        Object run() throws Exception;
+    }
+
+    /**
+     * 処理結果の書き込み先
+     */
+    static volatile Object sink;
+
+    private Benchmark() {
+    }
+
+    /**
+     * 処理時間を計測する。
+     *
+     * @param name       ログへ出力する名前
+     * @param warmups    計測前に実行する回数
+     * @param iterations 計測する回数
+     * @return 1回あたりの処理時間の中央値（ナノ秒）
+     */
+    public static long measure(String name, int warmups, int iterations, Body body) throws Exception {
+        for (int i = 0; i < warmups; ++i) {
+            sink = body.run();
+        }
+
+        final long[] times = new long[iterations];
+        for (int i = 0; i < iterations; ++i) {
+            final long start = System.nanoTime();
+            sink = body.run();
+            times[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(times);
+        final long median = times[iterations / 2];
+        LogUtil.log(name + " :: " + (median / 1000) + "us/op (median of " + iterations + ")");
+        return median;
+    }
+
+    /**
+     * GCを行った後のヒープ使用量を取得する。<BR>
+     * 計測対象を参照したまま呼び出し、前後の差を保持しているメモリ量とする。
+     */
+    public static long usedHeap() throws InterruptedException {
+        final Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 4; ++i) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,85 @@
+package com.eaglesakura.lib.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+/**
+ * 圧縮ブロックの読み書きと、壊れたヘッダの検出を確認する。
+ */
+public class BlockCodecTest extends TestCase {
+
+    /**
+     * ヘッダと保存データを直接書き込む。
+     */
+    static byte[] block(byte codec, int rawLength, int storedLength, byte[] stored) throws IOException {
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        DataOutputStream stream = new DataOutputStream(result);
+        stream.writeS8(codec);
+        stream.writeVarU32(rawLength);
+        stream.writeVarU32(storedLength);
+        stream.writeS32(BlockCodec.crc32(stored, 0, stored.length));
+        stream.writeBuffer(stored, 0, stored.length);
+        stream.flush();
+        return result.toByteArray();
+    }
+
+    static byte[] read(byte[] block) throws IOException {
+        return new DataInputStream(new ByteArrayInputStream(block)).readCompressedFile();
+    }
+
+    static void assertBroken(byte[] block) {
+        try {
+            read(block);
+            fail();
+        } catch (IOException e) {
+        }
+    }
+
+    public void testRoundTrip() throws IOException {
+        byte[] compressible = new byte[4096];
+        byte[] random = new byte[64];
+        new java.util.Random(1).nextBytes(random);
+
+        for (byte[] raw : new byte[][]{
+                compressible, random, new byte[0]
+        }) {
+            ByteArrayOutputStream result = new ByteArrayOutputStream();
+            DataOutputStream stream = new DataOutputStream(result);
+            stream.writeCompressedFile(raw);
+            stream.flush();
+            assertTrue(Arrays.equals(raw, read(result.toByteArray())));
+        }
+    }
+
+    public void testNegativeRawLength() throws IOException {
+        byte[] stored = BlockCodec.deflate(new byte[16], 0, 16);
+        assertBroken(block(BlockCodec.CODEC_DEFLATE, -1, stored.length, stored));
+    }
+
+    public void testRawLengthOverDeflateRatio() throws IOException {
+        byte[] stored = BlockCodec.deflate(new byte[16], 0, 16);
+        assertBroken(block(BlockCodec.CODEC_DEFLATE, stored.length * BlockCodec.MAX_DEFLATE_RATIO + 1,
+                stored.length, stored));
+    }
+
+    public void testRawLengthOverLimit() throws IOException {
+        byte[] stored = new byte[16];
+        assertBroken(block(BlockCodec.CODEC_STORED, BlockCodec.MAX_BLOCK_LENGTH + 1, BlockCodec.MAX_BLOCK_LENGTH + 1,
+                stored));
+    }
+
+    public void testStoredLengthMismatch() throws IOException {
+        byte[] stored = new byte[16];
+        assertBroken(block(BlockCodec.CODEC_STORED, 32, stored.length, stored));
+        assertBroken(block(BlockCodec.CODEC_STORED, 8, stored.length, stored));
+    }
+
+    public void testUnknownCodec() throws IOException {
+        byte[] stored = new byte[16];
+        assertBroken(block((byte) 2, stored.length, stored.length, stored));
+    }
+}
@@ -0,0 +1,150 @@
+package com.eaglesakura.lib.io;
+
+import com.eaglesakura.lib.android.game.tests.Benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+/**
+ * 配列の一括読み書き（ByteBufferのビュー経由）と、1要素ずつの読み書きの処理時間を比較する。<BR>
+ * 結果はログへ出力し、値の大小は検証しない。読み込んだ値が一致することのみ確認する。
+ */
+public class DataStreamArrayBenchmark extends TestCase {
+    /**
+     * 頂点テーブル相当の要素数
+     */
+    static final int ELEMENTS = 64 * 1024;
+
+    static final int WARMUPS = 10;
+
+    static final int ITERATIONS = 30;
+
+    int[] ints;
+
+    float[] floats;
+
+    short[] shorts;
+
+    /**
+     * 一括書き込みした配列
+     */
+    byte[] encoded;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        ints = new int[ELEMENTS];
+        floats = new float[ELEMENTS];
+        shorts = new short[ELEMENTS];
+        for (int i = 0; i < ELEMENTS; ++i) {
+            ints[i] = i * 31 - ELEMENTS;
+            floats[i] = i * 0.25f - 1000.0f;
+            shorts[i] = (short) (i * 7);
+        }
+        encoded = writeBulk();
+    }
+
+    byte[] writeBulk() throws IOException {
+        ByteArrayOutputStream result = new ByteArrayOutputStream(ELEMENTS * 10);
+        DataOutputStream stream = new DataOutputStream(result);
+        stream.writeS32Array(ints);
+        stream.writeFloatArray(floats);
+        stream.writeS16Array(shorts);
+        stream.flush();
+        return result.toByteArray();
+    }
+
+    byte[] writeLoop() throws IOException {
+        ByteArrayOutputStream result = new ByteArrayOutputStream(ELEMENTS * 10);
+        DataOutputStream stream = new DataOutputStream(result);
+        for (int n : ints) {
+            stream.writeS32(n);
+        }
+        for (float n : floats) {
+            stream.writeFloat(n);
+        }
+        for (short n : shorts) {
+            stream.writeS16(n);
+        }
+        stream.flush();
+        return result.toByteArray();
+    }
+
+    Object[] readBulk() throws IOException {
+        DataInputStream stream = new DataInputStream(new ByteArrayInputStream(encoded));
+        int[] i32 = new int[ELEMENTS];
+        float[] f32 = new float[ELEMENTS];
+        short[] s16 = new short[ELEMENTS];
+        stream.readS32Array(i32, 0, ELEMENTS);
+        stream.readFloatArray(f32, 0, ELEMENTS);
+        stream.readS16Array(s16, 0, ELEMENTS);
+        return new Object[]{
+                i32, f32, s16
+        };
+    }
+
+    Object[] readLoop() throws IOException {
+        DataInputStream stream = new DataInputStream(new ByteArrayInputStream(encoded));
+        int[] i32 = new int[ELEMENTS];
+        float[] f32 = new float[ELEMENTS];
+        short[] s16 = new short[ELEMENTS];
+        for (int i = 0; i < ELEMENTS; ++i) {
+            i32[i] = stream.readS32();
+        }
+        for (int i = 0; i < ELEMENTS; ++i) {
+            f32[i] = stream.readFloat();
+        }
+        for (int i = 0; i < ELEMENTS; ++i) {
+            s16[i] = stream.readS16();
+        }
+        return new Object[]{
+                i32, f32, s16
+        };
+    }
+
+    void assertDecoded(Object[] decoded) {
+        assertTrue(Arrays.equals(ints, (int[]) decoded[0]));
+        assertTrue(Arrays.equals(floats, (float[]) decoded[1]));
+        assertTrue(Arrays.equals(shorts, (short[]) decoded[2]));
+    }
+
+    public void testWrite() throws Exception {
+        // 一括書き込みと1要素ずつの書き込みは同じバイト列となる
+        assertTrue(Arrays.equals(writeLoop(), encoded));
+
+        Benchmark.measure("DataOutputStream write loop", WARMUPS, ITERATIONS, new Benchmark.Body() {
+            @Override
+            public Object run() throws Exception {
+                return writeLoop();
+            }
+        });
+        Benchmark.measure("DataOutputStream write bulk", WARMUPS, ITERATIONS, new Benchmark.Body() {
+            @Override
+            public Object run() throws Exception {
+                return writeBulk();
+            }
+        });
+    }
+
+    public void testRead() throws Exception {
+        assertDecoded(readLoop());
+        assertDecoded(readBulk());
+
+        Benchmark.measure("DataInputStream read loop", WARMUPS, ITERATIONS, new Benchmark.Body() {
+            @Override
+            public Object run() throws Exception {
+                return readLoop();
+            }
+        });
+        Benchmark.measure("DataInputStream read bulk", WARMUPS, ITERATIONS, new Benchmark.Body() {
+            @Override
+            public Object run() throws Exception {
+                return readBulk();
+            }
+        });
+    }
+}
@@ -0,0 +1,110 @@
+package com.eaglesakura.lib.io;
+
+import com.eaglesakura.lib.android.game.tests.Benchmark;
+import com.eaglesakura.lib.android.game.util.LogUtil;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+ * 10000エントリのAtomフィードをパースし、通常形式とコンパクト形式の検索時間・保持メモリ量を比較する。<BR>
+ * 結果はログへ出力し、値の大小は検証しない。
+ */
+public class XmlElementBenchmark extends TestCase {
+    static final int ENTRIES = 10000;
+
+    static final int WARMUPS = 3;
+
+    static final int ITERATIONS = 10;
+
+    byte[] feed;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        StringBuilder builder = new StringBuilder(ENTRIES * 400);
+        builder.append("<?xml version=\"1.0\" encoding=\"utf-8\"?>");
+        builder.append("<feed xmlns=\"http://www.w3.org/2005/Atom\"><title>benchmark</title>");
+        for (int i = 0; i < ENTRIES; ++i) {
+            builder.append("<entry>");
+            builder.append("<id>urn:entry:").append(i).append("</id>");
+            builder.append("<title type=\"text\">entry ").append(i).append("</title>");
+            builder.append("<updated>2012-01-01T00:00:00Z</updated>");
+            builder.append("<link rel=\"alternate\" type=\"text/html\" href=\"http://example.com/").append(i)
+                    .append("\"/>");
+            builder.append("<author><name>author ").append(i % 100).append("</name></author>");
+            builder.append("<category term=\"c").append(i % 10).append("\"/>");
+            builder.append("<content type=\"text\">content ").append(i).append("</content>");
+            builder.append("</entry>");
+        }
+        builder.append("</feed>");
+        feed = builder.toString().getBytes("UTF-8");
+    }
+
+    XmlElement parse(boolean compact) throws Exception {
+        return XmlElement.parse(new ByteArrayInputStream(feed), compact);
+    }
+
+    /**
+     * エントリごとに子要素を検索する。
+     */
+    static int lookup(XmlElement root) {
+        int result = 0;
+        List<XmlElement> entries = root.listChilds("entry");
+        for (XmlElement entry : entries) {
+            result += entry.childToString("title").length();
+            result += entry.childToString("content").length();
+            result += entry.childAttributeToString("link", "href").length();
+            result += entry.getChild("author").childToString("name").length();
+        }
+        return result;
+    }
+
+    public void testParse() throws Exception {
+        for (final boolean compact : new boolean[]{
+                false, true
+        }) {
+            Benchmark.measure("XmlElement parse compact=" + compact, WARMUPS, ITERATIONS, new Benchmark.Body() {
+                @Override
+                public Object run() throws Exception {
+                    return parse(compact);
+                }
+            });
+        }
+    }
+
+    public void testLookup() throws Exception {
+        for (final boolean compact : new boolean[]{
+                false, true
+        }) {
+            final XmlElement root = parse(compact);
+            assertEquals(ENTRIES, root.listChilds("entry").size());
+            Benchmark.measure("XmlElement lookup compact=" + compact, WARMUPS, ITERATIONS, new Benchmark.Body() {
+                @Override
+                public Object run() {
+                    return lookup(root);
+                }
+            });
+        }
+    }
+
+    /**
+     * パースしたツリーが保持するメモリ量をログへ出力する。
+     */
+    void logRetainedHeap(boolean compact) throws Exception {
+        final long before = Benchmark.usedHeap();
+        XmlElement root = parse(compact);
+        final long after = Benchmark.usedHeap();
+        LogUtil.log("XmlElement retained compact=" + compact + " :: " + ((after - before) / 1024) + "KB");
+
+        // 計測中にツリーが回収されないよう参照を保持する
+        assertEquals("benchmark", root.childToString("title"));
+    }
+
+    public void testRetainedHeap() throws Exception {
+        logRetainedHeap(false);
+        logRetainedHeap(true);
+    }
+}
@@ -0,0 +1,176 @@
+package com.eaglesakura.lib.list;
+
+import com.eaglesakura.lib.android.game.tests.Benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import junit.framework.TestCase;
+
+/**
+ * {@link OrderAccessList}と{@link ConcurrentOrderAccessList}の処理時間を比較する。<BR>
+ * 結果はログへ出力し、値の大小は検証しない。
+ */
+public class ConcurrentOrderAccessListBenchmark extends TestCase {
+    static final int ELEMENTS = 256;
+
+    static final int WARMUPS = 20;
+
+    static final int ITERATIONS = 50;
+
+    /**
+     * 同時に走査するスレッド数
+     */
+    static final int READERS = 2;
+
+    OrderAccessList<Integer> lockList;
+
+    ConcurrentOrderAccessList<Integer> concurrentList;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        lockList = new OrderAccessList<Integer>();
+        concurrentList = new ConcurrentOrderAccessList<Integer>();
+        for (int i = 0; i < ELEMENTS; ++i) {
+            lockList.add(i);
+            concurrentList.add(i);
+        }
+    }
+
+    static int sum(OrderAccessList<Integer> list) {
+        int result = 0;
+        OrderAccessList.Iterator<Integer> iterator = list.iterator();
+        while (iterator.hasNext()) {
+            result += iterator.next();
+        }
+        return result;
+    }
+
+    static int sum(ConcurrentOrderAccessList<Integer> list) {
+        int result = 0;
+        for (Integer it : list) {
+            result += it;
+        }
+        return result;
+    }
+
+    /**
+     * 複数スレッドから同時に走査する。
+     */
+    static Object readConcurrently(final Benchmark.Body read) throws Exception {
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < READERS; ++i) {
+            Thread thread = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        for (int n = 0; n < 100; ++n) {
+                            read.run();
+                        }
+                    } catch (Exception e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+            };
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return threads;
+    }
+
+    public void testIterate() throws Exception {
+        Benchmark.measure("OrderAccessList iterate", WARMUPS, ITERATIONS, new Benchmark.Body() {
+            @Override
+            public Object run() {
+                return sum(lockList);
+            }
+        });
+        Benchmark.measure("ConcurrentOrderAccessList iterate", WARMUPS, ITERATIONS, new Benchmark.Body() {
+            @Override
+            public Object run() {
+                return sum(concurrentList);
+            }
+        });
+    }
+
+    public void testGetByIndex() throws Exception {
+        Benchmark.measure("OrderAccessList get(index)", WARMUPS, ITERATIONS, new Benchmark.Body() {
+            @Override
+            public Object run() {
+                int result = 0;
+                for (int i = 0; i < ELEMENTS; ++i) {
+                    result += lockList.get(i);
+                }
+                return result;
+            }
+        });
+        Benchmark.measure("ConcurrentOrderAccessList get(index)", WARMUPS, ITERATIONS, new Benchmark.Body() {
+            @Override
+            public Object run() {
+                int result = 0;
+                for (int i = 0; i < ELEMENTS; ++i) {
+                    result += concurrentList.get(i);
+                }
+                return result;
+            }
+        });
+    }
+
+    public void testAddRemove() throws Exception {
+        Benchmark.measure("OrderAccessList add/remove", WARMUPS, ITERATIONS, new Benchmark.Body() {
+            @Override
+            public Object run() {
+                for (int i = 0; i < ELEMENTS; ++i) {
+                    lockList.remove(i);
+                    lockList.add(i);
+                }
+                return lockList;
+            }
+        });
+        Benchmark.measure("ConcurrentOrderAccessList add/remove", WARMUPS, ITERATIONS, new Benchmark.Body() {
+            @Override
+            public Object run() {
+                for (int i = 0; i < ELEMENTS; ++i) {
+                    concurrentList.remove(i);
+                    concurrentList.add(i);
+                }
+                return concurrentList;
+            }
+        });
+    }
+
+    public void testConcurrentIterate() throws Exception {
+        Benchmark.measure("OrderAccessList iterate x" + READERS + " threads", WARMUPS, ITERATIONS,
+                new Benchmark.Body() {
+                    @Override
+                    public Object run() throws Exception {
+                        return readConcurrently(new Benchmark.Body() {
+                            @Override
+                            public Object run() {
+                                return sum(lockList);
+                            }
+                        });
+                    }
+                });
+        Benchmark.measure("ConcurrentOrderAccessList iterate x" + READERS + " threads", WARMUPS, ITERATIONS,
+                new Benchmark.Body() {
+                    @Override
+                    public Object run() throws Exception {
+                        return readConcurrently(new Benchmark.Body() {
+                            @Override
+                            public Object run() {
+                                return sum(concurrentList);
+                            }
+                        });
+                    }
+                });
+    }
+}
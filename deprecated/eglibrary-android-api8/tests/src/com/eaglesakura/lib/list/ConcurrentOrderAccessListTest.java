@@ -0,0 +1,210 @@
+package com.eaglesakura.lib.list;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import junit.framework.TestCase;
+
+/**
+ * {@link ConcurrentOrderAccessList}へ複数スレッドから同時に追加・削除を行い、CASの再試行で要素が失われないことを確認する。
+ */
+public class ConcurrentOrderAccessListTest extends TestCase {
+    static final int THREADS = 4;
+
+    static final int PER_THREAD = 2000;
+
+    ConcurrentOrderAccessList<String> list;
+
+    /**
+     * ワーカースレッドで発生した例外
+     */
+    List<Throwable> errors;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        list = new ConcurrentOrderAccessList<String>();
+        errors = Collections.synchronizedList(new ArrayList<Throwable>());
+    }
+
+    static String element(int thread, int index) {
+        return thread + "-" + index;
+    }
+
+    /**
+     * 開始を揃えてスレッドを実行し、全て終了するまで待つ。
+     */
+    void runThreads(int threads, final Worker worker) throws Exception {
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Thread> workers = new ArrayList<Thread>();
+        for (int i = 0; i < threads; ++i) {
+            final int thread = i;
+            Thread t = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        worker.run(thread);
+                    } catch (Throwable e) {
+                        errors.add(e);
+                    }
+                }
+            };
+            t.start();
+            workers.add(t);
+        }
+        start.countDown();
+        for (Thread t : workers) {
+            t.join();
+        }
+        if (!errors.isEmpty()) {
+            throw new AssertionError(errors.get(0));
+        }
+    }
+
+    interface Worker {
+        void run(int thread) throws Exception;
+    }
+
+    /**
+     * 一覧が期待する要素を1つずつ含むことを確認する。
+     */
+    void assertElements(Set<String> expected) {
+        Set<String> actual = new HashSet<String>();
+        for (String it : list) {
+            assertTrue("duplicated " + it, actual.add(it));
+        }
+        assertEquals(expected, actual);
+        assertEquals(expected.size(), list.size());
+    }
+
+    public void testConcurrentAddRemove() throws Exception {
+        final AtomicBoolean writing = new AtomicBoolean(true);
+
+        // 書き込み中も、スナップショットには重複・nullが現れない
+        Thread reader = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    while (writing.get()) {
+                        Set<String> snapshot = new HashSet<String>();
+                        for (String it : list) {
+                            if (it == null || !snapshot.add(it)) {
+                                throw new AssertionError("broken snapshot " + it);
+                            }
+                        }
+                    }
+                } catch (Throwable e) {
+                    errors.add(e);
+                }
+            }
+        };
+        reader.start();
+
+        try {
+            runThreads(THREADS, new Worker() {
+                @Override
+                public void run(int thread) {
+                    for (int i = 0; i < PER_THREAD; ++i) {
+                        list.add(element(thread, i));
+                    }
+                    for (int i = 0; i < PER_THREAD; i += 2) {
+                        list.remove(element(thread, i));
+                    }
+                }
+            });
+        } finally {
+            writing.set(false);
+            reader.join();
+        }
+        if (!errors.isEmpty()) {
+            throw new AssertionError(errors.get(0));
+        }
+
+        Set<String> expected = new HashSet<String>();
+        for (int thread = 0; thread < THREADS; ++thread) {
+            for (int i = 1; i < PER_THREAD; i += 2) {
+                expected.add(element(thread, i));
+            }
+        }
+        assertElements(expected);
+    }
+
+    public void testConcurrentInsertAtHead() throws Exception {
+        runThreads(THREADS, new Worker() {
+            @Override
+            public void run(int thread) {
+                for (int i = 0; i < PER_THREAD; ++i) {
+                    list.add(0, element(thread, i));
+                }
+            }
+        });
+
+        Set<String> expected = new HashSet<String>();
+        for (int thread = 0; thread < THREADS; ++thread) {
+            for (int i = 0; i < PER_THREAD; ++i) {
+                expected.add(element(thread, i));
+            }
+        }
+        assertElements(expected);
+
+        // 同じスレッドが追加した要素は、後に追加したものほど先頭に近い
+        for (int thread = 0; thread < THREADS; ++thread) {
+            for (int i = 1; i < PER_THREAD; ++i) {
+                assertTrue(list.indexOf(element(thread, i)) < list.indexOf(element(thread, i - 1)));
+            }
+        }
+    }
+
+    public void testIteratorRemoveWhileAdding() throws Exception {
+        for (int i = 0; i < PER_THREAD; ++i) {
+            list.add(element(0, i));
+        }
+
+        runThreads(2, new Worker() {
+            @Override
+            public void run(int thread) {
+                if (thread == 0) {
+                    // 事前に追加した要素をイテレータから全て削除する
+                    java.util.Iterator<String> iterator = list.iterator();
+                    while (iterator.hasNext()) {
+                        iterator.next();
+                        iterator.remove();
+                    }
+                } else {
+                    for (int i = 0; i < PER_THREAD; ++i) {
+                        list.add(element(1, i));
+                    }
+                }
+            }
+        });
+
+        Set<String> expected = new HashSet<String>();
+        for (int i = 0; i < PER_THREAD; ++i) {
+            expected.add(element(1, i));
+        }
+        assertElements(expected);
+    }
+
+    public void testAddNullIsRejected() {
+        list.add("a");
+        try {
+            list.add(null);
+            fail();
+        } catch (NullPointerException e) {
+        }
+        try {
+            list.add(0, null);
+            fail();
+        } catch (NullPointerException e) {
+        }
+        assertEquals(1, list.size());
+        assertEquals(-1, list.indexOf(null));
+        assertFalse(list.contains(null));
+    }
+}